@@ -0,0 +1,165 @@
+package pedroleonez.fornello.api.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+
+/*
+in-process cache with a maximum number of entries, where every entry carries its own expiration instant.
+expired entries are never returned, and when the cache is full the least recently used entry is evicted.
+ */
+public class BoundedExpiringCache<K, V> implements MeterBinder {
+
+    private final String name;
+    private final int maxSize;
+    private final Clock clock;
+
+    // access-ordered map, so the eldest entry is always the least recently used one
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedExpiringCache(String name, int maxSize) {
+        this(name, maxSize, Clock.systemUTC());
+    }
+
+    public BoundedExpiringCache(String name, int maxSize, Clock clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache max size must be greater than zero.");
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.clock = clock;
+    }
+
+    // returns the cached value, or null if there is no live entry for the key
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.isExpiredAt(clock.instant())) {
+            entries.remove(key);
+            evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value();
+    }
+
+    public synchronized void put(K key, V value, Instant expiresAt) {
+        entries.put(key, new Entry<>(value, expiresAt));
+        evictEldestWhileFull();
+    }
+
+    // stores the value only if there is no live entry for the key, returning the live value otherwise
+    public synchronized V putIfAbsent(K key, V value, Instant expiresAt) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && !entry.isExpiredAt(clock.instant())) {
+            hits.increment();
+            return entry.value();
+        }
+        misses.increment();
+        put(key, value, expiresAt);
+        return null;
+    }
+
+    public synchronized V remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        return entry == null ? null : entry.value();
+    }
+
+    public synchronized void removeIf(BiPredicate<K, V> predicate) {
+        entries.entrySet().removeIf(entry -> predicate.test(entry.getKey(), entry.getValue().value()));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    // removes every expired entry, meant to be called periodically so expired entries don't hold memory
+    public synchronized int removeExpired() {
+        Instant now = clock.instant();
+        int removed = 0;
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue().isExpiredAt(now)) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        evictions.add(removed);
+        return removed;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    // publishes the cache counters as metrics, tagged with the cache name
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("fornello.cache.hits", this, BoundedExpiringCache::getHits)
+                .tag("cache", name)
+                .register(registry);
+        FunctionCounter.builder("fornello.cache.misses", this, BoundedExpiringCache::getMisses)
+                .tag("cache", name)
+                .register(registry);
+        FunctionCounter.builder("fornello.cache.evictions", this, BoundedExpiringCache::getEvictions)
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder("fornello.cache.size", this, BoundedExpiringCache::size)
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder("fornello.cache.hit.rate", this, BoundedExpiringCache::getHitRate)
+                .tag("cache", name)
+                .register(registry);
+    }
+
+    private void evictEldestWhileFull() {
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private record Entry<V>(V value, Instant expiresAt) {
+
+        boolean isExpiredAt(Instant instant) {
+            return !instant.isBefore(expiresAt);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package pedroleonez.fornello.api.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+in-process cache for hot read paths, backed by a ConcurrentHashMap so reads never take a lock. every entry
+carries its own expiration instant and expired entries are never returned. the maximum size is a soft
+bound: once it's exceeded, one writer drops the expired entries and, if still needed, arbitrary live ones
+(there is no recency order to keep) until a tenth of the room is free again, so the scan isn't repeated on
+every write. concurrent writers may briefly leave a few entries more than the maximum.
+ */
+public class ConcurrentExpiringCache<K, V> implements MeterBinder {
+
+    private final String name;
+    private final int maxSize;
+    private final Clock clock;
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    public ConcurrentExpiringCache(String name, int maxSize) {
+        this(name, maxSize, Clock.systemUTC());
+    }
+
+    public ConcurrentExpiringCache(String name, int maxSize, Clock clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache max size must be greater than zero.");
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.clock = clock;
+    }
+
+    // returns the cached value, or null if there is no live entry for the key
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.isExpiredAt(clock.instant())) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value();
+    }
+
+    public void put(K key, V value, Instant expiresAt) {
+        entries.put(key, new Entry<>(value, expiresAt));
+        if (entries.size() > maxSize && evicting.compareAndSet(false, true)) {
+            try {
+                evict();
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+
+    public V remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        return entry == null ? null : entry.value();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    // removes every expired entry, meant to be called periodically so expired entries don't hold memory
+    public int removeExpired() {
+        Instant now = clock.instant();
+        int removed = 0;
+        for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+            if (entry.getValue().isExpiredAt(now) && entries.remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+        evictions.add(removed);
+        return removed;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    // publishes the cache counters as metrics, tagged with the cache name (same meters as BoundedExpiringCache)
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("fornello.cache.hits", this, ConcurrentExpiringCache::getHits)
+                .tag("cache", name)
+                .register(registry);
+        FunctionCounter.builder("fornello.cache.misses", this, ConcurrentExpiringCache::getMisses)
+                .tag("cache", name)
+                .register(registry);
+        FunctionCounter.builder("fornello.cache.evictions", this, ConcurrentExpiringCache::getEvictions)
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder("fornello.cache.size", this, ConcurrentExpiringCache::size)
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder("fornello.cache.hit.rate", this, ConcurrentExpiringCache::getHitRate)
+                .tag("cache", name)
+                .register(registry);
+    }
+
+    private void evict() {
+        int targetSize = maxSize - maxSize / 10;
+        if (removeExpired() > 0 && entries.size() <= targetSize) {
+            return;
+        }
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (entries.size() > targetSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private record Entry<V>(V value, Instant expiresAt) {
+
+        boolean isExpiredAt(Instant instant) {
+            return !instant.isBefore(expiresAt);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package pedroleonez.fornello.api.controllers;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import pedroleonez.fornello.api.dtos.output.analytics.RecoverySalesRebuildDto;
+import pedroleonez.fornello.api.dtos.output.analytics.RecoverySalesReportDto;
+import pedroleonez.fornello.api.services.SalesRollups;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    private static final int DEFAULT_REPORT_DAYS = 30;
+
+    private final SalesRollups salesRollups;
+
+    public AnalyticsController(SalesRollups salesRollups) {
+        this.salesRollups = salesRollups;
+    }
+
+    // read only from the in-memory rollups, by default for the last 30 days
+    @GetMapping("/sales")
+    public ResponseEntity<RecoverySalesReportDto> getSalesReport(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate to
+    ) {
+        LocalDate reportTo = to == null ? LocalDate.now() : to;
+        LocalDate reportFrom = from == null ? reportTo.minusDays(DEFAULT_REPORT_DAYS - 1) : from;
+        return new ResponseEntity<>(salesRollups.getReport(reportFrom, reportTo), HttpStatus.OK);
+    }
+
+    // recomputes the rollups from the orders, reporting the days that didn't match
+    @PostMapping("/sales/rebuild")
+    public ResponseEntity<RecoverySalesRebuildDto> rebuildSales() {
+        return new ResponseEntity<>(salesRollups.rebuild(), HttpStatus.OK);
+    }
+}
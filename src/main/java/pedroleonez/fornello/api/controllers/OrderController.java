@@ -1,37 +1,134 @@
 package pedroleonez.fornello.api.controllers;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.data.web.SortDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderBatchDto;
 import pedroleonez.fornello.api.dtos.input.order.CreateOrderDto;
 import pedroleonez.fornello.api.dtos.input.order.UpdateStatusOrderDto;
+import pedroleonez.fornello.api.dtos.input.order.UpdateStatusOrdersDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderBatchDto;
 import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderIntakeDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderStatusBulkDto;
+import pedroleonez.fornello.api.dtos.output.page.RecoveryCursorPageDto;
+import pedroleonez.fornello.api.dtos.output.page.RecoverySlicePageDto;
+import pedroleonez.fornello.api.enums.ExportFormat;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.exceptions.OrderIntakeDisabledException;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+import pedroleonez.fornello.api.services.KitchenQueue;
+import pedroleonez.fornello.api.services.OrderEventStream;
+import pedroleonez.fornello.api.services.OrderExporter;
+import pedroleonez.fornello.api.services.OrderIntakeQueue;
 import pedroleonez.fornello.api.services.OrderService;
 
+import java.time.LocalDate;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final OrderService orderService;
+    // only present when the asynchronous intake is enabled
+    private final ObjectProvider<OrderIntakeQueue> orderIntakeQueue;
+    private final OrderEventStream orderEventStream;
+    private final KitchenQueue kitchenQueue;
+    private final OrderExporter orderExporter;
+    private final long exportTimeoutMillis;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, ObjectProvider<OrderIntakeQueue> orderIntakeQueue, OrderEventStream orderEventStream, KitchenQueue kitchenQueue, OrderExporter orderExporter,
+                           @Value("${fornello.orders.export.timeout-ms:3600000}") long exportTimeoutMillis) {
         this.orderService = orderService;
+        this.orderIntakeQueue = orderIntakeQueue;
+        this.orderEventStream = orderEventStream;
+        this.kitchenQueue = kitchenQueue;
+        this.orderExporter = orderExporter;
+        this.exportTimeoutMillis = exportTimeoutMillis;
     }
 
     @PostMapping
-    public ResponseEntity<RecoveryOrderDto> createOrder(@RequestHeader("Authorization") String token, @RequestBody @Valid CreateOrderDto createOrderDto) {
-        return new ResponseEntity<>(orderService.createOrder(token, createOrderDto), HttpStatus.CREATED);
+    public ResponseEntity<RecoveryOrderDto> createOrder(
+            @AuthenticationPrincipal AuthenticatedUser authenticatedUser,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody @Valid CreateOrderDto createOrderDto
+    ) {
+        return new ResponseEntity<>(orderService.createOrder(authenticatedUser, createOrderDto, idempotencyKey), HttpStatus.CREATED);
+    }
+
+    // each order of the batch is created or rejected on its own, as reported in the results
+    @PostMapping("/batch")
+    public ResponseEntity<RecoveryOrderBatchDto> createOrders(@AuthenticationPrincipal AuthenticatedUser authenticatedUser, @RequestBody @Valid CreateOrderBatchDto createOrderBatchDto) {
+        return new ResponseEntity<>(orderService.createOrders(authenticatedUser, createOrderBatchDto), HttpStatus.OK);
+    }
+
+    // the order is validated and priced right away, but saved later: its status is followed by the intake id
+    @PostMapping("/intake")
+    public ResponseEntity<RecoveryOrderIntakeDto> submitOrder(@AuthenticationPrincipal AuthenticatedUser authenticatedUser, @RequestBody @Valid CreateOrderDto createOrderDto) {
+        return new ResponseEntity<>(orderIntakeQueue().submit(authenticatedUser, createOrderDto), HttpStatus.ACCEPTED);
+    }
+
+    @GetMapping("/intake/{intakeId}")
+    public ResponseEntity<RecoveryOrderIntakeDto> getOrderIntake(@AuthenticationPrincipal AuthenticatedUser authenticatedUser, @PathVariable String intakeId) {
+        return new ResponseEntity<>(orderIntakeQueue().getIntake(authenticatedUser, intakeId), HttpStatus.OK);
+    }
+
+    // stream of the new orders and status changes, replacing the polling of the order endpoints
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrderEvents(@AuthenticationPrincipal AuthenticatedUser authenticatedUser) {
+        return orderEventStream.subscribe(authenticatedUser);
+    }
+
+    // active orders in arrival order, served from memory
+    @GetMapping("/kitchen")
+    public ResponseEntity<List<RecoveryOrderDto>> getKitchenQueue() {
+        return new ResponseEntity<>(kitchenQueue.getOrders(), HttpStatus.OK);
+    }
+
+    /*
+    every order created between the two dates (hot and archived), written as it is read from the database.
+    a large export outlives the default async timeout, so it runs as a task with its own timeout
+     */
+    @GetMapping("/export")
+    public WebAsyncTask<Void> exportOrders(
+            @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate from,
+            @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate to,
+            @RequestParam(required = false) Status status,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            HttpServletResponse response
+    ) {
+        StreamingResponseBody body = orderExporter.export(format, from, to, status);
+        response.setContentType((format == ExportFormat.CSV ? new MediaType("text", "csv") : MediaType.APPLICATION_NDJSON).toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders." + format.name().toLowerCase() + "\"");
+        return new WebAsyncTask<>(exportTimeoutMillis, () -> {
+            body.writeTo(response.getOutputStream());
+            response.flushBuffer();
+            return null;
+        });
     }
 
     @GetMapping("/{orderId}")
-    public ResponseEntity<RecoveryOrderDto> getOrderById(@RequestHeader("Authorization") String token, @PathVariable Long orderId) {
-        return new ResponseEntity<>(orderService.getOrderById(token, orderId), HttpStatus.OK);
+    public ResponseEntity<RecoveryOrderDto> getOrderById(@AuthenticationPrincipal AuthenticatedUser authenticatedUser, @PathVariable Long orderId) {
+        return new ResponseEntity<>(orderService.getOrderById(authenticatedUser, orderId), HttpStatus.OK);
     }
 
     @GetMapping("/status/{statusName}")
@@ -41,9 +138,33 @@ public class OrderController {
                      @SortDefault(sort = "id", direction = Sort.Direction.ASC)})
             Pageable pageable,
             @PathVariable String statusName,
-            @RequestHeader("Authorization") String token
+            @AuthenticationPrincipal AuthenticatedUser authenticatedUser
     ) {
-        return new ResponseEntity<>(orderService.getOrderByStatus(statusName, token, pageable), HttpStatus.OK);
+        return new ResponseEntity<>(orderService.getOrderByStatus(statusName, authenticatedUser, pageable), HttpStatus.OK);
+    }
+
+    // slice mode: sent with "count=false", it tells only if there is a next page instead of the totals
+    @GetMapping(value = "/status/{statusName}", params = {"count=false", "!cursor"})
+    public ResponseEntity<RecoverySlicePageDto<RecoveryOrderDto>> getOrderByStatusSlice(
+            @PageableDefault(size = 8)
+            @SortDefault.SortDefaults({ @SortDefault(sort = "createdDate", direction = Sort.Direction.DESC),
+                     @SortDefault(sort = "id", direction = Sort.Direction.ASC)})
+            Pageable pageable,
+            @PathVariable String statusName,
+            @AuthenticationPrincipal AuthenticatedUser authenticatedUser
+    ) {
+        return new ResponseEntity<>(orderService.getOrderByStatusSlice(statusName, authenticatedUser, pageable), HttpStatus.OK);
+    }
+
+    // cursor mode: sent with the "cursor" parameter (empty for the first page), it doesn't run a count
+    @GetMapping(value = "/status/{statusName}", params = "cursor")
+    public ResponseEntity<RecoveryCursorPageDto<RecoveryOrderDto>> getOrderByStatusAndCursor(
+            @PathVariable String statusName,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "8") Integer size,
+            @AuthenticationPrincipal AuthenticatedUser authenticatedUser
+    ) {
+        return new ResponseEntity<>(orderService.getOrderByStatusAndCursor(statusName, authenticatedUser, cursor, limitSize(size)), HttpStatus.OK);
     }
 
     @PatchMapping("/{orderId}/status")
@@ -51,6 +172,12 @@ public class OrderController {
         return new ResponseEntity<>(orderService.changeOrderStatus(orderId, updateStatusOrderDto), HttpStatus.OK);
     }
 
+    // one status for many orders: each order is updated or skipped, as reported in the result
+    @PatchMapping("/status")
+    public ResponseEntity<RecoveryOrderStatusBulkDto> changeOrdersStatus(@RequestBody @Valid UpdateStatusOrdersDto updateStatusOrdersDto) {
+        return new ResponseEntity<>(orderService.changeOrdersStatus(updateStatusOrdersDto), HttpStatus.OK);
+    }
+
     @GetMapping
     public ResponseEntity<Page<RecoveryOrderDto>> getOrders(
             @PageableDefault(size = 8)
@@ -58,9 +185,30 @@ public class OrderController {
                     @SortDefault(sort = "createdDate", direction = Sort.Direction.DESC),
                     @SortDefault(sort = "id", direction = Sort.Direction.ASC)})
             Pageable pageable,
-            @RequestHeader("Authorization") String token
+            @AuthenticationPrincipal AuthenticatedUser authenticatedUser
+    ) {
+        return new ResponseEntity<>(orderService.getOrders(authenticatedUser, pageable), HttpStatus.OK);
+    }
+
+    @GetMapping(params = {"count=false", "!cursor"})
+    public ResponseEntity<RecoverySlicePageDto<RecoveryOrderDto>> getOrdersSlice(
+            @PageableDefault(size = 8)
+            @SortDefault.SortDefaults({
+                    @SortDefault(sort = "createdDate", direction = Sort.Direction.DESC),
+                    @SortDefault(sort = "id", direction = Sort.Direction.ASC)})
+            Pageable pageable,
+            @AuthenticationPrincipal AuthenticatedUser authenticatedUser
     ) {
-        return new ResponseEntity<>(orderService.getOrders(token, pageable), HttpStatus.OK);
+        return new ResponseEntity<>(orderService.getOrdersSlice(authenticatedUser, pageable), HttpStatus.OK);
+    }
+
+    @GetMapping(params = "cursor")
+    public ResponseEntity<RecoveryCursorPageDto<RecoveryOrderDto>> getOrdersByCursor(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "8") Integer size,
+            @AuthenticationPrincipal AuthenticatedUser authenticatedUser
+    ) {
+        return new ResponseEntity<>(orderService.getOrdersByCursor(authenticatedUser, cursor, limitSize(size)), HttpStatus.OK);
     }
 
     @DeleteMapping("/{orderId}")
@@ -68,4 +216,18 @@ public class OrderController {
         orderService.deleteOrderById(orderId);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
+
+    // keeps the page size between 1 and the maximum size accepted for a page
+    private int limitSize(Integer size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    // the intake endpoints answer 404 while the asynchronous intake is disabled
+    private OrderIntakeQueue orderIntakeQueue() {
+        OrderIntakeQueue queue = orderIntakeQueue.getIfAvailable();
+        if (queue == null) {
+            throw new OrderIntakeDisabledException();
+        }
+        return queue;
+    }
 }
@@ -11,7 +11,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import pedroleonez.fornello.api.dtos.input.user.CreateUserDto;
 import pedroleonez.fornello.api.dtos.input.user.LoginUserDto;
+import pedroleonez.fornello.api.dtos.input.user.RefreshTokenDto;
 import pedroleonez.fornello.api.dtos.output.auth.RecoveryJwtTokenDto;
+import pedroleonez.fornello.api.dtos.output.page.RecoverySlicePageDto;
 import pedroleonez.fornello.api.dtos.output.user.RecoveryUserDto;
 import pedroleonez.fornello.api.enums.RoleName;
 import pedroleonez.fornello.api.services.UserService;
@@ -32,6 +34,12 @@ public class UserController {
         return new ResponseEntity<>(token, HttpStatus.OK);
     }
 
+    @PostMapping("/refresh")
+    public ResponseEntity<RecoveryJwtTokenDto> refreshToken(@Valid @RequestBody RefreshTokenDto refreshTokenDto) {
+        RecoveryJwtTokenDto token = userService.refreshToken(refreshTokenDto);
+        return new ResponseEntity<>(token, HttpStatus.OK);
+    }
+
     @PostMapping("/customers")
     public ResponseEntity<Void> createCustomerUser(@Valid @RequestBody CreateUserDto createUserDto) {
         userService.createUser(createUserDto, RoleName.ROLE_CUSTOMER);
@@ -47,6 +55,16 @@ public class UserController {
         return new ResponseEntity<>(userService.getUsers(pageable), HttpStatus.OK);
     }
 
+    // slice mode: sent with "count=false", it tells only if there is a next page and doesn't run a count
+    @GetMapping(params = "count=false")
+    public ResponseEntity<RecoverySlicePageDto<RecoveryUserDto>> getUsersSlice(
+            @PageableDefault(size = 8)
+            @SortDefault.SortDefaults({
+                    @SortDefault(sort = "id", direction = Sort.Direction.ASC)})
+            Pageable pageable) {
+        return new ResponseEntity<>(userService.getUsersSlice(pageable), HttpStatus.OK);
+    }
+
     @GetMapping("/{userId}")
     public ResponseEntity<RecoveryUserDto> getUserById(@PathVariable Long userId) {
         return new ResponseEntity<>(userService.getUserById(userId), HttpStatus.OK);
@@ -0,0 +1,16 @@
+package pedroleonez.fornello.api.dtos.input.order;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record CreateOrderBatchDto(
+
+        @NotEmpty(message = "{not.empty.message}")
+        @Size(max = 500, message = "{batch.size.message}")
+        List<@Valid CreateOrderDto> orders
+
+) {
+}
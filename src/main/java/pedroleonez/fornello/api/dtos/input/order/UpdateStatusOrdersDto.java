@@ -0,0 +1,20 @@
+package pedroleonez.fornello.api.dtos.input.order;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record UpdateStatusOrdersDto(
+
+        @NotEmpty(message = "{not.empty.message}")
+        @Size(max = 500, message = "{batch.size.message}")
+        List<@NotNull(message = "{not.null.message}") Long> orderIds,
+
+        @NotBlank(message = "{not.blank.message}")
+        String status
+
+) {
+}
@@ -0,0 +1,11 @@
+package pedroleonez.fornello.api.dtos.input.user;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record RefreshTokenDto(
+
+        @NotBlank(message = "{not.blank.message}")
+        String refreshToken
+
+) {
+}
@@ -0,0 +1,15 @@
+package pedroleonez.fornello.api.dtos.output.analytics;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+
+public record RecoveryDailySalesDto(
+
+        @JsonFormat(pattern = "dd-MM-yyyy")
+        LocalDate date,
+
+        RecoverySalesDto total
+
+) {
+}
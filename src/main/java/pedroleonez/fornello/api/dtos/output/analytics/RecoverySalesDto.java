@@ -0,0 +1,14 @@
+package pedroleonez.fornello.api.dtos.output.analytics;
+
+import java.math.BigDecimal;
+
+public record RecoverySalesDto(
+
+        Long orders,
+
+        Long items,
+
+        BigDecimal revenue
+
+) {
+}
@@ -0,0 +1,16 @@
+package pedroleonez.fornello.api.dtos.output.analytics;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record RecoverySalesRebuildDto(
+
+        Integer days,
+
+        @JsonFormat(pattern = "dd-MM-yyyy")
+        List<LocalDate> mismatchedDates
+
+) {
+}
@@ -0,0 +1,30 @@
+package pedroleonez.fornello.api.dtos.output.analytics;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import pedroleonez.fornello.api.enums.Category;
+import pedroleonez.fornello.api.enums.PaymentMethod;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+public record RecoverySalesReportDto(
+
+        @JsonFormat(pattern = "dd-MM-yyyy")
+        LocalDate from,
+
+        @JsonFormat(pattern = "dd-MM-yyyy")
+        LocalDate to,
+
+        RecoverySalesDto total,
+
+        Map<Category, RecoverySalesDto> byCategory,
+
+        Map<PaymentMethod, RecoverySalesDto> byPaymentMethod,
+
+        Map<Long, RecoverySalesDto> byProductVariation,
+
+        List<RecoveryDailySalesDto> days
+
+) {
+}
@@ -2,7 +2,9 @@ package pedroleonez.fornello.api.dtos.output.auth;
 
 public record RecoveryJwtTokenDto(
 
-        String token
+        String token,
+
+        String refreshToken
 
 ) {
 }
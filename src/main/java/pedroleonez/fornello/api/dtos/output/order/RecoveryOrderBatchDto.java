@@ -0,0 +1,14 @@
+package pedroleonez.fornello.api.dtos.output.order;
+
+import java.util.List;
+
+public record RecoveryOrderBatchDto(
+
+        Integer created,
+
+        Integer failed,
+
+        List<RecoveryOrderBatchResultDto> results
+
+) {
+}
@@ -0,0 +1,17 @@
+package pedroleonez.fornello.api.dtos.output.order;
+
+import java.math.BigDecimal;
+
+// result of one order of a batch, in the position it was sent: the created order id or the error that rejected it
+public record RecoveryOrderBatchResultDto(
+
+        Integer index,
+
+        Long orderId,
+
+        BigDecimal amount,
+
+        String error
+
+) {
+}
@@ -0,0 +1,14 @@
+package pedroleonez.fornello.api.dtos.output.order;
+
+import pedroleonez.fornello.api.enums.Status;
+
+public record RecoveryOrderEventDto(
+
+        String type,
+
+        Status previousStatus,
+
+        RecoveryOrderDto order
+
+) {
+}
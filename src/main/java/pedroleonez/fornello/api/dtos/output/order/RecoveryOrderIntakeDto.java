@@ -0,0 +1,20 @@
+package pedroleonez.fornello.api.dtos.output.order;
+
+import pedroleonez.fornello.api.enums.IntakeStatus;
+
+import java.math.BigDecimal;
+
+public record RecoveryOrderIntakeDto(
+
+        String intakeId,
+
+        IntakeStatus status,
+
+        Long orderId,
+
+        BigDecimal amount,
+
+        String error
+
+) {
+}
@@ -1,12 +1,22 @@
 package pedroleonez.fornello.api.dtos.output.order;
 
-import pedroleonez.fornello.api.dtos.output.product.RecoveryProductVariationDto;
+import pedroleonez.fornello.api.enums.Category;
+
+import java.math.BigDecimal;
 
 public record RecoveryOrderItemDto(
 
         Long id,
 
-        RecoveryProductVariationDto productVariation,
+        Long productVariationId,
+
+        String productName,
+
+        String sizeName,
+
+        Category category,
+
+        BigDecimal unitPrice,
 
         Integer quantity
 
@@ -0,0 +1,16 @@
+package pedroleonez.fornello.api.dtos.output.order;
+
+import pedroleonez.fornello.api.enums.Status;
+
+import java.util.List;
+
+public record RecoveryOrderStatusBulkDto(
+
+        Status status,
+
+        List<Long> updatedOrderIds,
+
+        List<RecoveryOrderStatusSkipDto> skippedOrders
+
+) {
+}
@@ -0,0 +1,15 @@
+package pedroleonez.fornello.api.dtos.output.order;
+
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.enums.StatusChangeSkipReason;
+
+public record RecoveryOrderStatusSkipDto(
+
+        Long orderId,
+
+        Status currentStatus,
+
+        StatusChangeSkipReason reason
+
+) {
+}
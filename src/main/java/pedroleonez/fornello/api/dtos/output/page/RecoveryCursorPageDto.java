@@ -0,0 +1,16 @@
+package pedroleonez.fornello.api.dtos.output.page;
+
+import java.util.List;
+
+public record RecoveryCursorPageDto<T>(
+
+        List<T> content,
+
+        Integer size,
+
+        Boolean hasNext,
+
+        String nextCursor
+
+) {
+}
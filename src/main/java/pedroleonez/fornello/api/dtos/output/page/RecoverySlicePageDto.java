@@ -0,0 +1,16 @@
+package pedroleonez.fornello.api.dtos.output.page;
+
+import java.util.List;
+
+public record RecoverySlicePageDto<T>(
+
+        List<T> content,
+
+        Integer page,
+
+        Integer size,
+
+        Boolean hasNext
+
+) {
+}
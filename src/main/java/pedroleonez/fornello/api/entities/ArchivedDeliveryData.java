@@ -0,0 +1,43 @@
+package pedroleonez.fornello.api.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// delivery data of an archived order
+@Entity
+@Table(name = "archived_deliveries_data", indexes = @Index(name = "idx_archived_deliveries_data_order", columnList = "order_id"))
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ArchivedDeliveryData {
+
+    @Id
+    private Long id;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "receiver_name")
+    private String receiverName;
+
+    private String address;
+
+    @Column(name = "house_number")
+    private String number;
+
+    private String complement;
+
+    private String district;
+
+    @Column(name = "zip_code")
+    private String zipCode;
+
+    private String city;
+
+    private String state;
+
+    @Column(name = "phone_number")
+    private String phoneNumber;
+}
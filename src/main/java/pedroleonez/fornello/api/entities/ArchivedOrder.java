@@ -0,0 +1,41 @@
+package pedroleonez.fornello.api.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import pedroleonez.fornello.api.enums.PaymentMethod;
+import pedroleonez.fornello.api.enums.Status;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// terminal order moved out of the orders table by the archival job, keeping its original id
+@Entity
+@Table(name = "archived_orders", indexes = @Index(name = "idx_archived_orders_user_created", columnList = "user_id, created_date"))
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ArchivedOrder {
+
+    @Id
+    private Long id;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_method")
+    private PaymentMethod paymentMethod;
+
+    private BigDecimal amount;
+
+    @Column(name = "created_date")
+    private LocalDateTime createdDate;
+
+    @Column(name = "archived_date")
+    private LocalDateTime archivedDate;
+}
@@ -0,0 +1,41 @@
+package pedroleonez.fornello.api.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import pedroleonez.fornello.api.enums.Category;
+
+import java.math.BigDecimal;
+
+// item of an archived order, with the snapshot of its product variation
+@Entity
+@Table(name = "archived_orders_items", indexes = @Index(name = "idx_archived_orders_items_order", columnList = "order_id"))
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ArchivedOrderItem {
+
+    @Id
+    private Long id;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "product_variation_id")
+    private Long productVariationId;
+
+    private Integer quantity;
+
+    @Column(name = "product_name")
+    private String productName;
+
+    @Column(name = "size_name")
+    private String sizeName;
+
+    @Column(name = "unit_price")
+    private BigDecimal unitPrice;
+
+    @Enumerated(EnumType.STRING)
+    private Category category;
+}
@@ -13,7 +13,8 @@ import lombok.*;
 public class DeliveryData {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "deliveries_data_seq")
+    @SequenceGenerator(name = "deliveries_data_seq", sequenceName = "deliveries_data_seq", allocationSize = 50)
     private Long id;
 
     @OneToOne
@@ -10,7 +10,11 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+// the listings' order (createdDate DESC, id ASC), so pages and cursors are read from an index instead of sorting the table
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_created", columnList = "created_date desc, id"),
+        @Index(name = "idx_orders_user_created", columnList = "user_id, created_date desc, id"),
+        @Index(name = "idx_orders_status_created", columnList = "status, created_date desc, id")})
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -19,7 +23,8 @@ import java.util.List;
 public class Order {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -45,6 +50,9 @@ public class Order {
     @Column(name = "created_date")
     private LocalDateTime createdDate;
 
+    @Version
+    private Long version;
+
     @PrePersist
     private void configureCreatedDate() {
         this.createdDate = LocalDateTime.now();
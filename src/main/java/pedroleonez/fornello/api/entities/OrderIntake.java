@@ -0,0 +1,45 @@
+package pedroleonez.fornello.api.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import pedroleonez.fornello.api.enums.IntakeStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// order accepted by the asynchronous intake, stored before the request is answered and turned into an order by the intake writer
+@Entity
+@Table(name = "order_intakes", indexes = @Index(name = "idx_order_intakes_status_created", columnList = "status, created_date"))
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class OrderIntake {
+
+    @Id
+    private String id;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    private IntakeStatus status;
+
+    // the order as sent and as priced when it was accepted, in JSON
+    @Lob
+    private String payload;
+
+    private BigDecimal amount;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    private String error;
+
+    @Column(name = "created_date")
+    private LocalDateTime createdDate;
+
+    @Column(name = "completed_date")
+    private LocalDateTime completedDate;
+}
@@ -2,6 +2,9 @@ package pedroleonez.fornello.api.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import pedroleonez.fornello.api.enums.Category;
+
+import java.math.BigDecimal;
 
 @Entity
 @Table(name = "orders_items")
@@ -13,15 +16,30 @@ import lombok.*;
 public class OrderItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_items_seq")
+    @SequenceGenerator(name = "orders_items_seq", sequenceName = "orders_items_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_variation_id")
     private ProductVariation productVariation;
 
     private Integer quantity;
 
+    // snapshot of the product variation when the order was created, so later catalog changes don't change old orders
+    @Column(name = "product_name", updatable = false)
+    private String productName;
+
+    @Column(name = "size_name", updatable = false)
+    private String sizeName;
+
+    @Column(name = "unit_price", updatable = false)
+    private BigDecimal unitPrice;
+
+    @Enumerated(EnumType.STRING)
+    @Column(updatable = false)
+    private Category category;
+
     @ManyToOne
     @JoinColumn(name = "order_id")
     private Order order;
@@ -0,0 +1,7 @@
+package pedroleonez.fornello.api.enums;
+
+public enum ExportFormat {
+
+    NDJSON,
+    CSV
+}
@@ -0,0 +1,9 @@
+package pedroleonez.fornello.api.enums;
+
+public enum IntakeStatus {
+
+    QUEUED,
+    CREATED,
+    FAILED
+
+}
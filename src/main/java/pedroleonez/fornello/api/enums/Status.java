@@ -7,6 +7,17 @@ public enum Status {
     PREPARING,
     SENT,
     DELIVERED,
-    CANCELED
+    CANCELED;
+
+    // legal transitions of the order lifecycle: delivered and canceled orders can't change anymore
+    public boolean canChangeTo(Status nextStatus) {
+        return switch (this) {
+            case PENDING -> nextStatus == APPROVED || nextStatus == CANCELED;
+            case APPROVED -> nextStatus == PREPARING || nextStatus == CANCELED;
+            case PREPARING -> nextStatus == SENT || nextStatus == CANCELED;
+            case SENT -> nextStatus == DELIVERED;
+            case DELIVERED, CANCELED -> false;
+        };
+    }
 
 }
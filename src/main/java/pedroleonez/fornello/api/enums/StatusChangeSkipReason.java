@@ -0,0 +1,8 @@
+package pedroleonez.fornello.api.enums;
+
+public enum StatusChangeSkipReason {
+
+    NOT_FOUND,
+    INVALID_TRANSITION
+
+}
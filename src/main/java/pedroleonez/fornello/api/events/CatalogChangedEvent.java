@@ -0,0 +1,5 @@
+package pedroleonez.fornello.api.events;
+
+// published when a product or one of its variations is created, updated or deleted
+public record CatalogChangedEvent(Long productId) {
+}
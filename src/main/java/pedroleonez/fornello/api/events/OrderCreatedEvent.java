@@ -0,0 +1,7 @@
+package pedroleonez.fornello.api.events;
+
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+
+// published when an order is saved, by any of the creation paths
+public record OrderCreatedEvent(RecoveryOrderDto order) {
+}
@@ -0,0 +1,7 @@
+package pedroleonez.fornello.api.events;
+
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+
+// published when an order is deleted, carrying the order as it was before the deletion
+public record OrderDeletedEvent(RecoveryOrderDto order) {
+}
@@ -0,0 +1,8 @@
+package pedroleonez.fornello.api.events;
+
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.enums.Status;
+
+// published when the status of an order changes, carrying the order already with the new status
+public record OrderStatusChangedEvent(RecoveryOrderDto order, Status previousStatus) {
+}
@@ -0,0 +1,9 @@
+package pedroleonez.fornello.api.exceptions;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException() {
+        super("Idempotency key already used for a different order.");
+    }
+
+}
@@ -0,0 +1,9 @@
+package pedroleonez.fornello.api.exceptions;
+
+public class IdempotentRequestInProgressException extends RuntimeException {
+
+    public IdempotentRequestInProgressException() {
+        super("A request with the same idempotency key is still being processed. Retry later.");
+    }
+
+}
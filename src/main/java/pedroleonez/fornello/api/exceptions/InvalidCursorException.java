@@ -0,0 +1,9 @@
+package pedroleonez.fornello.api.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException() {
+        super("Invalid cursor.");
+    }
+
+}
@@ -0,0 +1,8 @@
+package pedroleonez.fornello.api.exceptions;
+
+public class InvalidDateRangeException extends RuntimeException {
+
+    public InvalidDateRangeException() {
+        super("The start date must not be after the end date.");
+    }
+}
@@ -0,0 +1,9 @@
+package pedroleonez.fornello.api.exceptions;
+
+public class InvalidIdempotencyKeyException extends RuntimeException {
+
+    public InvalidIdempotencyKeyException() {
+        super("Invalid idempotency key.");
+    }
+
+}
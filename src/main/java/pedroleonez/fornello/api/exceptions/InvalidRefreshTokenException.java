@@ -0,0 +1,8 @@
+package pedroleonez.fornello.api.exceptions;
+
+public class InvalidRefreshTokenException extends RuntimeException {
+
+    public InvalidRefreshTokenException() {
+        super("Invalid or expired refresh token.");
+    }
+}
@@ -0,0 +1,9 @@
+package pedroleonez.fornello.api.exceptions;
+
+public class InvalidSortException extends RuntimeException {
+
+    public InvalidSortException() {
+        super("Orders can only be sorted by id, status, paymentMethod, amount or createdDate.");
+    }
+
+}
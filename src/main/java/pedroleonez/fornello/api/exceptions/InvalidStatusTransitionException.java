@@ -0,0 +1,8 @@
+package pedroleonez.fornello.api.exceptions;
+
+public class InvalidStatusTransitionException extends RuntimeException {
+
+    public InvalidStatusTransitionException() {
+        super("The order can't change to the informed status.");
+    }
+}
@@ -0,0 +1,8 @@
+package pedroleonez.fornello.api.exceptions;
+
+public class LoginCapacityExceededException extends RuntimeException {
+
+    public LoginCapacityExceededException() {
+        super("Too many logins in progress, please try again later.");
+    }
+}
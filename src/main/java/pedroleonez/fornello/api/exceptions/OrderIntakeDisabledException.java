@@ -0,0 +1,8 @@
+package pedroleonez.fornello.api.exceptions;
+
+public class OrderIntakeDisabledException extends RuntimeException {
+
+    public OrderIntakeDisabledException() {
+        super("Asynchronous order intake is not enabled.");
+    }
+}
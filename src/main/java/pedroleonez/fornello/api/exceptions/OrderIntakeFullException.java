@@ -0,0 +1,8 @@
+package pedroleonez.fornello.api.exceptions;
+
+public class OrderIntakeFullException extends RuntimeException {
+
+    public OrderIntakeFullException() {
+        super("Too many orders waiting to be saved, please try again later.");
+    }
+}
@@ -0,0 +1,8 @@
+package pedroleonez.fornello.api.exceptions;
+
+public class OrderIntakeNotFoundException extends RuntimeException {
+
+    public OrderIntakeNotFoundException() {
+        super("Order intake not found.");
+    }
+}
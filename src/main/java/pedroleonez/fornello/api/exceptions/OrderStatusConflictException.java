@@ -0,0 +1,8 @@
+package pedroleonez.fornello.api.exceptions;
+
+public class OrderStatusConflictException extends RuntimeException {
+
+    public OrderStatusConflictException() {
+        super("The order status was changed by another request, please try again.");
+    }
+}
@@ -5,7 +5,23 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.async.AsyncRequestNotUsableException;
+import pedroleonez.fornello.api.exceptions.IdempotencyKeyReusedException;
+import pedroleonez.fornello.api.exceptions.IdempotentRequestInProgressException;
+import pedroleonez.fornello.api.exceptions.InvalidCursorException;
+import pedroleonez.fornello.api.exceptions.InvalidDateRangeException;
+import pedroleonez.fornello.api.exceptions.InvalidIdempotencyKeyException;
+import pedroleonez.fornello.api.exceptions.InvalidRefreshTokenException;
+import pedroleonez.fornello.api.exceptions.InvalidSortException;
+import pedroleonez.fornello.api.exceptions.InvalidStatusTransitionException;
+import pedroleonez.fornello.api.exceptions.LoginCapacityExceededException;
+import pedroleonez.fornello.api.exceptions.OrderIntakeDisabledException;
+import pedroleonez.fornello.api.exceptions.OrderIntakeFullException;
+import pedroleonez.fornello.api.exceptions.OrderIntakeNotFoundException;
+import pedroleonez.fornello.api.exceptions.OrderStatusConflictException;
+import pedroleonez.fornello.api.exceptions.ProductAssociatedWithOrderException;
 import pedroleonez.fornello.api.exceptions.ProductNotFoundException;
+import pedroleonez.fornello.api.exceptions.ProductVariationAssociatedWithOrderException;
 import pedroleonez.fornello.api.exceptions.ProductVariationNotFoundException;
 import pedroleonez.fornello.api.exceptions.ProductVariationUnavailableException;
 import pedroleonez.fornello.api.exceptions.model.ApiError;
@@ -29,9 +45,17 @@ public class RestExceptionHandler {
         return new ResponseEntity<>(apiError, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    // the client of an async response (the order event stream) is gone: there is nobody to write an error body to
+    @ExceptionHandler(AsyncRequestNotUsableException.class)
+    public ResponseEntity<ApiError> asyncRequestNotUsableException(AsyncRequestNotUsableException ex) {
+        return null;
+    }
+
     @ExceptionHandler({
             ProductNotFoundException.class,
-            ProductVariationNotFoundException.class
+            ProductVariationNotFoundException.class,
+            OrderIntakeNotFoundException.class,
+            OrderIntakeDisabledException.class
     })
     public ResponseEntity<ApiError> notFoundException(RuntimeException ex) {
         ApiError apiError = ApiError
@@ -44,7 +68,14 @@ public class RestExceptionHandler {
         return new ResponseEntity<>(apiError, HttpStatus.NOT_FOUND);
     }
 
-    @ExceptionHandler(ProductVariationUnavailableException.class)
+    @ExceptionHandler({
+            ProductVariationUnavailableException.class,
+            InvalidStatusTransitionException.class,
+            OrderStatusConflictException.class,
+            IdempotentRequestInProgressException.class,
+            ProductAssociatedWithOrderException.class,
+            ProductVariationAssociatedWithOrderException.class
+    })
     public ResponseEntity<ApiError> emailExistsException(RuntimeException ex) {
         ApiError apiError = ApiError
                 .builder()
@@ -56,6 +87,62 @@ public class RestExceptionHandler {
         return new ResponseEntity<>(apiError, HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler(InvalidRefreshTokenException.class)
+    public ResponseEntity<ApiError> unauthorizedException(RuntimeException ex) {
+        ApiError apiError = ApiError
+                .builder()
+                .timestamp(LocalDateTime.now())
+                .code(HttpStatus.UNAUTHORIZED.value())
+                .status(HttpStatus.UNAUTHORIZED.name())
+                .errors(List.of(ex.getMessage()))
+                .build();
+        return new ResponseEntity<>(apiError, HttpStatus.UNAUTHORIZED);
+    }
+
+    @ExceptionHandler({
+            LoginCapacityExceededException.class,
+            OrderIntakeFullException.class
+    })
+    public ResponseEntity<ApiError> serviceUnavailableException(RuntimeException ex) {
+        ApiError apiError = ApiError
+                .builder()
+                .timestamp(LocalDateTime.now())
+                .code(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.name())
+                .errors(List.of(ex.getMessage()))
+                .build();
+        return new ResponseEntity<>(apiError, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler({
+            InvalidCursorException.class,
+            InvalidSortException.class,
+            InvalidIdempotencyKeyException.class,
+            InvalidDateRangeException.class
+    })
+    public ResponseEntity<ApiError> badRequestException(RuntimeException ex) {
+        ApiError apiError = ApiError
+                .builder()
+                .timestamp(LocalDateTime.now())
+                .code(HttpStatus.BAD_REQUEST.value())
+                .status(HttpStatus.BAD_REQUEST.name())
+                .errors(List.of(ex.getMessage()))
+                .build();
+        return new ResponseEntity<>(apiError, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ApiError> unprocessableEntityException(RuntimeException ex) {
+        ApiError apiError = ApiError
+                .builder()
+                .timestamp(LocalDateTime.now())
+                .code(HttpStatus.UNPROCESSABLE_ENTITY.value())
+                .status(HttpStatus.UNPROCESSABLE_ENTITY.name())
+                .errors(List.of(ex.getMessage()))
+                .build();
+        return new ResponseEntity<>(apiError, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiError> argumentNotValidException(MethodArgumentNotValidException ex) {
         List<String> errorList = ex.getBindingResult()
@@ -26,6 +26,8 @@ public interface OrderMapper {
     @Named("mapOrderItemListToRecoveryOrderItemDtoList")
     List<RecoveryOrderItemDto> mapOrderItemListToRecoveryOrderItemDtoList(List<OrderItem> orderItems);
 
+    // the item carries its own snapshot, so only the id of the product variation is read
+    @Mapping(source = "productVariation.id", target = "productVariationId")
     @Named("mapOrderItemToRecoveryOrderItemDto")
     RecoveryOrderItemDto mapOrderItemToRecoveryOrderItemDto(OrderItem orderItem);
 
@@ -0,0 +1,47 @@
+package pedroleonez.fornello.api.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import pedroleonez.fornello.api.entities.ArchivedOrderItem;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.repositories.projections.CategorySalesRow;
+import pedroleonez.fornello.api.repositories.projections.OrderItemRow;
+import pedroleonez.fornello.api.repositories.projections.PaymentMethodSalesRow;
+import pedroleonez.fornello.api.repositories.projections.VariationReferenceRow;
+import pedroleonez.fornello.api.repositories.projections.VariationSalesRow;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ArchivedOrderItemRepository extends JpaRepository<ArchivedOrderItem, Long> {
+
+    @Query("select new pedroleonez.fornello.api.repositories.projections.OrderItemRow(" +
+            "oi.orderId, oi.id, oi.productVariationId, oi.productName, oi.sizeName, oi.category, oi.unitPrice, oi.quantity) " +
+            "from ArchivedOrderItem oi where oi.orderId in :orderIds order by oi.id")
+    List<OrderItemRow> findRowsByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    @Query("select new pedroleonez.fornello.api.repositories.projections.OrderItemRow(" +
+            "oi.orderId, oi.id, oi.productVariationId, oi.productName, oi.sizeName, oi.category, oi.unitPrice, oi.quantity) " +
+            "from ArchivedOrderItem oi where oi.orderId = :orderId order by oi.id")
+    List<OrderItemRow> findRowsByOrderId(@Param("orderId") Long orderId);
+
+    @Query("select new pedroleonez.fornello.api.repositories.projections.PaymentMethodSalesRow(cast(o.createdDate as LocalDate), o.paymentMethod, count(distinct o.id), sum(oi.quantity), sum(oi.unitPrice * oi.quantity)) " +
+            "from ArchivedOrderItem oi join ArchivedOrder o on o.id = oi.orderId where o.status <> :status group by cast(o.createdDate as LocalDate), o.paymentMethod")
+    List<PaymentMethodSalesRow> findPaymentMethodSalesRowsByStatusNot(@Param("status") Status status);
+
+    @Query("select new pedroleonez.fornello.api.repositories.projections.CategorySalesRow(cast(o.createdDate as LocalDate), oi.category, count(distinct o.id), sum(oi.quantity), sum(oi.unitPrice * oi.quantity)) " +
+            "from ArchivedOrderItem oi join ArchivedOrder o on o.id = oi.orderId where o.status <> :status and oi.category is not null group by cast(o.createdDate as LocalDate), oi.category")
+    List<CategorySalesRow> findCategorySalesRowsByStatusNot(@Param("status") Status status);
+
+    @Query("select new pedroleonez.fornello.api.repositories.projections.VariationSalesRow(cast(o.createdDate as LocalDate), oi.productVariationId, count(distinct o.id), sum(oi.quantity), sum(oi.unitPrice * oi.quantity)) " +
+            "from ArchivedOrderItem oi join ArchivedOrder o on o.id = oi.orderId where o.status <> :status group by cast(o.createdDate as LocalDate), oi.productVariationId")
+    List<VariationSalesRow> findVariationSalesRowsByStatusNot(@Param("status") Status status);
+
+    @Query("select new pedroleonez.fornello.api.repositories.projections.VariationReferenceRow(oi.productVariationId, count(oi)) " +
+            "from ArchivedOrderItem oi group by oi.productVariationId")
+    List<VariationReferenceRow> findVariationReferenceRows();
+
+}
@@ -0,0 +1,110 @@
+package pedroleonez.fornello.api.repositories;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import pedroleonez.fornello.api.entities.ArchivedOrder;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.repositories.projections.OrderCountRow;
+import pedroleonez.fornello.api.repositories.projections.OrderRow;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/*
+archived orders are read into the same OrderRow projection of the hot orders, so they are assembled
+into the same DTOs. the move statements must run together, in the transaction of the archival chunk.
+ */
+@Repository
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+
+    String ARCHIVED_ORDER_ROW_SELECT = "select new pedroleonez.fornello.api.repositories.projections.OrderRow(" +
+            "o.id, o.userId, u.email, o.status, o.paymentMethod, o.amount, o.createdDate, " +
+            "d.id, d.receiverName, d.address, d.number, d.complement, d.district, d.zipCode, d.city, d.state, d.phoneNumber) " +
+            "from ArchivedOrder o left join User u on u.id = o.userId left join ArchivedDeliveryData d on d.orderId = o.id ";
+
+    @Query(ARCHIVED_ORDER_ROW_SELECT + "where o.id = :orderId")
+    Optional<OrderRow> findRowById(@Param("orderId") Long orderId);
+
+    @Query(ARCHIVED_ORDER_ROW_SELECT + "where o.id = :orderId and o.userId = :userId")
+    Optional<OrderRow> findRowByOrderIdAndUserId(@Param("orderId") Long orderId, @Param("userId") Long userId);
+
+    // same keyset condition and order of the hot order cursor queries (see OrderRepository)
+    @Query(ARCHIVED_ORDER_ROW_SELECT + "where " + OrderRepository.AFTER_CURSOR + OrderRepository.CURSOR_ORDER)
+    List<OrderRow> findRowsAfter(@Param("createdDate") LocalDateTime createdDate, @Param("id") Long id, Pageable pageable);
+
+    @Query(ARCHIVED_ORDER_ROW_SELECT + "where o.userId = :userId and " + OrderRepository.AFTER_CURSOR + OrderRepository.CURSOR_ORDER)
+    List<OrderRow> findRowsByUserIdAfter(@Param("userId") Long userId, @Param("createdDate") LocalDateTime createdDate, @Param("id") Long id, Pageable pageable);
+
+    // same export cursor of the hot orders (see OrderRepository)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = OrderRepository.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(ARCHIVED_ORDER_ROW_SELECT + "where o.createdDate >= :createdFrom and o.createdDate < :createdTo and (:status is null or o.status = :status) order by o.id")
+    Stream<OrderRow> streamRowsByCreatedDateBetween(@Param("createdFrom") LocalDateTime createdFrom, @Param("createdTo") LocalDateTime createdTo, @Param("status") Status status);
+
+    /*
+    page queries of the archive, merged with the hot ones by OrderService: the pageable gives the sort and
+    the number of rows read, always from the first one
+     */
+    @Query(ARCHIVED_ORDER_ROW_SELECT)
+    List<OrderRow> findRows(Pageable pageable);
+
+    @Query(ARCHIVED_ORDER_ROW_SELECT + "where o.userId = :userId")
+    List<OrderRow> findRowsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(ARCHIVED_ORDER_ROW_SELECT + "where o.status = :status")
+    List<OrderRow> findRowsByStatus(@Param("status") Status status, Pageable pageable);
+
+    @Query(ARCHIVED_ORDER_ROW_SELECT + "where o.status = :status and o.userId = :userId")
+    List<OrderRow> findRowsByStatusAndUserId(@Param("status") Status status, @Param("userId") Long userId, Pageable pageable);
+
+    @Query("select new pedroleonez.fornello.api.repositories.projections.OrderCountRow(o.userId, o.status, count(o)) " +
+            "from ArchivedOrder o group by o.userId, o.status")
+    List<OrderCountRow> countRowsByUserIdAndStatus();
+
+    boolean existsByUserId(Long userId);
+
+    // copies the orders, their items and delivery data to the archive tables
+    @Modifying
+    @Query("insert into ArchivedOrder (id, userId, status, paymentMethod, amount, createdDate, archivedDate) " +
+            "select o.id, o.user.id, o.status, o.paymentMethod, o.amount, o.createdDate, current_timestamp " +
+            "from Order o where o.id in :orderIds")
+    int copyOrders(@Param("orderIds") Collection<Long> orderIds);
+
+    @Modifying
+    @Query("insert into ArchivedOrderItem (id, orderId, productVariationId, quantity, productName, sizeName, unitPrice, category) " +
+            "select oi.id, oi.order.id, oi.productVariation.id, oi.quantity, oi.productName, oi.sizeName, oi.unitPrice, oi.category " +
+            "from OrderItem oi where oi.order.id in :orderIds")
+    int copyOrderItems(@Param("orderIds") Collection<Long> orderIds);
+
+    @Modifying
+    @Query("insert into ArchivedDeliveryData (id, orderId, receiverName, address, number, complement, district, zipCode, city, state, phoneNumber) " +
+            "select d.id, d.order.id, d.receiverName, d.address, d.number, d.complement, d.district, d.zipCode, d.city, d.state, d.phoneNumber " +
+            "from DeliveryData d where d.order.id in :orderIds")
+    int copyDeliveryData(@Param("orderIds") Collection<Long> orderIds);
+
+    // then removes them from the hot tables, children first
+    @Modifying
+    @Query("delete from OrderItem oi where oi.order.id in :orderIds")
+    int deleteOrderItems(@Param("orderIds") Collection<Long> orderIds);
+
+    @Modifying
+    @Query("delete from DeliveryData d where d.order.id in :orderIds")
+    int deleteDeliveryData(@Param("orderIds") Collection<Long> orderIds);
+
+    @Modifying
+    @Query("delete from Order o where o.id in :orderIds")
+    int deleteOrders(@Param("orderIds") Collection<Long> orderIds);
+
+}
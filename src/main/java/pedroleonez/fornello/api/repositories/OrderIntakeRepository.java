@@ -0,0 +1,39 @@
+package pedroleonez.fornello.api.repositories;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import pedroleonez.fornello.api.entities.OrderIntake;
+import pedroleonez.fornello.api.enums.IntakeStatus;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderIntakeRepository extends JpaRepository<OrderIntake, String> {
+
+    // oldest intakes first
+    @Query("select i.id from OrderIntake i where i.status = :status order by i.createdDate, i.id")
+    List<String> findIdsByStatus(@Param("status") IntakeStatus status, Pageable pageable);
+
+    // locks the intakes still in the status, so an intake is claimed by a single transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select i from OrderIntake i where i.id in :intakeIds and i.status = :status order by i.createdDate, i.id")
+    List<OrderIntake> findByIdInAndStatusForUpdate(@Param("intakeIds") Collection<String> intakeIds, @Param("status") IntakeStatus status);
+
+    long countByStatus(IntakeStatus status);
+
+    // intakes in the status are never removed
+    @Modifying
+    @Transactional
+    @Query("delete from OrderIntake i where i.status <> :status and i.completedDate < :completedBefore")
+    int deleteByStatusNotAndCompletedDateBefore(@Param("status") IntakeStatus status, @Param("completedBefore") LocalDateTime completedBefore);
+
+}
@@ -5,18 +5,46 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import pedroleonez.fornello.api.entities.OrderItem;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.repositories.projections.CategorySalesRow;
+import pedroleonez.fornello.api.repositories.projections.OrderItemRow;
+import pedroleonez.fornello.api.repositories.projections.PaymentMethodSalesRow;
+import pedroleonez.fornello.api.repositories.projections.VariationReferenceRow;
+import pedroleonez.fornello.api.repositories.projections.VariationSalesRow;
 
-import java.util.Optional;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
 
-    @Query(nativeQuery = true, value = "select oi.* from order_items oi where oi.product_variation_id = :productVariationId limit 1")
-    Optional<OrderItem> findFirstByProductVariationId(@Param("productVariationId") Long productVariationId);
+    @Query("select new pedroleonez.fornello.api.repositories.projections.OrderItemRow(" +
+            "oi.order.id, oi.id, oi.productVariation.id, oi.productName, oi.sizeName, oi.category, oi.unitPrice, oi.quantity) " +
+            "from OrderItem oi where oi.order.id in :orderIds order by oi.id")
+    List<OrderItemRow> findRowsByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
 
-    @Query(nativeQuery = true, value = "select oi.* from order_items oi " +
-            "join product_variations pv on oi.product_variation_id = pv.id " +
-            "join products p on p.id = pv.product_id where p.id = :productId limit 1\n")
-    Optional<OrderItem> findFirstByProductId(@Param("productId") Long productId);
+    // for a single order: hibernate can't cache the translation of a query with a multi-valued parameter
+    @Query("select new pedroleonez.fornello.api.repositories.projections.OrderItemRow(" +
+            "oi.order.id, oi.id, oi.productVariation.id, oi.productName, oi.sizeName, oi.category, oi.unitPrice, oi.quantity) " +
+            "from OrderItem oi where oi.order.id = :orderId order by oi.id")
+    List<OrderItemRow> findRowsByOrderId(@Param("orderId") Long orderId);
+
+    // sales of the orders not in the given status, grouped by the day they were created; read only to rebuild the SalesRollups
+    @Query("select new pedroleonez.fornello.api.repositories.projections.PaymentMethodSalesRow(cast(o.createdDate as LocalDate), o.paymentMethod, count(distinct o.id), sum(oi.quantity), sum(oi.unitPrice * oi.quantity)) " +
+            "from OrderItem oi join oi.order o where o.status <> :status group by cast(o.createdDate as LocalDate), o.paymentMethod")
+    List<PaymentMethodSalesRow> findPaymentMethodSalesRowsByStatusNot(@Param("status") Status status);
+
+    @Query("select new pedroleonez.fornello.api.repositories.projections.CategorySalesRow(cast(o.createdDate as LocalDate), oi.category, count(distinct o.id), sum(oi.quantity), sum(oi.unitPrice * oi.quantity)) " +
+            "from OrderItem oi join oi.order o where o.status <> :status and oi.category is not null group by cast(o.createdDate as LocalDate), oi.category")
+    List<CategorySalesRow> findCategorySalesRowsByStatusNot(@Param("status") Status status);
+
+    @Query("select new pedroleonez.fornello.api.repositories.projections.VariationSalesRow(cast(o.createdDate as LocalDate), oi.productVariation.id, count(distinct o.id), sum(oi.quantity), sum(oi.unitPrice * oi.quantity)) " +
+            "from OrderItem oi join oi.order o where o.status <> :status group by cast(o.createdDate as LocalDate), oi.productVariation.id")
+    List<VariationSalesRow> findVariationSalesRowsByStatusNot(@Param("status") Status status);
+
+    // read only to rebuild the VariationReferenceIndex
+    @Query("select new pedroleonez.fornello.api.repositories.projections.VariationReferenceRow(oi.productVariation.id, count(oi)) " +
+            "from OrderItem oi group by oi.productVariation.id")
+    List<VariationReferenceRow> findVariationReferenceRows();
 
 }
@@ -1,31 +1,142 @@
 package pedroleonez.fornello.api.repositories;
 
-import org.springframework.data.domain.Page;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import pedroleonez.fornello.api.entities.Order;
 import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.repositories.projections.OrderCountRow;
+import pedroleonez.fornello.api.repositories.projections.OrderRow;
+import pedroleonez.fornello.api.repositories.projections.OrderStatusRow;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+/*
+the read-only order queries return flat OrderRow projections (order, user and delivery data in one row)
+instead of managed entities, so nothing is tracked by the persistence context. the items and the user
+roles of the rows are read afterwards with one query each (see OrderDtoAssembler).
+ */
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
-    @Query("select o from Order o where o.id = :orderId and o.user.id = :userId")
-    Optional<Order> findByOrderIdAndUserId(@Param("orderId") Long orderId, @Param("userId") Long userId);
+    String ORDER_ROW_SELECT = "select new pedroleonez.fornello.api.repositories.projections.OrderRow(" +
+            "o.id, u.id, u.email, o.status, o.paymentMethod, o.amount, o.createdDate, " +
+            "d.id, d.receiverName, d.address, d.number, d.complement, d.district, d.zipCode, d.city, d.state, d.phoneNumber) " +
+            "from Order o join o.user u left join o.deliveryData d ";
 
-    @Query("select o from Order o where o.user.id = :userId")
-    Page<Order> findAllByUserId(@Param("userId") Long userId, Pageable pageable);
+    /*
+    keyset condition: rows right after the last (createdDate, id) returned, in createdDate DESC, id ASC order.
+    the createdDate bound is redundant, but it gives the index a range to seek to (the "or" alone doesn't)
+     */
+    String AFTER_CURSOR = "o.createdDate <= :createdDate and (o.createdDate < :createdDate or o.id > :id) ";
 
-    @Query("select o from Order o where o.status = :status and o.user.id = :userId")
-    Page<Order> findOrderByStatusAndUser(@Param("status") Status status, @Param("userId") Long userId, Pageable pageable);
+    String CURSOR_ORDER = "order by o.createdDate desc, o.id asc";
 
-    Page<Order> findByStatus(Status statusName, Pageable pageable);
+    // rows fetched from the database at a time by the export cursors
+    String EXPORT_FETCH_SIZE = "500";
 
-    Page<Order> findAll(Pageable pageable);
+    @Query(ORDER_ROW_SELECT + "where o.id = :orderId")
+    Optional<OrderRow> findRowById(@Param("orderId") Long orderId);
+
+    @Query(ORDER_ROW_SELECT + "where o.id = :orderId and u.id = :userId")
+    Optional<OrderRow> findRowByOrderIdAndUserId(@Param("orderId") Long orderId, @Param("userId") Long userId);
+
+    @Query(ORDER_ROW_SELECT + "where o.id in :orderIds")
+    List<OrderRow> findRowsByIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    @Query(ORDER_ROW_SELECT + "where o.status in :statuses order by o.createdDate asc, o.id asc")
+    List<OrderRow> findRowsByStatusIn(@Param("statuses") Collection<Status> statuses);
+
+    /*
+    the page queries read one row more than the page size to know if there is a next page, without a count.
+    the totals of the order pages are served by OrderCounts
+     */
+    @Query(ORDER_ROW_SELECT)
+    Slice<OrderRow> findAllRows(Pageable pageable);
+
+    @Query(ORDER_ROW_SELECT + "where u.id = :userId")
+    Slice<OrderRow> findRowsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(ORDER_ROW_SELECT + "where o.status = :status")
+    Slice<OrderRow> findRowsByStatus(@Param("status") Status status, Pageable pageable);
+
+    @Query(ORDER_ROW_SELECT + "where o.status = :status and u.id = :userId")
+    Slice<OrderRow> findRowsByStatusAndUserId(@Param("status") Status status, @Param("userId") Long userId, Pageable pageable);
+
+    /*
+    keyset (cursor) pagination: each query seeks past the last (createdDate, id) returned, so deep pages
+    cost the same as the first one and no count is needed. the pageable only limits the number of rows.
+     */
+    @Query(ORDER_ROW_SELECT + "where " + AFTER_CURSOR + CURSOR_ORDER)
+    List<OrderRow> findRowsAfter(@Param("createdDate") LocalDateTime createdDate, @Param("id") Long id, Pageable pageable);
+
+    @Query(ORDER_ROW_SELECT + "where u.id = :userId and " + AFTER_CURSOR + CURSOR_ORDER)
+    List<OrderRow> findRowsByUserIdAfter(@Param("userId") Long userId, @Param("createdDate") LocalDateTime createdDate, @Param("id") Long id, Pageable pageable);
+
+    @Query(ORDER_ROW_SELECT + "where o.status = :status and " + AFTER_CURSOR + CURSOR_ORDER)
+    List<OrderRow> findRowsByStatusAfter(@Param("status") Status status, @Param("createdDate") LocalDateTime createdDate, @Param("id") Long id, Pageable pageable);
+
+    @Query(ORDER_ROW_SELECT + "where o.status = :status and u.id = :userId and " + AFTER_CURSOR + CURSOR_ORDER)
+    List<OrderRow> findRowsByStatusAndUserIdAfter(@Param("status") Status status, @Param("userId") Long userId, @Param("createdDate") LocalDateTime createdDate, @Param("id") Long id, Pageable pageable);
+
+    /*
+    forward-only cursor over the orders created in [createdFrom, createdTo), of every status when it is null.
+    it must be consumed and closed inside a transaction, and the rows are fetched in blocks as it advances
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(ORDER_ROW_SELECT + "where o.createdDate >= :createdFrom and o.createdDate < :createdTo and (:status is null or o.status = :status) order by o.id")
+    Stream<OrderRow> streamRowsByCreatedDateBetween(@Param("createdFrom") LocalDateTime createdFrom, @Param("createdTo") LocalDateTime createdTo, @Param("status") Status status);
+
+    // oldest terminal orders first, for the archival job
+    @Query("select o.id from Order o where o.status in :statuses and o.createdDate < :createdDate order by o.id")
+    List<Long> findIdsByStatusInAndCreatedDateBefore(@Param("statuses") Collection<Status> statuses, @Param("createdDate") LocalDateTime createdDate, Pageable pageable);
+
+    @Query("select new pedroleonez.fornello.api.repositories.projections.OrderCountRow(o.user.id, o.status, count(o)) " +
+            "from Order o group by o.user.id, o.status")
+    List<OrderCountRow> countRowsByUserIdAndStatus();
+
+    @Query("select o.status from Order o where o.id = :orderId")
+    Optional<Status> findStatusById(@Param("orderId") Long orderId);
+
+    @Query("select new pedroleonez.fornello.api.repositories.projections.OrderStatusRow(o.id, o.status) from Order o where o.id in :orderIds")
+    List<OrderStatusRow> findStatusRowsByIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    // locks the rows until the end of the transaction, always in id order so concurrent callers can't deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select new pedroleonez.fornello.api.repositories.projections.OrderStatusRow(o.id, o.status) from Order o where o.id in :orderIds order by o.id")
+    List<OrderStatusRow> findStatusRowsByIdInForUpdate(@Param("orderIds") Collection<Long> orderIds);
+
+    /*
+    compare-and-set: changes the status only if it is still the expected one, returning the number of rows changed.
+    the version is incremented as well, so entity updates made concurrently fail their optimistic lock
+     */
+    @Modifying
+    @Transactional
+    @Query("update Order o set o.status = :newStatus, o.version = o.version + 1 where o.id = :orderId and o.status = :expectedStatus")
+    int updateStatus(@Param("orderId") Long orderId, @Param("expectedStatus") Status expectedStatus, @Param("newStatus") Status newStatus);
+
+    // set-based compare-and-set, for orders that were all read with the same expected status
+    @Modifying
+    @Transactional
+    @Query("update Order o set o.status = :newStatus, o.version = o.version + 1 where o.id in :orderIds and o.status = :expectedStatus")
+    int updateStatusIn(@Param("orderIds") Collection<Long> orderIds, @Param("expectedStatus") Status expectedStatus, @Param("newStatus") Status newStatus);
 
     @Query(nativeQuery = true, value = "select o.* from orders o join users u on o.user_id = u.id where u.id = :userId limit 1")
     Optional<Order> findFirstByUserId(@Param("userId") Long userId);
@@ -1,7 +1,14 @@
 package pedroleonez.fornello.api.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import pedroleonez.fornello.api.entities.Product;
 
+import java.util.List;
+
 public interface ProductRepository extends JpaRepository<Product, Long> {
+
+    // every product with its variations in one query, to build the catalog snapshot
+    @Query("select distinct p from Product p left join fetch p.productVariations order by p.id")
+    List<Product> findAllWithVariations();
 }
@@ -5,10 +5,18 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import pedroleonez.fornello.api.entities.ProductVariation;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ProductVariationRepository extends JpaRepository<ProductVariation, Long> {
 
     @Query("select pv from ProductVariation pv where pv.product.id = :productId and pv.id = :productVariationId")
     Optional<ProductVariation> findByProductIdAndProductVariationId(@Param("productId") Long productId, @Param("productVariationId") Long productVariationId);
+
+    @Query("select pv.id from ProductVariation pv where pv.product.id = :productId")
+    List<Long> findIdsByProductId(@Param("productId") Long productId);
+
+    @Query("select pv from ProductVariation pv join fetch pv.product where pv.id in :productVariationIds")
+    List<ProductVariation> findAllWithProductByIdIn(@Param("productVariationIds") Collection<Long> productVariationIds);
 }
@@ -2,10 +2,16 @@ package pedroleonez.fornello.api.repositories;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.repositories.projections.UserRoleRow;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,4 +21,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Page<User> findAll(Pageable pageable);
 
+    // reads one row more than the page size instead of counting the users
+    Slice<User> findAllBy(Pageable pageable);
+
+    @Query("select new pedroleonez.fornello.api.repositories.projections.UserRoleRow(u.id, r.id, r.name) " +
+            "from User u join u.roles r where u.id in :userIds")
+    List<UserRoleRow> findRoleRowsByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    @Query("select new pedroleonez.fornello.api.repositories.projections.UserRoleRow(u.id, r.id, r.name) " +
+            "from User u join u.roles r where u.id = :userId")
+    List<UserRoleRow> findRoleRowsByUserId(@Param("userId") Long userId);
+
 }
@@ -0,0 +1,22 @@
+package pedroleonez.fornello.api.repositories.projections;
+
+import pedroleonez.fornello.api.enums.Category;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// orders, items and revenue of a day, per category
+public record CategorySalesRow(
+
+        LocalDate date,
+
+        Category category,
+
+        Long orders,
+
+        Long items,
+
+        BigDecimal revenue
+
+) {
+}
@@ -0,0 +1,15 @@
+package pedroleonez.fornello.api.repositories.projections;
+
+import pedroleonez.fornello.api.enums.Status;
+
+// number of orders of a user in a status
+public record OrderCountRow(
+
+        Long userId,
+
+        Status status,
+
+        Long count
+
+) {
+}
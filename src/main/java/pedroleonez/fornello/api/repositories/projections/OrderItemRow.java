@@ -0,0 +1,27 @@
+package pedroleonez.fornello.api.repositories.projections;
+
+import pedroleonez.fornello.api.enums.Category;
+
+import java.math.BigDecimal;
+
+// flat row with an order item and the snapshot of its product variation, read without touching the catalog
+public record OrderItemRow(
+
+        Long orderId,
+
+        Long id,
+
+        Long productVariationId,
+
+        String productName,
+
+        String sizeName,
+
+        Category category,
+
+        BigDecimal unitPrice,
+
+        Integer quantity
+
+) {
+}
@@ -0,0 +1,47 @@
+package pedroleonez.fornello.api.repositories.projections;
+
+import pedroleonez.fornello.api.enums.PaymentMethod;
+import pedroleonez.fornello.api.enums.Status;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// flat row with an order, its user and its delivery data, read without loading entities
+public record OrderRow(
+
+        Long id,
+
+        Long userId,
+
+        String userEmail,
+
+        Status status,
+
+        PaymentMethod paymentMethod,
+
+        BigDecimal amount,
+
+        LocalDateTime createdDate,
+
+        Long deliveryDataId,
+
+        String receiverName,
+
+        String address,
+
+        String number,
+
+        String complement,
+
+        String district,
+
+        String zipCode,
+
+        String city,
+
+        String state,
+
+        String phoneNumber
+
+) {
+}
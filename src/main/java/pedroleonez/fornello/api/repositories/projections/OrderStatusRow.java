@@ -0,0 +1,13 @@
+package pedroleonez.fornello.api.repositories.projections;
+
+import pedroleonez.fornello.api.enums.Status;
+
+// id and status of an order, read without loading the entity
+public record OrderStatusRow(
+
+        Long id,
+
+        Status status
+
+) {
+}
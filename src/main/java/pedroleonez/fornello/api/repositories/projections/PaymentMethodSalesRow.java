@@ -0,0 +1,22 @@
+package pedroleonez.fornello.api.repositories.projections;
+
+import pedroleonez.fornello.api.enums.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// orders, items and revenue of a day, per payment method
+public record PaymentMethodSalesRow(
+
+        LocalDate date,
+
+        PaymentMethod paymentMethod,
+
+        Long orders,
+
+        Long items,
+
+        BigDecimal revenue
+
+) {
+}
@@ -0,0 +1,15 @@
+package pedroleonez.fornello.api.repositories.projections;
+
+import pedroleonez.fornello.api.enums.RoleName;
+
+// flat row with a role of a user, read without loading entities
+public record UserRoleRow(
+
+        Long userId,
+
+        Long roleId,
+
+        RoleName roleName
+
+) {
+}
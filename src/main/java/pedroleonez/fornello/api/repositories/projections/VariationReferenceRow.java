@@ -0,0 +1,11 @@
+package pedroleonez.fornello.api.repositories.projections;
+
+// number of order items referencing a product variation
+public record VariationReferenceRow(
+
+        Long productVariationId,
+
+        Long count
+
+) {
+}
@@ -0,0 +1,20 @@
+package pedroleonez.fornello.api.repositories.projections;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// orders, items and revenue of a day, per product variation
+public record VariationSalesRow(
+
+        LocalDate date,
+
+        Long productVariationId,
+
+        Long orders,
+
+        Long items,
+
+        BigDecimal revenue
+
+) {
+}
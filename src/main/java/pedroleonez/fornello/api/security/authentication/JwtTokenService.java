@@ -1,15 +1,28 @@
 package pedroleonez.fornello.api.security.authentication;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTCreationException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.Claim;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import pedroleonez.fornello.api.cache.ConcurrentExpiringCache;
+import pedroleonez.fornello.api.enums.RoleName;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
 import pedroleonez.fornello.api.security.userdetails.UserDetailsImpl;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.EnumSet;
+import java.util.Set;
 
 @Service
 public class JwtTokenService {
@@ -18,41 +31,127 @@ public class JwtTokenService {
 
     private static final String ISSUER = "fornello-api";
 
+    private static final ZoneId ZONE_ID = ZoneId.of("America/Recife");
+
+    public static final Duration TOKEN_LIFETIME = Duration.ofHours(4);
+
+    private static final String USER_ID_CLAIM = "uid";
+
+    private static final String ROLES_CLAIM = "roles";
+
+    // defines the HMAC SHA256 algorithm to create and verify the token signature using the defined secret key
+    private final Algorithm algorithm = Algorithm.HMAC256(SECRET_KEY);
+
+    // the verifier is immutable and thread-safe, so it is built once and shared by every request
+    private final JWTVerifier verifier = JWT.require(algorithm)
+            .withIssuer(ISSUER) // defines the token issuer
+            .build();
+
+    /*
+    tokens that already passed verification, kept until the token expires. they are keyed by the signature
+    segment, which already identifies the token without hashing it again; a hit is only served to the exact
+    token that was verified, so a different header or payload with a copied signature is verified as usual.
+     */
+    private final ConcurrentExpiringCache<String, DecodedJWT> verifiedTokens;
+
+    /*
+    in stateless mode the token also carries the user id and roles, so requests can be authenticated
+    without searching the user in the database
+     */
+    private final boolean stateless;
+
+    private final TokenRevocationList tokenRevocationList;
+
+    public JwtTokenService(@Value("${fornello.security.token-cache.max-size:10000}") int tokenCacheMaxSize,
+                           @Value("${fornello.security.jwt.stateless:false}") boolean stateless,
+                           TokenRevocationList tokenRevocationList,
+                           MeterRegistry meterRegistry) {
+        this.stateless = stateless;
+        this.tokenRevocationList = tokenRevocationList;
+        this.verifiedTokens = new ConcurrentExpiringCache<>("verified-tokens", tokenCacheMaxSize);
+        this.verifiedTokens.bindTo(meterRegistry);
+    }
+
     public String generateToken(UserDetailsImpl user) {
         try {
-            // defines the HMAC SHA256 algorithm to create the token signature using the defined secret key
-            Algorithm algorithm = Algorithm.HMAC256(SECRET_KEY);
-            return JWT.create()
+            ZonedDateTime now = ZonedDateTime.now(ZONE_ID);
+            JWTCreator.Builder builder = JWT.create()
                     .withIssuer(ISSUER) // defines the token issuer
-                    .withIssuedAt(creationDate()) // sets the token issue date
-                    .withExpiresAt(expirationDate()) // sets the token expiration date
-                    .withSubject(user.getUsername()) // sets the token subject (in this case, the username)
-                    .sign(algorithm); // signs the token using the specified algorithm
+                    .withIssuedAt(now.toInstant()) // sets the token issue date
+                    .withExpiresAt(now.plus(TOKEN_LIFETIME).toInstant()) // sets the token expiration date
+                    .withSubject(user.getUsername()); // sets the token subject (in this case, the username)
+            if (stateless) {
+                // embeds the user id and roles so the token is enough to authenticate the user
+                builder.withClaim(USER_ID_CLAIM, user.getUser().getId())
+                        .withClaim(ROLES_CLAIM, user.getUser().getRoles().stream().map(role -> role.getName().name()).toList());
+            }
+            return builder.sign(algorithm); // signs the token using the specified algorithm
         } catch (JWTCreationException exception){
             throw new JWTCreationException("Erro ao gerar token.", exception);
         }
     }
 
     public String getSubjectFromToken(String token) {
+        // retrieves the subject (in this case, the username) from the token
+        return verifyToken(token).getSubject();
+    }
+
+    public DecodedJWT verifyToken(String token) {
+        int signatureStart = token.lastIndexOf('.') + 1;
+        String signature = token.substring(signatureStart);
+
+        // a token that was verified before is served from the cache until its expiration date
+        DecodedJWT cachedToken = verifiedTokens.get(signature);
+        if (cachedToken != null && isSameToken(cachedToken, token, signatureStart)) {
+            return cachedToken;
+        }
+
         try {
-            // defines the HMAC SHA256 algorithm to verify the token signature using the defined secret key
-            Algorithm algorithm = Algorithm.HMAC256(SECRET_KEY);
-            return JWT.require(algorithm)
-                    .withIssuer(ISSUER) // defines the token issuer
-                    .build()
-                    .verify(token) // verifies the token validity
-                    .getSubject(); // retrieves the subject (in this case, the username) from the token
+            DecodedJWT decodedToken = verifier.verify(token); // verifies the token validity
+            Instant expiresAt = decodedToken.getExpiresAtAsInstant();
+            if (expiresAt != null) {
+                verifiedTokens.put(signature, decodedToken, expiresAt);
+            }
+            return decodedToken;
         } catch (JWTVerificationException exception){
             throw new JWTVerificationException("Token inválido ou expirado.");
         }
     }
 
-    private Instant creationDate() {
-        return ZonedDateTime.now(ZoneId.of("America/Recife")).toInstant();
+    // the signature already matched through the cache key; getToken() would rebuild the whole string on every call
+    private static boolean isSameToken(DecodedJWT cachedToken, String token, int signatureStart) {
+        String header = cachedToken.getHeader();
+        String payload = cachedToken.getPayload();
+        return header.length() + payload.length() + 2 == signatureStart
+                && token.startsWith(header)
+                && token.startsWith(payload, header.length() + 1);
+    }
+
+    /*
+    builds the principal straight from the token claims when running in stateless mode,
+    returns null when the token doesn't carry them and the user must be searched in the database
+     */
+    public AuthenticatedUser getAuthenticatedUserFromToken(DecodedJWT decodedToken) {
+        Claim userIdClaim = decodedToken.getClaim(USER_ID_CLAIM);
+        Claim rolesClaim = decodedToken.getClaim(ROLES_CLAIM);
+        if (!stateless || userIdClaim.isMissing() || rolesClaim.isMissing()) {
+            return null;
+        }
+
+        Long userId = userIdClaim.asLong();
+        if (tokenRevocationList.isRevoked(userId, decodedToken.getIssuedAtAsInstant())) {
+            throw new JWTVerificationException("Token inválido ou expirado.");
+        }
+
+        Set<RoleName> roles = EnumSet.noneOf(RoleName.class);
+        rolesClaim.asList(String.class).forEach(roleName -> roles.add(RoleName.valueOf(roleName)));
+        return new AuthenticatedUser(userId, decodedToken.getSubject(), Set.copyOf(roles));
     }
 
-    private Instant expirationDate() {
-        return ZonedDateTime.now(ZoneId.of("America/Recife")).plusHours(4).toInstant();
+    // periodically drops expired tokens so they don't hold memory until they are evicted by size
+    @Scheduled(fixedDelayString = "${fornello.security.token-cache.sweep-interval-ms:60000}")
+    public void removeExpiredTokens() {
+        verifiedTokens.removeExpired();
     }
 
 }
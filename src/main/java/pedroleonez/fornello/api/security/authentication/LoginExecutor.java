@@ -0,0 +1,104 @@
+package pedroleonez.fornello.api.security.authentication;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pedroleonez.fornello.api.exceptions.LoginCapacityExceededException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+runs the password checks (BCrypt) on a bounded pool, separated from the web server threads,
+so a login storm can't take the CPU from the catalog and order endpoints.
+a login is rejected right away instead of waiting when the queue is full, or when the checks ahead of it,
+at the mean duration measured so far, would already take longer than the timeout. the saturation is
+measured before submitting because a check can't be stopped once it started: BCrypt ignores interrupts.
+ */
+@Component
+public class LoginExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final int poolSize;
+    private final Timer passwordCheckTimer;
+    private final long timeoutMillis;
+
+    public LoginExecutor(@Value("${fornello.security.login.pool-size:2}") int poolSize,
+                         @Value("${fornello.security.login.queue-capacity:64}") int queueCapacity,
+                         @Value("${fornello.security.login.timeout-ms:5000}") long timeoutMillis,
+                         MeterRegistry meterRegistry) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "login-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.poolSize = poolSize;
+        this.timeoutMillis = timeoutMillis;
+        this.passwordCheckTimer = Timer.builder("fornello.login.password.check")
+                .description("Time spent checking the password of a login")
+                .register(meterRegistry);
+        Gauge.builder("fornello.login.queue.size", executor, pool -> pool.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("fornello.login.active.threads", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    public <T> T execute(Callable<T> passwordCheck) {
+        if (expectedCompletionMillis() > timeoutMillis) {
+            throw new LoginCapacityExceededException();
+        }
+
+        Future<T> future;
+        try {
+            future = executor.submit(() -> passwordCheckTimer.recordCallable(passwordCheck));
+        } catch (RejectedExecutionException exception) {
+            throw new LoginCapacityExceededException();
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException exception) {
+            // rethrows the original exception, so authentication errors keep their type
+            if (exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (exception.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(exception.getCause());
+        } catch (TimeoutException exception) {
+            // only drops a check still in the queue: one that already started runs its hash to completion
+            future.cancel(false);
+            throw new LoginCapacityExceededException();
+        } catch (InterruptedException exception) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new LoginCapacityExceededException();
+        }
+    }
+
+    // the checks queued or running are spread over the pool, then this one runs. 0 before the first check
+    private double expectedCompletionMillis() {
+        int checksAhead = executor.getQueue().size() + executor.getActiveCount();
+        return (checksAhead / (double) poolSize + 1) * passwordCheckTimer.mean(TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
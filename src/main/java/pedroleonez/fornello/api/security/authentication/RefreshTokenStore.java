@@ -0,0 +1,104 @@
+package pedroleonez.fornello.api.security.authentication;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pedroleonez.fornello.api.exceptions.InvalidRefreshTokenException;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/*
+stores the refresh tokens issued on login. only the token digest is kept, every token can be used once
+(it is rotated on each refresh) and the tokens of a user can be revoked all at once.
+ */
+@Component
+public class RefreshTokenStore {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final Duration timeToLive;
+    private final int maxTokensPerUser;
+
+    private final Map<String, RefreshToken> tokensByDigest = new HashMap<>();
+    private final Map<Long, LinkedHashSet<String>> digestsByUserId = new HashMap<>();
+
+    public RefreshTokenStore(@Value("${fornello.security.refresh-token.ttl-hours:336}") long timeToLiveHours,
+                             @Value("${fornello.security.refresh-token.max-per-user:10}") int maxTokensPerUser) {
+        this.timeToLive = Duration.ofHours(timeToLiveHours);
+        this.maxTokensPerUser = maxTokensPerUser;
+    }
+
+    // creates a new refresh token for the user, dropping its oldest one when the user has too many
+    public synchronized String issue(Long userId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        String digest = TokenDigest.of(token);
+
+        tokensByDigest.put(digest, new RefreshToken(userId, Instant.now().plus(timeToLive)));
+        LinkedHashSet<String> userDigests = digestsByUserId.computeIfAbsent(userId, id -> new LinkedHashSet<>());
+        userDigests.add(digest);
+        while (userDigests.size() > maxTokensPerUser) {
+            String oldestDigest = userDigests.iterator().next();
+            userDigests.remove(oldestDigest);
+            tokensByDigest.remove(oldestDigest);
+        }
+        return token;
+    }
+
+    // consumes the refresh token, returning the id of its user, so the same token can't be used twice
+    public synchronized Long consume(String token) {
+        String digest = TokenDigest.of(token);
+        RefreshToken refreshToken = tokensByDigest.remove(digest);
+        if (refreshToken == null) {
+            throw new InvalidRefreshTokenException();
+        }
+        removeUserDigest(refreshToken.userId(), digest);
+        if (!Instant.now().isBefore(refreshToken.expiresAt())) {
+            throw new InvalidRefreshTokenException();
+        }
+        return refreshToken.userId();
+    }
+
+    public synchronized void revokeUser(Long userId) {
+        Set<String> userDigests = digestsByUserId.remove(userId);
+        if (userDigests != null) {
+            userDigests.forEach(tokensByDigest::remove);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${fornello.security.refresh-token.sweep-interval-ms:600000}")
+    public synchronized void removeExpiredTokens() {
+        Instant now = Instant.now();
+        Iterator<Map.Entry<String, RefreshToken>> iterator = tokensByDigest.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, RefreshToken> entry = iterator.next();
+            if (!now.isBefore(entry.getValue().expiresAt())) {
+                iterator.remove();
+                removeUserDigest(entry.getValue().userId(), entry.getKey());
+            }
+        }
+    }
+
+    private void removeUserDigest(Long userId, String digest) {
+        Set<String> userDigests = digestsByUserId.get(userId);
+        if (userDigests != null) {
+            userDigests.remove(digest);
+            if (userDigests.isEmpty()) {
+                digestsByUserId.remove(userId);
+            }
+        }
+    }
+
+    private record RefreshToken(Long userId, Instant expiresAt) {
+    }
+}
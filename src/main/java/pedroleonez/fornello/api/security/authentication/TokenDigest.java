@@ -0,0 +1,22 @@
+package pedroleonez.fornello.api.security.authentication;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// SHA-256 digest of a token, used to key stored tokens without keeping the tokens themselves
+final class TokenDigest {
+
+    private TokenDigest() {
+    }
+
+    static String of(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 algorithm not available.", exception);
+        }
+    }
+}
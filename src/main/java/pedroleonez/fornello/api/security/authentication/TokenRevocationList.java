@@ -0,0 +1,34 @@
+package pedroleonez.fornello.api.security.authentication;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+keeps, for each revoked user, the instant before which its tokens are no longer accepted.
+entries only need to live for one token lifetime, after that every token they reject is already expired.
+ */
+@Component
+public class TokenRevocationList {
+
+    private final Map<Long, Instant> notBeforeByUserId = new ConcurrentHashMap<>();
+
+    // rejects every token issued to the user until now
+    public void revokeUser(Long userId) {
+        notBeforeByUserId.put(userId, Instant.now());
+    }
+
+    public boolean isRevoked(Long userId, Instant issuedAt) {
+        Instant notBefore = notBeforeByUserId.get(userId);
+        return notBefore != null && (issuedAt == null || !issuedAt.isAfter(notBefore));
+    }
+
+    @Scheduled(fixedDelayString = "${fornello.security.revocation.sweep-interval-ms:60000}")
+    public void removeExpiredRevocations() {
+        Instant oldestValidIssueDate = Instant.now().minus(JwtTokenService.TOKEN_LIFETIME);
+        notBeforeByUserId.values().removeIf(notBefore -> notBefore.isBefore(oldestValidIssueDate));
+    }
+}
@@ -2,6 +2,7 @@ package pedroleonez.fornello.api.security.authentication;
 
 import com.auth0.jwt.exceptions.JWTCreationException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.FilterChain;
@@ -14,27 +15,25 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
-import pedroleonez.fornello.api.entities.User;
 import pedroleonez.fornello.api.exceptions.MissingTokenException;
 import pedroleonez.fornello.api.exceptions.model.ApiError;
-import pedroleonez.fornello.api.repositories.UserRepository;
 import pedroleonez.fornello.api.security.config.SecurityConfiguration;
-import pedroleonez.fornello.api.security.userdetails.UserDetailsImpl;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUserCache;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.util.Arrays;
 import java.util.List;
 
 @Component
 public class UserAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenService jwtTokenService;
-    private final UserRepository userRepository;
+    private final AuthenticatedUserCache authenticatedUserCache;
 
-    public UserAuthenticationFilter(JwtTokenService jwtTokenService, UserRepository userRepository) {
+    public UserAuthenticationFilter(JwtTokenService jwtTokenService, AuthenticatedUserCache authenticatedUserCache) {
         this.jwtTokenService = jwtTokenService;
-        this.userRepository = userRepository;
+        this.authenticatedUserCache = authenticatedUserCache;
     }
 
     @Override
@@ -44,13 +43,18 @@ public class UserAuthenticationFilter extends OncePerRequestFilter {
             if (checkIfEndpointIsNotPublic(request)) {
                 String token = recoveryToken(request); // recovers the token from the Authorization header of the request
                 if (token != null) {
-                    String subject = jwtTokenService.getSubjectFromToken(token); // gets the subject (in this case, the username) from the token
-                    User user = userRepository.findByEmail(subject).get(); // searches the user by email (which is the subject of the token)
-                    UserDetailsImpl userDetails = new UserDetailsImpl(user); // creates a UserDetails with the found user
+                    DecodedJWT decodedToken = jwtTokenService.verifyToken(token); // verifies the token validity
 
-                    // creates an authentication object for Spring Security
+                    // in stateless mode the principal is built from the token claims, without database access
+                    AuthenticatedUser authenticatedUser = jwtTokenService.getAuthenticatedUserFromToken(decodedToken);
+                    if (authenticatedUser == null) {
+                        // recovers the principal of the user by email (which is the subject of the token), from the cache when possible
+                        authenticatedUser = authenticatedUserCache.getByEmail(decodedToken.getSubject());
+                    }
+
+                    // creates an authentication object for Spring Security, carrying the principal for the services
                     Authentication authentication =
-                            new UsernamePasswordAuthenticationToken(userDetails.getUsername(), null, userDetails.getAuthorities());
+                            new UsernamePasswordAuthenticationToken(authenticatedUser, null, authenticatedUser.getAuthorities());
 
                     // sets the authentication object in the Spring Security context
                     SecurityContextHolder.getContext().setAuthentication(authentication);
@@ -79,8 +83,7 @@ public class UserAuthenticationFilter extends OncePerRequestFilter {
 
     // checks if the endpoint requires authentication before processing the request
     private boolean checkIfEndpointIsNotPublic(HttpServletRequest request) {
-        String requestURI = request.getRequestURI();
-        return !Arrays.asList(SecurityConfiguration.ENDPOINTS_WITH_AUTHENTICATION_NOT_REQUIRED).contains(requestURI);
+        return !SecurityConfiguration.ROUTES.isPublic(request);
     }
 
     // builds and sends a JSON error response in case of exception
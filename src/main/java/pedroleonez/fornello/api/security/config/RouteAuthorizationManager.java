@@ -0,0 +1,62 @@
+package pedroleonez.fornello.api.security.config;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import pedroleonez.fornello.api.enums.RoleName;
+
+import java.util.function.Supplier;
+
+// authorizes every request with the decision compiled in the route table, denying requests matched by no route
+public class RouteAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final RouteTable routeTable;
+    private final AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+
+    public RouteAuthorizationManager(RouteTable routeTable) {
+        this.routeTable = routeTable;
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        HttpServletRequest request = context.getRequest();
+        // async dispatches (e.g. of the order event stream) continue a request that was already authorized
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return GRANTED;
+        }
+        RouteTable.Access access = routeTable.resolve(request);
+        if (access == null) {
+            return DENIED;
+        }
+        return switch (access) {
+            case PUBLIC -> GRANTED;
+            case AUTHENTICATED -> isAuthenticated(authentication.get()) ? GRANTED : DENIED;
+            case ADMINISTRATOR -> isAdministrator(authentication.get()) ? GRANTED : DENIED;
+        };
+    }
+
+    private boolean isAuthenticated(Authentication authentication) {
+        return authentication != null && !trustResolver.isAnonymous(authentication) && authentication.isAuthenticated();
+    }
+
+    private boolean isAdministrator(Authentication authentication) {
+        if (!isAuthenticated(authentication)) {
+            return false;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (RoleName.ROLE_ADMINISTRATOR.name().equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
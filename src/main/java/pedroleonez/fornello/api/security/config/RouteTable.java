@@ -0,0 +1,200 @@
+package pedroleonez.fornello.api.security.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.util.UrlPathHelper;
+
+/*
+method-aware path trie compiled once from the endpoint arrays of SecurityConfiguration.
+patterns follow the same rules as the Spring MVC matchers: literal segments must match exactly,
+a "{variable}" segment matches any single non-empty segment and, when several rules match,
+the one registered first wins. requests are matched by the same path Spring MVC dispatches on (decoded and
+without ";" parameters), so "/api/orders/%6Bitchen" resolves like "/api/orders/kitchen". resolving a request
+whose path is plain (the usual case) doesn't allocate.
+ */
+public final class RouteTable {
+
+    public enum Access {
+        PUBLIC,
+        AUTHENTICATED,
+        ADMINISTRATOR
+    }
+
+    private static final String[] METHODS = {
+            HttpMethod.GET.name(),
+            HttpMethod.POST.name(),
+            HttpMethod.PUT.name(),
+            HttpMethod.PATCH.name(),
+            HttpMethod.DELETE.name()
+    };
+
+    private final Node root;
+
+    private RouteTable(Node root) {
+        this.root = root;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // returns the access required by the first rule matching the request, or null when no rule matches
+    public Access resolve(HttpServletRequest request) {
+        String requestUri = request.getRequestURI();
+        if (requestUri.indexOf('%') >= 0 || requestUri.indexOf(';') >= 0) {
+            // only encoded paths or paths with parameters are normalized, the raw URI is matched as it is otherwise
+            return resolve(request.getMethod(), UrlPathHelper.defaultInstance.getPathWithinApplication(request), 0);
+        }
+        return resolve(request.getMethod(), requestUri, request.getContextPath().length());
+    }
+
+    public boolean isPublic(HttpServletRequest request) {
+        return resolve(request) == Access.PUBLIC;
+    }
+
+    /*
+    returns the access required by the first rule matching the method and path, or null when no rule matches.
+    the path is read from the given offset, so the context path doesn't need to be cut off.
+     */
+    public Access resolve(String method, String path, int offset) {
+        Rule rule = match(root, methodIndex(method), path, offset);
+        return rule == null ? null : rule.access();
+    }
+
+    private static Rule match(Node node, int methodIndex, String path, int position) {
+        if (position == path.length()) {
+            return node.ruleFor(methodIndex);
+        }
+        if (path.charAt(position) != '/') {
+            return null;
+        }
+
+        int segmentStart = position + 1;
+        int segmentEnd = path.indexOf('/', segmentStart);
+        if (segmentEnd < 0) {
+            segmentEnd = path.length();
+        }
+        int segmentLength = segmentEnd - segmentStart;
+        if (segmentLength == 0) {
+            // empty segments ("//" or a trailing slash) are not matched by any pattern
+            return null;
+        }
+
+        Rule bestRule = null;
+        for (Node child : node.literalChildren) {
+            if (child.segment.length() == segmentLength && path.regionMatches(segmentStart, child.segment, 0, segmentLength)) {
+                bestRule = first(bestRule, match(child, methodIndex, path, segmentEnd));
+            }
+        }
+        if (node.variableChild != null) {
+            bestRule = first(bestRule, match(node.variableChild, methodIndex, path, segmentEnd));
+        }
+        return bestRule;
+    }
+
+    private static Rule first(Rule rule, Rule otherRule) {
+        if (rule == null) {
+            return otherRule;
+        }
+        if (otherRule == null) {
+            return rule;
+        }
+        return rule.order() <= otherRule.order() ? rule : otherRule;
+    }
+
+    private static int methodIndex(String method) {
+        for (int i = 0; i < METHODS.length; i++) {
+            if (METHODS[i].equals(method)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private record Rule(int order, Access access) {
+    }
+
+    private static final class Node {
+
+        private final String segment;
+        private Node[] literalChildren = new Node[0];
+        private Node variableChild;
+        private final Rule[] rulesByMethod = new Rule[METHODS.length];
+        private Rule anyMethodRule;
+
+        private Node(String segment) {
+            this.segment = segment;
+        }
+
+        private Rule ruleFor(int methodIndex) {
+            return methodIndex < 0 ? anyMethodRule : first(anyMethodRule, rulesByMethod[methodIndex]);
+        }
+
+        private Node literalChild(String childSegment) {
+            for (Node child : literalChildren) {
+                if (child.segment.equals(childSegment)) {
+                    return child;
+                }
+            }
+            Node[] children = new Node[literalChildren.length + 1];
+            System.arraycopy(literalChildren, 0, children, 0, literalChildren.length);
+            children[literalChildren.length] = new Node(childSegment);
+            literalChildren = children;
+            return children[literalChildren.length - 1];
+        }
+
+        private Node variableChild() {
+            if (variableChild == null) {
+                variableChild = new Node(null);
+            }
+            return variableChild;
+        }
+    }
+
+    public static final class Builder {
+
+        private final Node root = new Node("");
+        private int nextOrder;
+
+        private Builder() {
+        }
+
+        // registers the patterns for every HTTP method
+        public Builder anyMethod(Access access, String... patterns) {
+            return add(null, access, patterns);
+        }
+
+        public Builder method(HttpMethod method, Access access, String... patterns) {
+            return add(method, access, patterns);
+        }
+
+        public RouteTable build() {
+            return new RouteTable(root);
+        }
+
+        private Builder add(HttpMethod method, Access access, String... patterns) {
+            for (String pattern : patterns) {
+                register(method, pattern, new Rule(nextOrder++, access));
+            }
+            return this;
+        }
+
+        private void register(HttpMethod method, String pattern, Rule rule) {
+            Node node = root;
+            for (String segment : pattern.split("/")) {
+                if (segment.isEmpty()) {
+                    continue;
+                }
+                node = segment.startsWith("{") && segment.endsWith("}") ? node.variableChild() : node.literalChild(segment);
+            }
+
+            // a pattern registered again keeps its first rule, like the first matcher wins in Spring Security
+            if (method == null) {
+                node.anyMethodRule = first(node.anyMethodRule, rule);
+            } else {
+                int index = methodIndex(method.name());
+                node.rulesByMethod[index] = first(node.rulesByMethod[index], rule);
+            }
+        }
+    }
+}
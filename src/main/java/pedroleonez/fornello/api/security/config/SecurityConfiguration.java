@@ -1,5 +1,6 @@
 package pedroleonez.fornello.api.security.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -25,68 +26,87 @@ public class SecurityConfiguration {
         this.userAuthenticationFilter = userAuthenticationFilter;
     }
 
-    private static final String ROLE_ADMINISTRATOR = "ADMINISTRATOR";
-
-    public static final String[] ENDPOINTS_WITH_AUTHENTICATION_NOT_REQUIRED = {
+    static final String[] ENDPOINTS_WITH_AUTHENTICATION_NOT_REQUIRED = {
             "/api/users/login",
+            "/api/users/refresh",
             "/api/users/customers"
     };
 
-    public static final String[] ENDPOINTS_WITH_AUTHENTICATION_REQUIRED_TO_GET_STATUS = {
+    static final String[] ENDPOINTS_WITH_AUTHENTICATION_REQUIRED_TO_GET_STATUS = {
             "/api/products",
             "/api/products/{productId}",
             "/api/products/category/{categoryName}",
             "/api/products/search",
             "/api/orders",
             "/api/orders/{orderId}",
-            "/api/orders/status/{statusName}"
+            "/api/orders/status/{statusName}",
+            "/api/orders/intake/{intakeId}",
+            "/api/orders/events"
     };
 
-    private static final String[] ENDPOINTS_WITH_AUTHENTICATION_REQUIRED_TO_POST_STATUS = {
-            "/api/orders"
+    static final String[] ENDPOINTS_WITH_AUTHENTICATION_REQUIRED_TO_POST_STATUS = {
+            "/api/orders",
+            "/api/orders/batch",
+            "/api/orders/intake"
     };
 
-    private static final String[] ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_GET_STATUS = {
+    static final String[] ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_GET_STATUS = {
             "/api/users",
-            "/api/users/{userId}"
+            "/api/users/{userId}",
+            "/actuator/metrics",
+            "/actuator/metrics/{metricName}",
+            "/api/orders/kitchen",
+            "/api/orders/export",
+            "/api/analytics/sales"
     };
 
-    private static final String[] ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_POST_STATUS = {
+    static final String[] ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_POST_STATUS = {
             "/api/products",
-            "/api/products/{productId}/variation"
+            "/api/products/{productId}/variation",
+            "/api/analytics/sales/rebuild"
     };
 
-    private static final String[] ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_PUT_STATUS = {
+    static final String[] ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_PUT_STATUS = {
             "/api/{productId}/variation/{productVariationId}"
     };
 
-    private static final String[] ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_PATCH_STATUS = {
+    static final String[] ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_PATCH_STATUS = {
             "/api/products/{productId}",
-            "/api/orders/{orderId}/status"
+            "/api/orders/{orderId}/status",
+            "/api/orders/status"
     };
 
-    private static final String[] ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_DELETE_STATUS = {
+    static final String[] ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_DELETE_STATUS = {
             "/api/users/{userId}",
             "/api/products/{productId}",
             "/api/products/{productId}/variation/{productVariationId}",
             "/api/orders/{productId}"
     };
 
+    /*
+    route table compiled once from the arrays above, used both by the authentication filter and to authorize requests.
+    admin-only routes are registered before the authenticated ones, so a specific admin route is never
+    shadowed by a broader authenticated pattern (e.g. "/api/orders/{orderId}").
+     */
+    public static final RouteTable ROUTES = RouteTable.builder()
+            .anyMethod(RouteTable.Access.PUBLIC, ENDPOINTS_WITH_AUTHENTICATION_NOT_REQUIRED)
+            .method(HttpMethod.GET, RouteTable.Access.ADMINISTRATOR, ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_GET_STATUS)
+            .method(HttpMethod.POST, RouteTable.Access.ADMINISTRATOR, ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_POST_STATUS)
+            .method(HttpMethod.PUT, RouteTable.Access.ADMINISTRATOR, ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_PUT_STATUS)
+            .method(HttpMethod.PATCH, RouteTable.Access.ADMINISTRATOR, ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_PATCH_STATUS)
+            .method(HttpMethod.DELETE, RouteTable.Access.ADMINISTRATOR, ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_DELETE_STATUS)
+            .method(HttpMethod.GET, RouteTable.Access.AUTHENTICATED, ENDPOINTS_WITH_AUTHENTICATION_REQUIRED_TO_GET_STATUS)
+            .method(HttpMethod.POST, RouteTable.Access.AUTHENTICATED, ENDPOINTS_WITH_AUTHENTICATION_REQUIRED_TO_POST_STATUS)
+            .build();
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                // every request is authorized by the route table, requests matched by no route are denied
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers(ENDPOINTS_WITH_AUTHENTICATION_NOT_REQUIRED).permitAll()
-                        .requestMatchers(HttpMethod.GET, ENDPOINTS_WITH_AUTHENTICATION_REQUIRED_TO_GET_STATUS).authenticated()
-                        .requestMatchers(HttpMethod.POST, ENDPOINTS_WITH_AUTHENTICATION_REQUIRED_TO_POST_STATUS).authenticated()
-                        .requestMatchers(HttpMethod.GET, ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_GET_STATUS).hasRole(ROLE_ADMINISTRATOR)
-                        .requestMatchers(HttpMethod.POST, ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_POST_STATUS).hasRole(ROLE_ADMINISTRATOR)
-                        .requestMatchers(HttpMethod.PUT, ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_PUT_STATUS).hasRole(ROLE_ADMINISTRATOR)
-                        .requestMatchers(HttpMethod.PATCH, ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_PATCH_STATUS).hasRole(ROLE_ADMINISTRATOR)
-                        .requestMatchers(HttpMethod.DELETE, ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_DELETE_STATUS).hasRole(ROLE_ADMINISTRATOR)
-                        .anyRequest().denyAll()
+                        .anyRequest().access(new RouteAuthorizationManager(ROUTES))
                 )
                 .addFilterBefore(userAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
 
@@ -98,9 +118,13 @@ public class SecurityConfiguration {
         return authenticationConfiguration.getAuthenticationManager();
     }
 
+    /*
+    hashes stored with a lower cost than the configured one are upgraded on the next successful login
+    (see UserDetailsServiceImpl.updatePassword)
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${fornello.security.bcrypt.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
 }
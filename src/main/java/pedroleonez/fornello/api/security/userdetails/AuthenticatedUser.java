@@ -0,0 +1,46 @@
+package pedroleonez.fornello.api.security.userdetails;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import pedroleonez.fornello.api.entities.Role;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.enums.RoleName;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+lightweight principal stored in the Spring Security context once the token is verified,
+so services don't need to parse the token or search the user again
+ */
+public record AuthenticatedUser(
+
+        Long id,
+
+        String email,
+
+        Set<RoleName> roles
+
+) {
+
+    public static AuthenticatedUser from(User user) {
+        Set<RoleName> roles = EnumSet.noneOf(RoleName.class);
+        user.getRoles().stream().map(Role::getName).forEach(roles::add);
+        return new AuthenticatedUser(user.getId(), user.getEmail(), Set.copyOf(roles));
+    }
+
+    public boolean hasRole(RoleName roleName) {
+        return roles.contains(roleName);
+    }
+
+    public boolean isCustomer() {
+        return hasRole(RoleName.ROLE_CUSTOMER);
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return roles.stream()
+                .map(roleName -> (GrantedAuthority) new SimpleGrantedAuthority(roleName.name()))
+                .toList();
+    }
+}
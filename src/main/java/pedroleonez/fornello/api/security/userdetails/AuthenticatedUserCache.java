@@ -0,0 +1,58 @@
+package pedroleonez.fornello.api.security.userdetails;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pedroleonez.fornello.api.cache.BoundedExpiringCache;
+import pedroleonez.fornello.api.repositories.UserRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/*
+keeps the principals of recently authenticated users by email, so the authentication filter
+doesn't need to search the user (and its roles) in the database on every request
+ */
+@Component
+public class AuthenticatedUserCache {
+
+    private final UserRepository userRepository;
+    private final Duration timeToLive;
+    private final BoundedExpiringCache<String, AuthenticatedUser> principals;
+
+    public AuthenticatedUserCache(UserRepository userRepository,
+                                  @Value("${fornello.security.principal-cache.max-size:10000}") int maxSize,
+                                  @Value("${fornello.security.principal-cache.ttl-seconds:300}") long timeToLiveSeconds,
+                                  MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.timeToLive = Duration.ofSeconds(timeToLiveSeconds);
+        this.principals = new BoundedExpiringCache<>("authenticated-users", maxSize);
+        this.principals.bindTo(meterRegistry);
+    }
+
+    // returns the cached principal, searching the user by email only when it isn't cached
+    public AuthenticatedUser getByEmail(String email) {
+        AuthenticatedUser cachedUser = principals.get(email);
+        if (cachedUser != null) {
+            return cachedUser;
+        }
+        AuthenticatedUser authenticatedUser = AuthenticatedUser.from(userRepository.findByEmail(email).orElseThrow());
+        principals.put(email, authenticatedUser, Instant.now().plus(timeToLive));
+        return authenticatedUser;
+    }
+
+    // must be called whenever a user is deleted or has its roles changed
+    public void invalidate(String email) {
+        principals.remove(email);
+    }
+
+    public void invalidateAll() {
+        principals.clear();
+    }
+
+    @Scheduled(fixedDelayString = "${fornello.security.principal-cache.sweep-interval-ms:60000}")
+    public void removeExpiredPrincipals() {
+        principals.removeExpired();
+    }
+}
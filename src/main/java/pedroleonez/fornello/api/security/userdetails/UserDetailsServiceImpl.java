@@ -1,6 +1,7 @@
 package pedroleonez.fornello.api.security.userdetails;
 
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -9,7 +10,7 @@ import pedroleonez.fornello.api.repositories.UserRepository;
 import pedroleonez.fornello.api.exceptions.UserNotFoundException;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
@@ -22,4 +23,15 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         User user = userRepository.findByEmail(username).orElseThrow(UserNotFoundException::new);
         return new UserDetailsImpl(user);
     }
+
+    /*
+    called by Spring Security after a successful login when the stored hash was created with a lower
+    cost than the configured one, replacing it with the hash of the configured cost
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = ((UserDetailsImpl) userDetails).getUser();
+        user.setPassword(newPassword);
+        return new UserDetailsImpl(userRepository.save(user));
+    }
 }
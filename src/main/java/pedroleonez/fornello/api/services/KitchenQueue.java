@@ -0,0 +1,215 @@
+package pedroleonez.fornello.api.services;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.events.OrderCreatedEvent;
+import pedroleonez.fornello.api.events.OrderDeletedEvent;
+import pedroleonez.fornello.api.events.OrderStatusChangedEvent;
+import pedroleonez.fornello.api.repositories.OrderRepository;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/*
+in-memory view of the orders the kitchen still has to work on (pending, approved or preparing), in arrival order.
+it is loaded from the database when the application starts, kept current by the order events and rebuilt
+periodically, so reading it doesn't touch the database. every change publishes a new immutable list, so
+readers never wait.
+the events of different transactions may be delivered out of order. every legal transition moves an order to
+a status declared later in Status, so an event is applied only if it moves the order past the status the
+queue knows; the orders that left the queue are remembered until the next rebuild for the same check.
+the rebuild reads without holding the lock and keeps, for each order, the latest of what it read and what the
+events delivered meanwhile.
+ */
+@Component
+public class KitchenQueue {
+
+    public static final Set<Status> ACTIVE_STATUSES = EnumSet.of(Status.PENDING, Status.APPROVED, Status.PREPARING);
+
+    private static final Comparator<ArrivalKey> ARRIVAL_ORDER = Comparator
+            .comparing(ArrivalKey::createdDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(ArrivalKey::orderId);
+
+    // rank of a deleted order, after every status
+    private static final int DELETED = Status.values().length;
+
+    private static final int UNKNOWN = -1;
+
+    private final OrderRepository orderRepository;
+    private final OrderDtoAssembler orderDtoAssembler;
+    private final TransactionTemplate snapshotTransactionTemplate;
+    private final Object rebuildLock = new Object();
+
+    // guarded by this
+    private final TreeMap<ArrivalKey, RecoveryOrderDto> ordersByArrival = new TreeMap<>(ARRIVAL_ORDER);
+    private final Map<Long, ArrivalKey> arrivalKeysByOrderId = new HashMap<>();
+    // rank of the orders that left the queue since the last two rebuilds started
+    private Map<Long, Integer> departedOrders = new HashMap<>();
+    private Map<Long, Integer> previouslyDepartedOrders = new HashMap<>();
+    // orders changed by an event while a rebuild reads, null when no rebuild is reading
+    private Set<Long> rebuildOrderIds;
+
+    private volatile List<RecoveryOrderDto> orders = List.of();
+
+    public KitchenQueue(OrderRepository orderRepository, OrderDtoAssembler orderDtoAssembler, TransactionTemplate transactionTemplate) {
+        this.orderRepository = orderRepository;
+        this.orderDtoAssembler = orderDtoAssembler;
+        // the orders and their items must be read in the same snapshot
+        this.snapshotTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.snapshotTransactionTemplate.setReadOnly(true);
+        this.snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    public List<RecoveryOrderDto> getOrders() {
+        return orders;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${fornello.orders.kitchen.rebuild-interval-ms:300000}", initialDelayString = "${fornello.orders.kitchen.rebuild-interval-ms:300000}")
+    public void rebuildQueue() {
+        rebuild();
+    }
+
+    /*
+    an event is delivered after its transaction commits. one committed before the snapshot is either applied
+    before the rebuild starts or found equal to what was read, and one committed after it is applied on
+    top of what was read, during the rebuild or after it
+     */
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                rebuildOrderIds = new HashSet<>();
+                previouslyDepartedOrders = departedOrders;
+                departedOrders = new HashMap<>();
+            }
+            try {
+                List<RecoveryOrderDto> activeOrders = snapshotTransactionTemplate.execute(transactionStatus ->
+                        orderDtoAssembler.assemble(orderRepository.findRowsByStatusIn(ACTIVE_STATUSES)));
+
+                synchronized (this) {
+                    Map<Long, RecoveryOrderDto> changedOrders = new HashMap<>();
+                    for (Long orderId : rebuildOrderIds) {
+                        RecoveryOrderDto order = find(orderId);
+                        if (order != null) {
+                            changedOrders.put(orderId, order);
+                        }
+                    }
+                    Map<Long, Integer> changedRanks = new HashMap<>();
+                    rebuildOrderIds.forEach(orderId -> changedRanks.put(orderId, rankOf(orderId)));
+
+                    ordersByArrival.clear();
+                    arrivalKeysByOrderId.clear();
+                    for (RecoveryOrderDto order : activeOrders) {
+                        Integer changedRank = changedRanks.get(order.id());
+                        if (changedRank == null || changedRank < order.status().ordinal()) {
+                            put(order);
+                            changedOrders.remove(order.id());
+                        }
+                    }
+                    changedOrders.values().forEach(this::put);
+                    publish();
+                }
+            } finally {
+                synchronized (this) {
+                    rebuildOrderIds = null;
+                }
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onOrderCreated(OrderCreatedEvent event) {
+        if (changed(event.order().id(), event.order().status().ordinal())) {
+            apply(event.order());
+            publish();
+        }
+    }
+
+    // orders leave the queue once they are sent, delivered or canceled
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (changed(event.order().id(), event.order().status().ordinal())) {
+            apply(event.order());
+            publish();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onOrderDeleted(OrderDeletedEvent event) {
+        if (changed(event.order().id(), DELETED)) {
+            remove(event.order().id());
+            departedOrders.put(event.order().id(), DELETED);
+            publish();
+        }
+    }
+
+    // whether an event moving the order to the given rank is newer than what the queue knows
+    private boolean changed(Long orderId, int rank) {
+        if (rank <= rankOf(orderId)) {
+            return false;
+        }
+        if (rebuildOrderIds != null) {
+            rebuildOrderIds.add(orderId);
+        }
+        return true;
+    }
+
+    private int rankOf(Long orderId) {
+        RecoveryOrderDto order = find(orderId);
+        if (order != null) {
+            return order.status().ordinal();
+        }
+        Integer rank = departedOrders.get(orderId);
+        if (rank == null) {
+            rank = previouslyDepartedOrders.get(orderId);
+        }
+        return rank == null ? UNKNOWN : rank;
+    }
+
+    private void apply(RecoveryOrderDto order) {
+        if (ACTIVE_STATUSES.contains(order.status())) {
+            put(order);
+        } else {
+            remove(order.id());
+            departedOrders.put(order.id(), order.status().ordinal());
+        }
+    }
+
+    private RecoveryOrderDto find(Long orderId) {
+        ArrivalKey arrivalKey = arrivalKeysByOrderId.get(orderId);
+        return arrivalKey == null ? null : ordersByArrival.get(arrivalKey);
+    }
+
+    private void put(RecoveryOrderDto order) {
+        remove(order.id());
+        ArrivalKey arrivalKey = new ArrivalKey(order.createdDate(), order.id());
+        ordersByArrival.put(arrivalKey, order);
+        arrivalKeysByOrderId.put(order.id(), arrivalKey);
+    }
+
+    private boolean remove(Long orderId) {
+        ArrivalKey arrivalKey = arrivalKeysByOrderId.remove(orderId);
+        return arrivalKey != null && ordersByArrival.remove(arrivalKey) != null;
+    }
+
+    private void publish() {
+        orders = List.copyOf(ordersByArrival.values());
+    }
+
+    private record ArrivalKey(LocalDateTime createdDate, Long orderId) {
+    }
+}
@@ -0,0 +1,99 @@
+package pedroleonez.fornello.api.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.repositories.ArchivedOrderRepository;
+import pedroleonez.fornello.api.repositories.OrderRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+moves the delivered and canceled orders older than the configured age to the archive tables, so the
+hot order tables only grow with the active and recent orders. each chunk is copied and removed in its
+own transaction, so an interrupted run never loses or duplicates an order and the next run continues it.
+terminal orders can't change status anymore, so archiving them never races with a status change.
+ */
+@Component
+public class OrderArchiver {
+
+    private static final Set<Status> TERMINAL_STATUSES = EnumSet.of(Status.DELIVERED, Status.CANCELED);
+
+    private final OrderRepository orderRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final OrderCounts orderCounts;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration minimumAge;
+    private final int chunkSize;
+    private final Counter archivedOrders;
+
+    public OrderArchiver(OrderRepository orderRepository,
+                         ArchivedOrderRepository archivedOrderRepository,
+                         OrderCounts orderCounts,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${fornello.orders.archive.min-age-days:90}") long minimumAgeDays,
+                         @Value("${fornello.orders.archive.chunk-size:500}") int chunkSize,
+                         MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
+        this.orderCounts = orderCounts;
+        this.transactionTemplate = transactionTemplate;
+        this.minimumAge = Duration.ofDays(minimumAgeDays);
+        this.chunkSize = chunkSize;
+        this.archivedOrders = Counter.builder("fornello.orders.archived")
+                .description("Orders moved to the archive tables")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${fornello.orders.archive.cron:0 0 4 * * *}")
+    public void archiveTerminalOrders() {
+        LocalDateTime createdBefore = LocalDateTime.now().minus(minimumAge);
+        int archived;
+        int totalArchived = 0;
+        // until the recount, the listings can't tell from the counts which users have archived orders
+        orderCounts.archivalStarted();
+        try {
+            do {
+                archived = archiveChunk(createdBefore);
+                archivedOrders.increment(archived);
+                totalArchived += archived;
+            } while (archived == chunkSize);
+        } finally {
+            try {
+                // archived orders move from the hot counts to the archived ones without any order event
+                if (totalArchived > 0) {
+                    orderCounts.recount();
+                }
+            } finally {
+                orderCounts.archivalEnded();
+            }
+        }
+    }
+
+    private int archiveChunk(LocalDateTime createdBefore) {
+        Integer archived = transactionTemplate.execute(transactionStatus -> {
+            List<Long> orderIds = orderRepository.findIdsByStatusInAndCreatedDateBefore(TERMINAL_STATUSES, createdBefore, PageRequest.of(0, chunkSize));
+            if (orderIds.isEmpty()) {
+                return 0;
+            }
+
+            archivedOrderRepository.copyOrders(orderIds);
+            archivedOrderRepository.copyOrderItems(orderIds);
+            archivedOrderRepository.copyDeliveryData(orderIds);
+            archivedOrderRepository.deleteOrderItems(orderIds);
+            archivedOrderRepository.deleteDeliveryData(orderIds);
+            archivedOrderRepository.deleteOrders(orderIds);
+            return orderIds.size();
+        });
+        return archived == null ? 0 : archived;
+    }
+}
@@ -0,0 +1,225 @@
+package pedroleonez.fornello.api.services;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.events.OrderCreatedEvent;
+import pedroleonez.fornello.api.events.OrderDeletedEvent;
+import pedroleonez.fornello.api.events.OrderStatusChangedEvent;
+import pedroleonez.fornello.api.repositories.ArchivedOrderRepository;
+import pedroleonez.fornello.api.repositories.OrderRepository;
+import pedroleonez.fornello.api.repositories.projections.OrderCountRow;
+import pedroleonez.fornello.api.repositories.projections.OrderStatusRow;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+number of orders (hot and archived) per status and per user and status, serving the totals of the order
+pages without a count query. the counts are read with one grouped query per table when the application
+starts, kept up to date by the order events and recounted periodically and after each archival run. the
+recount reads without holding the lock, and the events delivered around it are reconciled with what it read
+by an OrderRebuildWindow.
+archival moves orders without any event, so until the recount that follows it the moved orders are still
+counted as hot: the totals stay right, and the listings read the archive while an archival runs.
+ */
+@Component
+public class OrderCounts {
+
+    private static final int STATUS_COUNT = Status.values().length;
+
+    private final OrderRepository orderRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final TransactionTemplate snapshotTransactionTemplate;
+    private final Object recountLock = new Object();
+
+    // guarded by this
+    private long[] countsByStatus = new long[STATUS_COUNT];
+    private Map<Long, int[]> countsByUser = new HashMap<>();
+    // archived orders never change status, so these only change with a recount
+    private long[] archivedCountsByStatus = new long[STATUS_COUNT];
+    private Map<Long, int[]> archivedCountsByUser = new HashMap<>();
+    private int runningArchivals;
+    private final OrderRebuildWindow rebuildWindow = new OrderRebuildWindow(this);
+
+    public OrderCounts(OrderRepository orderRepository, ArchivedOrderRepository archivedOrderRepository, TransactionTemplate transactionTemplate) {
+        this.orderRepository = orderRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
+        // the counts and the statuses of the pending orders must be read in the same snapshot
+        this.snapshotTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.snapshotTransactionTemplate.setReadOnly(true);
+        this.snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    public synchronized long count() {
+        return sum(countsByStatus) + sum(archivedCountsByStatus);
+    }
+
+    public synchronized long count(Status status) {
+        return countsByStatus[status.ordinal()] + archivedCountsByStatus[status.ordinal()];
+    }
+
+    public synchronized long countByUser(Long userId) {
+        return sum(countsByUser.get(userId)) + sum(archivedCountsByUser.get(userId));
+    }
+
+    public synchronized long countByUser(Long userId, Status status) {
+        return countOf(countsByUser.get(userId), status) + countOf(archivedCountsByUser.get(userId), status);
+    }
+
+    // whether the listings must read the archive as well: it has orders or an archival is moving some there
+    public synchronized boolean mayHaveArchivedOrders() {
+        return runningArchivals > 0 || sum(archivedCountsByStatus) > 0;
+    }
+
+    public synchronized boolean mayHaveArchivedOrders(Status status) {
+        return runningArchivals > 0 || archivedCountsByStatus[status.ordinal()] > 0;
+    }
+
+    public synchronized boolean mayHaveArchivedOrdersByUser(Long userId) {
+        return runningArchivals > 0 || sum(archivedCountsByUser.get(userId)) > 0;
+    }
+
+    public synchronized boolean mayHaveArchivedOrdersByUser(Long userId, Status status) {
+        return runningArchivals > 0 || countOf(archivedCountsByUser.get(userId), status) > 0;
+    }
+
+    // called by the archival job around each run, which is followed by a recount
+    public synchronized void archivalStarted() {
+        runningArchivals++;
+    }
+
+    public synchronized void archivalEnded() {
+        runningArchivals--;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${fornello.orders.counts.recount-interval-ms:3600000}", initialDelayString = "${fornello.orders.counts.recount-interval-ms:3600000}")
+    public void recountOrders() {
+        recount();
+    }
+
+    public void recount() {
+        synchronized (recountLock) {
+            synchronized (this) {
+                rebuildWindow.startRebuild();
+            }
+            try {
+                Recount recount = snapshotTransactionTemplate.execute(transactionStatus -> {
+                    List<OrderCountRow> orderCountRows = orderRepository.countRowsByUserIdAndStatus();
+                    List<OrderCountRow> archivedOrderCountRows = archivedOrderRepository.countRowsByUserIdAndStatus();
+                    Set<Long> orderIds;
+                    synchronized (this) {
+                        orderIds = rebuildWindow.rebuildOrderIds();
+                    }
+                    return new Recount(orderCountRows, archivedOrderCountRows, orderIds, orderIds.isEmpty() ? List.of() : orderRepository.findStatusRowsByIdIn(orderIds));
+                });
+
+                long[] recountedByStatus = new long[STATUS_COUNT];
+                Map<Long, int[]> recountedByUser = new HashMap<>();
+                addAll(recount.orderCountRows(), recountedByStatus, recountedByUser);
+                long[] archivedByStatus = new long[STATUS_COUNT];
+                Map<Long, int[]> archivedByUser = new HashMap<>();
+                addAll(recount.archivedOrderCountRows(), archivedByStatus, archivedByUser);
+                synchronized (this) {
+                    countsByStatus = recountedByStatus;
+                    countsByUser = recountedByUser;
+                    archivedCountsByStatus = archivedByStatus;
+                    archivedCountsByUser = archivedByUser;
+                    rebuildWindow.finishRebuild(recount.orderIds(), recount.orderStatusRows());
+                }
+            } finally {
+                synchronized (this) {
+                    rebuildWindow.endRebuild();
+                }
+            }
+        }
+    }
+
+    // the order events are published inside the transaction that writes the order
+    @EventListener
+    public synchronized void onOrderCreatedPublished(OrderCreatedEvent event) {
+        rebuildWindow.published(event, event.order().id());
+    }
+
+    @EventListener
+    public synchronized void onOrderStatusChangedPublished(OrderStatusChangedEvent event) {
+        rebuildWindow.published(event, event.order().id());
+    }
+
+    @EventListener
+    public synchronized void onOrderDeletedPublished(OrderDeletedEvent event) {
+        rebuildWindow.published(event, event.order().id());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onOrderCreated(OrderCreatedEvent event) {
+        Long userId = event.order().user().id();
+        Status status = event.order().status();
+        rebuildWindow.delivered(event, event.order().id(), null, status, () -> add(userId, status, 1));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        Long userId = event.order().user().id();
+        Status previousStatus = event.previousStatus();
+        Status status = event.order().status();
+        rebuildWindow.delivered(event, event.order().id(), previousStatus, status, () -> {
+            add(userId, previousStatus, -1);
+            add(userId, status, 1);
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onOrderDeleted(OrderDeletedEvent event) {
+        Long userId = event.order().user().id();
+        Status status = event.order().status();
+        rebuildWindow.delivered(event, event.order().id(), status, null, () -> add(userId, status, -1));
+    }
+
+    private void add(Long userId, Status status, int delta) {
+        countsByStatus[status.ordinal()] = Math.max(0, countsByStatus[status.ordinal()] + delta);
+        int[] userCounts = countsByUser.computeIfAbsent(userId, id -> new int[STATUS_COUNT]);
+        userCounts[status.ordinal()] = Math.max(0, userCounts[status.ordinal()] + delta);
+    }
+
+    private static void addAll(List<OrderCountRow> orderCountRows, long[] countsByStatus, Map<Long, int[]> countsByUser) {
+        for (OrderCountRow orderCountRow : orderCountRows) {
+            countsByStatus[orderCountRow.status().ordinal()] += orderCountRow.count();
+            countsByUser.computeIfAbsent(orderCountRow.userId(), userId -> new int[STATUS_COUNT])[orderCountRow.status().ordinal()] = orderCountRow.count().intValue();
+        }
+    }
+
+    private static long sum(long[] counts) {
+        long sum = 0;
+        for (long count : counts) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    private static long sum(int[] counts) {
+        if (counts == null) {
+            return 0;
+        }
+        long sum = 0;
+        for (int count : counts) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    private static int countOf(int[] counts, Status status) {
+        return counts == null ? 0 : counts[status.ordinal()];
+    }
+
+    private record Recount(List<OrderCountRow> orderCountRows, List<OrderCountRow> archivedOrderCountRows, Set<Long> orderIds, List<OrderStatusRow> orderStatusRows) {
+    }
+}
@@ -0,0 +1,46 @@
+package pedroleonez.fornello.api.services;
+
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.exceptions.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/*
+position of the last order returned in a cursor page. orders are listed by createdDate DESC, id ASC,
+so the next page starts right after this (createdDate, id) pair. it is sent to clients as an opaque token.
+ */
+record OrderCursor(LocalDateTime createdDate, Long id) {
+
+    private static final String SEPARATOR = "_";
+
+    // position before the newest possible order, used when the client asks for the first page
+    static final OrderCursor FIRST = new OrderCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), 0L);
+
+    static OrderCursor of(RecoveryOrderDto order) {
+        return new OrderCursor(order.createdDate(), order.id());
+    }
+
+    static OrderCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separatorIndex = value.lastIndexOf(SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new InvalidCursorException();
+            }
+            return new OrderCursor(LocalDateTime.parse(value.substring(0, separatorIndex)), Long.valueOf(value.substring(separatorIndex + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException exception) {
+            throw new InvalidCursorException();
+        }
+    }
+
+    String encode() {
+        String value = createdDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
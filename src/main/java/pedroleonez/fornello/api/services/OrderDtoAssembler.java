@@ -0,0 +1,132 @@
+package pedroleonez.fornello.api.services;
+
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Component;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryDeliveryData;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderItemDto;
+import pedroleonez.fornello.api.dtos.output.user.RecoveryRoleDto;
+import pedroleonez.fornello.api.dtos.output.user.RecoveryUserDto;
+import pedroleonez.fornello.api.repositories.ArchivedOrderItemRepository;
+import pedroleonez.fornello.api.repositories.OrderItemRepository;
+import pedroleonez.fornello.api.repositories.UserRepository;
+import pedroleonez.fornello.api.repositories.projections.OrderItemRow;
+import pedroleonez.fornello.api.repositories.projections.OrderRow;
+import pedroleonez.fornello.api.repositories.projections.UserRoleRow;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+builds RecoveryOrderDto records straight from the flat order rows: the items and the user roles of all
+the rows are read with one query each and grouped in memory, without loading any entity
+ */
+@Component
+public class OrderDtoAssembler {
+
+    private final OrderItemRepository orderItemRepository;
+    private final ArchivedOrderItemRepository archivedOrderItemRepository;
+    private final UserRepository userRepository;
+
+    public OrderDtoAssembler(OrderItemRepository orderItemRepository, ArchivedOrderItemRepository archivedOrderItemRepository, UserRepository userRepository) {
+        this.orderItemRepository = orderItemRepository;
+        this.archivedOrderItemRepository = archivedOrderItemRepository;
+        this.userRepository = userRepository;
+    }
+
+    public Slice<RecoveryOrderDto> assemble(Slice<OrderRow> orderRowSlice) {
+        return new SliceImpl<>(assemble(orderRowSlice.getContent()), orderRowSlice.getPageable(), orderRowSlice.hasNext());
+    }
+
+    /*
+    a single order is read with the single-valued queries: hibernate translates a query with a list
+    parameter again on every call, which costs more than the queries themselves on a read by id
+     */
+    public RecoveryOrderDto assemble(OrderRow orderRow) {
+        return mapOrderRow(orderRow, orderItemRepository.findRowsByOrderId(orderRow.id()));
+    }
+
+    // keeps the order of the rows
+    public List<RecoveryOrderDto> assemble(List<OrderRow> orderRows) {
+        return assemble(orderRows, orderItemRepository::findRowsByOrderIdIn);
+    }
+
+    // for rows read from the archive tables, whose items are archived as well
+    public List<RecoveryOrderDto> assembleArchived(List<OrderRow> orderRows) {
+        return assemble(orderRows, archivedOrderItemRepository::findRowsByOrderIdIn);
+    }
+
+    public RecoveryOrderDto assembleArchived(OrderRow orderRow) {
+        return mapOrderRow(orderRow, archivedOrderItemRepository.findRowsByOrderId(orderRow.id()));
+    }
+
+    private RecoveryOrderDto mapOrderRow(OrderRow orderRow, List<OrderItemRow> orderItemRows) {
+        return mapOrderRow(orderRow,
+                orderItemRows.stream().map(this::mapOrderItemRow).toList(),
+                userRepository.findRoleRowsByUserId(orderRow.userId()).stream().map(this::mapUserRoleRow).toList());
+    }
+
+    private List<RecoveryOrderDto> assemble(List<OrderRow> orderRows, Function<Collection<Long>, List<OrderItemRow>> findOrderItemRows) {
+        if (orderRows.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> orderIds = orderRows.stream().map(OrderRow::id).toList();
+        List<Long> userIds = orderRows.stream().map(OrderRow::userId).distinct().toList();
+
+        Map<Long, List<RecoveryOrderItemDto>> itemsByOrderId = findOrderItemRows.apply(orderIds).stream()
+                .collect(Collectors.groupingBy(OrderItemRow::orderId, Collectors.mapping(this::mapOrderItemRow, Collectors.toList())));
+
+        Map<Long, List<RecoveryRoleDto>> rolesByUserId = userRepository.findRoleRowsByUserIdIn(userIds).stream()
+                .collect(Collectors.groupingBy(UserRoleRow::userId, Collectors.mapping(this::mapUserRoleRow, Collectors.toList())));
+
+        return orderRows.stream()
+                .map(orderRow -> mapOrderRow(orderRow,
+                        itemsByOrderId.getOrDefault(orderRow.id(), List.of()),
+                        rolesByUserId.getOrDefault(orderRow.userId(), List.of())))
+                .toList();
+    }
+
+    private RecoveryOrderDto mapOrderRow(OrderRow orderRow, List<RecoveryOrderItemDto> orderItems, List<RecoveryRoleDto> roles) {
+        RecoveryDeliveryData deliveryData = orderRow.deliveryDataId() == null ? null : new RecoveryDeliveryData(
+                orderRow.deliveryDataId(),
+                orderRow.receiverName(),
+                orderRow.address(),
+                orderRow.number(),
+                orderRow.complement(),
+                orderRow.district(),
+                orderRow.zipCode(),
+                orderRow.city(),
+                orderRow.state(),
+                orderRow.phoneNumber());
+
+        return new RecoveryOrderDto(
+                orderRow.id(),
+                new RecoveryUserDto(orderRow.userId(), orderRow.userEmail(), roles),
+                orderItems,
+                orderRow.status(),
+                orderRow.paymentMethod() == null ? null : orderRow.paymentMethod().name(),
+                orderRow.amount(),
+                deliveryData,
+                orderRow.createdDate());
+    }
+
+    private RecoveryOrderItemDto mapOrderItemRow(OrderItemRow orderItemRow) {
+        return new RecoveryOrderItemDto(
+                orderItemRow.id(),
+                orderItemRow.productVariationId(),
+                orderItemRow.productName(),
+                orderItemRow.sizeName(),
+                orderItemRow.category(),
+                orderItemRow.unitPrice(),
+                orderItemRow.quantity());
+    }
+
+    private RecoveryRoleDto mapUserRoleRow(UserRoleRow userRoleRow) {
+        return new RecoveryRoleDto(userRoleRow.roleId(), userRoleRow.roleName().name());
+    }
+}
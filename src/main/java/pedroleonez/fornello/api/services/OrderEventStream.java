@@ -0,0 +1,230 @@
+package pedroleonez.fornello.api.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderEventDto;
+import pedroleonez.fornello.api.events.OrderCreatedEvent;
+import pedroleonez.fornello.api.events.OrderStatusChangedEvent;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+pushes the new orders and the status changes to the subscribers of the order event stream (SSE).
+administrators receive the events of every order and customers only the ones of their own orders.
+publishing never blocks: each event is appended to the bounded buffer of every interested subscriber
+and the buffers are written to the connections by a pool, one send task per subscriber at a time.
+a subscriber whose buffer fills up (a slow or dead consumer) is disconnected and has to subscribe again.
+writing to a connection blocks while the client doesn't read, so a send that takes longer than the send
+timeout disconnects its subscriber as well. the blocked write only gives its thread back when the server's
+write timeout expires, so the pool grows past its core size instead of making the other subscribers wait.
+ */
+@Component
+public class OrderEventStream {
+
+    public static final String ORDER_CREATED = "order-created";
+    public static final String ORDER_STATUS_CHANGED = "order-status-changed";
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nextEventId = new AtomicLong();
+    private final ThreadPoolExecutor senders;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final int bufferSize;
+    private final Counter evictions;
+    private final Counter stalls;
+
+    public OrderEventStream(@Value("${fornello.orders.events.pool-size:2}") int poolSize,
+                            @Value("${fornello.orders.events.max-pool-size:64}") int maxPoolSize,
+                            @Value("${fornello.orders.events.buffer-size:64}") int bufferSize,
+                            @Value("${fornello.orders.events.timeout-ms:1800000}") long timeoutMillis,
+                            @Value("${fornello.orders.events.send-timeout-ms:10000}") long sendTimeoutMillis,
+                            MeterRegistry meterRegistry) {
+        AtomicInteger threadCount = new AtomicInteger();
+        // no queue: a send task runs on an idle thread or a new one, up to the maximum
+        this.senders = new ThreadPoolExecutor(poolSize, Math.max(poolSize, maxPoolSize), 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "order-events-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        this.evictions = Counter.builder("fornello.orders.events.evictions")
+                .description("Subscribers disconnected because their buffer was full")
+                .register(meterRegistry);
+        this.stalls = Counter.builder("fornello.orders.events.stalls")
+                .description("Subscribers disconnected because a send took longer than the send timeout")
+                .register(meterRegistry);
+        Gauge.builder("fornello.orders.events.senders", senders, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+        Gauge.builder("fornello.orders.events.subscribers", subscribers, Set::size)
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(AuthenticatedUser authenticatedUser) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(authenticatedUser.isCustomer() ? authenticatedUser.id() : null, emitter,
+                new ArrayBlockingQueue<>(bufferSize));
+
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    // runs after the commit of the transaction that saved the order, or right away when there is none
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        publish(new OutgoingEvent(ORDER_CREATED, new RecoveryOrderEventDto(ORDER_CREATED, null, event.order())), event.order());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        publish(new OutgoingEvent(ORDER_STATUS_CHANGED, new RecoveryOrderEventDto(ORDER_STATUS_CHANGED, event.previousStatus(), event.order())), event.order());
+    }
+
+    // keeps idle connections open through proxies, and finds the dead ones
+    @Scheduled(fixedDelayString = "${fornello.orders.events.heartbeat-interval-ms:15000}")
+    public void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            enqueue(subscriber, OutgoingEvent.HEARTBEAT);
+        }
+    }
+
+    // the subscribers stuck in a send stop receiving events, and their buffers are freed
+    @Scheduled(fixedDelayString = "${fornello.orders.events.stall-check-interval-ms:1000}")
+    public void disconnectStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long sendStartedAt = subscriber.sendStartedAt().get();
+            if (sendStartedAt != 0 && now - sendStartedAt > sendTimeoutNanos) {
+                stalls.increment();
+                disconnect(subscriber);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        senders.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter().complete();
+        }
+        subscribers.clear();
+    }
+
+    private void publish(OutgoingEvent outgoingEvent, RecoveryOrderDto order) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.accepts(order)) {
+                enqueue(subscriber, outgoingEvent);
+            }
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, OutgoingEvent outgoingEvent) {
+        if (!subscriber.buffer().offer(outgoingEvent)) {
+            evictions.increment();
+            disconnect(subscriber);
+            return;
+        }
+        scheduleSend(subscriber);
+    }
+
+    /*
+    at most one send task per subscriber is scheduled at a time, so its events keep their order. when every
+    sender is busy the events stay in the buffer until the next event or heartbeat schedules the send again
+     */
+    private void scheduleSend(Subscriber subscriber) {
+        if (subscriber.sending().compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> send(subscriber));
+            } catch (RejectedExecutionException ex) {
+                subscriber.sending().set(false);
+            }
+        }
+    }
+
+    private void send(Subscriber subscriber) {
+        try {
+            OutgoingEvent outgoingEvent;
+            while ((outgoingEvent = subscriber.buffer().poll()) != null) {
+                subscriber.sendStartedAt().set(System.nanoTime());
+                subscriber.emitter().send(outgoingEvent == OutgoingEvent.HEARTBEAT
+                        ? SseEmitter.event().comment("heartbeat")
+                        : SseEmitter.event()
+                                .id(String.valueOf(nextEventId.incrementAndGet()))
+                                .name(outgoingEvent.name())
+                                .data(outgoingEvent.data(), MediaType.APPLICATION_JSON));
+            }
+        } catch (IOException | IllegalStateException ex) {
+            disconnect(subscriber);
+            return;
+        } finally {
+            subscriber.sendStartedAt().set(0);
+            subscriber.sending().set(false);
+        }
+
+        // an event may have been appended after the buffer was found empty
+        if (!subscriber.buffer().isEmpty()) {
+            scheduleSend(subscriber);
+        }
+    }
+
+    /*
+    completes the emitter normally even when a write failed: the client is gone, and completing with the error
+    would dispatch it to the exception handler, which can't write its error body to an event stream
+     */
+    private void disconnect(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        subscriber.buffer().clear();
+        subscriber.emitter().complete();
+    }
+
+    /*
+    the user id is null for administrators, who receive the events of every order.
+    sendStartedAt holds the System.nanoTime() of the send in progress, 0 when none is
+     */
+    private record Subscriber(Long userId, SseEmitter emitter, BlockingQueue<OutgoingEvent> buffer, AtomicBoolean sending,
+                              AtomicLong sendStartedAt) {
+
+        Subscriber(Long userId, SseEmitter emitter, BlockingQueue<OutgoingEvent> buffer) {
+            this(userId, emitter, buffer, new AtomicBoolean(), new AtomicLong());
+        }
+
+        boolean accepts(RecoveryOrderDto order) {
+            return userId == null || userId.equals(order.user().id());
+        }
+    }
+
+    private record OutgoingEvent(String name, Object data) {
+
+        static final OutgoingEvent HEARTBEAT = new OutgoingEvent(null, null);
+    }
+}
@@ -0,0 +1,185 @@
+package pedroleonez.fornello.api.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderItemDto;
+import pedroleonez.fornello.api.enums.ExportFormat;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.exceptions.InvalidDateRangeException;
+import pedroleonez.fornello.api.repositories.ArchivedOrderRepository;
+import pedroleonez.fornello.api.repositories.OrderRepository;
+import pedroleonez.fornello.api.repositories.projections.OrderRow;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/*
+writes the orders created in a date range straight to the response, as NDJSON (one order per line) or
+CSV (one order item per line). the order rows are read through a forward-only cursor, and each chunk of
+rows is assembled, written and flushed before the next one is read, so the memory used doesn't grow
+with the number of orders exported. the hot orders are written first, then the archived ones.
+ */
+@Component
+public class OrderExporter {
+
+    private static final String CSV_HEADER = "order_id,created_date,user_id,user_email,status,payment_method,amount," +
+            "item_id,product_variation_id,product_name,size_name,category,unit_price,quantity";
+
+    // same format of the JSON dates
+    private static final DateTimeFormatter CSV_DATE_FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+
+    private final OrderRepository orderRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final OrderDtoAssembler orderDtoAssembler;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final int chunkSize;
+
+    public OrderExporter(OrderRepository orderRepository,
+                         ArchivedOrderRepository archivedOrderRepository,
+                         OrderDtoAssembler orderDtoAssembler,
+                         EntityManager entityManager,
+                         ObjectMapper objectMapper,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${fornello.orders.export.chunk-size:500}") int chunkSize) {
+        this.orderRepository = orderRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
+        this.orderDtoAssembler = orderDtoAssembler;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.chunkSize = chunkSize;
+    }
+
+    /*
+    the range includes both dates and, without a status, orders of every status are exported.
+    the range is checked before anything is written, so an invalid one is still answered with a 400
+     */
+    public StreamingResponseBody export(ExportFormat format, LocalDate from, LocalDate to, Status status) {
+        if (from.isAfter(to)) {
+            throw new InvalidDateRangeException();
+        }
+        LocalDateTime createdFrom = from.atStartOfDay();
+        LocalDateTime createdTo = to.plusDays(1).atStartOfDay();
+
+        return outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024);
+            if (format == ExportFormat.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+
+            try {
+                // each cursor is consumed and closed inside its own read-only transaction
+                readOnlyTransactionTemplate.executeWithoutResult(transactionStatus -> {
+                    try (Stream<OrderRow> orderRows = orderRepository.streamRowsByCreatedDateBetween(createdFrom, createdTo, status)) {
+                        writeChunks(orderRows, orderDtoAssembler::assemble, format, writer);
+                    }
+                });
+                readOnlyTransactionTemplate.executeWithoutResult(transactionStatus -> {
+                    try (Stream<OrderRow> orderRows = archivedOrderRepository.streamRowsByCreatedDateBetween(createdFrom, createdTo, status)) {
+                        writeChunks(orderRows, orderDtoAssembler::assembleArchived, format, writer);
+                    }
+                });
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            writer.flush();
+        };
+    }
+
+    private void writeChunks(Stream<OrderRow> orderRows, Function<List<OrderRow>, List<RecoveryOrderDto>> assemble, ExportFormat format, Writer writer) {
+        Iterator<OrderRow> iterator = orderRows.iterator();
+        List<OrderRow> chunk = new ArrayList<>(chunkSize);
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() < chunkSize && iterator.hasNext()) {
+                continue;
+            }
+
+            try {
+                for (RecoveryOrderDto order : assemble.apply(chunk)) {
+                    write(order, format, writer);
+                }
+                writer.flush();
+            } catch (IOException ex) {
+                // the client went away: the transaction is rolled back and the cursor closed
+                throw new UncheckedIOException(ex);
+            }
+            chunk.clear();
+            // nothing read here should be managed, but the context is cleared so it can't grow either
+            entityManager.clear();
+        }
+    }
+
+    private void write(RecoveryOrderDto order, ExportFormat format, Writer writer) throws IOException {
+        if (format == ExportFormat.NDJSON) {
+            writer.write(objectMapper.writeValueAsString(order));
+            writer.write('\n');
+            return;
+        }
+
+        // an order without items still gets its line, with the item columns left empty
+        if (order.orderItems().isEmpty()) {
+            writer.write(csvLine(order, null, null, null, null, null, null, null));
+            writer.write('\n');
+        }
+        for (RecoveryOrderItemDto orderItem : order.orderItems()) {
+            writer.write(csvLine(order,
+                    orderItem.id(), orderItem.productVariationId(), orderItem.productName(), orderItem.sizeName(),
+                    orderItem.category(), orderItem.unitPrice(), orderItem.quantity()));
+            writer.write('\n');
+        }
+    }
+
+    private static String csvLine(RecoveryOrderDto order, Object... orderItemValues) {
+        List<Object> values = new ArrayList<>(List.of(
+                order.id(), CSV_DATE_FORMATTER.format(order.createdDate()), order.user().id(), order.user().email(),
+                order.status(), order.paymentMethod(), order.amount()));
+        values.addAll(Arrays.asList(orderItemValues));
+        return csvLine(values);
+    }
+
+    /*
+    values a spreadsheet would read as a formula (starting with =, +, - or @) are prefixed with a quote.
+    values with commas, quotes or line breaks are quoted, doubling their quotes
+     */
+    private static String csvLine(List<Object> values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            String value = values.get(i) == null ? "" : values.get(i).toString();
+            if (!value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0) {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                line.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(value);
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,126 @@
+package pedroleonez.fornello.api.services;
+
+import org.springframework.stereotype.Component;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderDto;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderItemDto;
+import pedroleonez.fornello.api.entities.DeliveryData;
+import pedroleonez.fornello.api.entities.Order;
+import pedroleonez.fornello.api.entities.OrderItem;
+import pedroleonez.fornello.api.entities.ProductVariation;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.enums.Category;
+import pedroleonez.fornello.api.enums.PaymentMethod;
+import pedroleonez.fornello.api.exceptions.ProductVariationUnavailableException;
+import pedroleonez.fornello.api.exceptions.ProductVariationNotFoundException;
+import pedroleonez.fornello.api.repositories.ProductVariationRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// validates, prices and builds new orders, shared by the synchronous, batch and queued order creation
+@Component
+public class OrderFactory {
+
+    private final ProductVariationRepository productVariationRepository;
+
+    public OrderFactory(ProductVariationRepository productVariationRepository) {
+        this.productVariationRepository = productVariationRepository;
+    }
+
+    // searches all the product variations of the order items with a single query, indexed by id
+    public Map<Long, ProductVariation> findProductVariations(Collection<CreateOrderItemDto> createOrderItemDtos) {
+        List<Long> productVariationIds = createOrderItemDtos.stream()
+                .map(CreateOrderItemDto::productVariationId)
+                .distinct()
+                .toList();
+
+        return productVariationRepository.findAllWithProductByIdIn(productVariationIds).stream()
+                .collect(Collectors.toMap(ProductVariation::getId, Function.identity()));
+    }
+
+    /*
+    validates the order items with the product variations already searched, returning each item priced
+    with a snapshot of its product variation, and the order amount
+     */
+    public PricedOrder priceOrder(CreateOrderDto createOrderDto, Map<Long, ProductVariation> productVariationsById) {
+        PaymentMethod.valueOf(createOrderDto.paymentMethod().toUpperCase());
+
+        List<PricedItem> pricedItems = new ArrayList<>();
+        BigDecimal amount = BigDecimal.ZERO;
+        for (CreateOrderItemDto createOrderItemDto : createOrderDto.orderItems()) {
+            // the variation must exist and belong to the informed product
+            ProductVariation productVariation = productVariationsById.get(createOrderItemDto.productVariationId());
+            if (productVariation == null || !productVariation.getProduct().getId().equals(createOrderItemDto.productId())) {
+                throw new ProductVariationNotFoundException();
+            }
+            if (!productVariation.isAvailable() || !productVariation.getProduct().isAvailable()) {
+                throw new ProductVariationUnavailableException();
+            }
+
+            pricedItems.add(new PricedItem(productVariation.getId(), productVariation.getProduct().getName(),
+                    productVariation.getSizeName(), productVariation.getProduct().getCategory(), productVariation.getPrice(), createOrderItemDto.quantity()));
+            amount = amount.add(productVariation.getPrice().multiply(BigDecimal.valueOf(createOrderItemDto.quantity())));
+        }
+        return new PricedOrder(pricedItems, amount);
+    }
+
+    public Order buildOrder(User user, CreateOrderDto createOrderDto, Map<Long, ProductVariation> productVariationsById) {
+        return buildOrder(user, createOrderDto, priceOrder(createOrderDto, productVariationsById), productVariationsById::get);
+    }
+
+    /*
+    builds an order already priced. the items take the name, size and price from the priced snapshot, so the
+    product variations only need to carry their ids and references can be used (see OrderIntakeQueue)
+     */
+    public Order buildOrder(User user, CreateOrderDto createOrderDto, PricedOrder pricedOrder, Function<Long, ProductVariation> productVariations) {
+        List<OrderItem> orderItems = new ArrayList<>();
+        for (PricedItem pricedItem : pricedOrder.items()) {
+            OrderItem orderItem = OrderItem.builder()
+                    .quantity(pricedItem.quantity())
+                    .productVariation(productVariations.apply(pricedItem.productVariationId()))
+                    .productName(pricedItem.productName())
+                    .sizeName(pricedItem.sizeName())
+                    .unitPrice(pricedItem.unitPrice())
+                    .category(pricedItem.category())
+                    .build();
+
+            orderItems.add(orderItem);
+        }
+
+        DeliveryData deliveryData = DeliveryData.builder()
+                .receiverName(createOrderDto.deliveryData().receiverName())
+                .address(createOrderDto.deliveryData().address())
+                .number(createOrderDto.deliveryData().number())
+                .complement(createOrderDto.deliveryData().complement())
+                .district(createOrderDto.deliveryData().district())
+                .zipCode(createOrderDto.deliveryData().zipCode())
+                .city(createOrderDto.deliveryData().city())
+                .state(createOrderDto.deliveryData().state())
+                .phoneNumber(createOrderDto.deliveryData().phone_number())
+                .build();
+
+        Order order = Order.builder()
+                .user(user)
+                .paymentMethod(PaymentMethod.valueOf(createOrderDto.paymentMethod().toUpperCase()))
+                .orderItems(orderItems)
+                .amount(pricedOrder.amount())
+                .deliveryData(deliveryData)
+                .build();
+
+        orderItems.forEach(orderItem -> orderItem.setOrder(order));
+        deliveryData.setOrder(order);
+
+        return order;
+    }
+
+    public record PricedOrder(List<PricedItem> items, BigDecimal amount) {
+    }
+
+    public record PricedItem(Long productVariationId, String productName, String sizeName, Category category, BigDecimal unitPrice, Integer quantity) {
+    }
+}
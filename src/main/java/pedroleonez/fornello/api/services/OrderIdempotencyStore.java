@@ -0,0 +1,121 @@
+package pedroleonez.fornello.api.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pedroleonez.fornello.api.cache.BoundedExpiringCache;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.exceptions.IdempotencyKeyReusedException;
+import pedroleonez.fornello.api.exceptions.IdempotentRequestInProgressException;
+import pedroleonez.fornello.api.exceptions.InvalidIdempotencyKeyException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/*
+remembers the orders created with an Idempotency-Key header, by user and key. a repeated key returns the
+stored order without running the creation again, and concurrent requests with the same key wait for the
+single execution in flight, for up to the wait timeout. failed executions are forgotten, so the client can
+retry them. the executions in flight are kept apart from the bounded cache of the completed ones, so a burst
+of other keys can't evict one of them and let a retry create the order a second time.
+ */
+@Component
+public class OrderIdempotencyStore {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final Duration timeToLive;
+    private final long waitTimeoutMillis;
+    private final BoundedExpiringCache<String, Execution> executions;
+    private final ConcurrentHashMap<String, Execution> executionsInFlight = new ConcurrentHashMap<>();
+
+    public OrderIdempotencyStore(@Value("${fornello.orders.idempotency.max-size:10000}") int maxSize,
+                                 @Value("${fornello.orders.idempotency.ttl-minutes:1440}") long timeToLiveMinutes,
+                                 @Value("${fornello.orders.idempotency.wait-timeout-ms:10000}") long waitTimeoutMillis,
+                                 MeterRegistry meterRegistry) {
+        this.timeToLive = Duration.ofMinutes(timeToLiveMinutes);
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.executions = new BoundedExpiringCache<>("order-idempotency-keys", maxSize);
+        this.executions.bindTo(meterRegistry);
+    }
+
+    public RecoveryOrderDto execute(Long userId, String idempotencyKey, CreateOrderDto createOrderDto, Supplier<RecoveryOrderDto> createOrder) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException();
+        }
+
+        String key = userId + ":" + idempotencyKey;
+        Execution completedExecution = executions.get(key);
+        if (completedExecution != null) {
+            return resultOf(completedExecution, createOrderDto);
+        }
+
+        Execution execution = new Execution(createOrderDto, new CompletableFuture<>());
+        Execution existingExecution = executionsInFlight.putIfAbsent(key, execution);
+        if (existingExecution != null) {
+            return resultOf(existingExecution, createOrderDto);
+        }
+
+        // the execution that held the key may have completed between the two lookups
+        completedExecution = executions.get(key);
+        if (completedExecution != null) {
+            executionsInFlight.remove(key, execution);
+            execution.result().complete(completedExecution.result().join());
+            return resultOf(completedExecution, createOrderDto);
+        }
+
+        try {
+            RecoveryOrderDto order = createOrder.get();
+            execution.result().complete(order);
+            // cached before it leaves the executions in flight, so a retry always finds it in one of them
+            executions.put(key, execution, Instant.now().plus(timeToLive));
+            return order;
+        } catch (RuntimeException ex) {
+            execution.result().completeExceptionally(ex);
+            throw ex;
+        } finally {
+            executionsInFlight.remove(key, execution);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${fornello.orders.idempotency.sweep-interval-ms:60000}")
+    public void removeExpiredKeys() {
+        executions.removeExpired();
+    }
+
+    // the same key can't be reused to create a different order
+    private RecoveryOrderDto resultOf(Execution execution, CreateOrderDto createOrderDto) {
+        if (!execution.createOrderDto().equals(createOrderDto)) {
+            throw new IdempotencyKeyReusedException();
+        }
+        return await(execution.result());
+    }
+
+    // waits for the execution in flight, rethrowing its own exception when it fails
+    private RecoveryOrderDto await(CompletableFuture<RecoveryOrderDto> result) {
+        try {
+            return result.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new IdempotentRequestInProgressException();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IdempotentRequestInProgressException();
+        }
+    }
+
+    private record Execution(CreateOrderDto createOrderDto, CompletableFuture<RecoveryOrderDto> result) {
+    }
+}
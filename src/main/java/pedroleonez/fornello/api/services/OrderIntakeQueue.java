@@ -0,0 +1,274 @@
+package pedroleonez.fornello.api.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderIntakeDto;
+import pedroleonez.fornello.api.entities.Order;
+import pedroleonez.fornello.api.entities.OrderIntake;
+import pedroleonez.fornello.api.enums.IntakeStatus;
+import pedroleonez.fornello.api.events.OrderCreatedEvent;
+import pedroleonez.fornello.api.exceptions.OrderIntakeFullException;
+import pedroleonez.fornello.api.exceptions.OrderIntakeNotFoundException;
+import pedroleonez.fornello.api.mappers.OrderMapper;
+import pedroleonez.fornello.api.repositories.OrderIntakeRepository;
+import pedroleonez.fornello.api.repositories.OrderRepository;
+import pedroleonez.fornello.api.repositories.ProductVariationRepository;
+import pedroleonez.fornello.api.repositories.UserRepository;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+asynchronous order intake: the order is validated and priced in the request, then stored in the order_intakes
+table and answered with a provisional intake id, so an accepted order survives a crash or a restart.
+a single writer thread drains the queued intakes in groups, oldest first: each group is turned into orders and
+marked created in one transaction, so an intake becomes exactly one order. the status of each intake can be
+looked up until some time after it completes; queued intakes are never removed.
+when too many intakes are queued the order is rejected right away instead of waiting.
+the intake is optional (fornello.orders.intake.enabled). the writer reads the table only when it starts, to
+drain what a previous run left queued, after each submit and, while saving fails, after a pause; otherwise
+it waits without querying.
+ */
+@Component
+@ConditionalOnProperty(name = "fornello.orders.intake.enabled", havingValue = "true")
+public class OrderIntakeQueue {
+
+    private static final long RETRY_DELAY_MILLIS = 5000;
+
+    private final OrderFactory orderFactory;
+    private final OrderRepository orderRepository;
+    private final OrderIntakeRepository orderIntakeRepository;
+    private final UserRepository userRepository;
+    private final ProductVariationRepository productVariationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderMapper orderMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final int queueCapacity;
+    private final int groupSize;
+    private final Duration statusTimeToLive;
+    private final AtomicInteger queuedIntakes = new AtomicInteger();
+    // released on each submit and on stop, the writer waits on it while nothing is queued
+    private final Semaphore submitted = new Semaphore(0);
+    private final Counter writerErrors;
+    private Thread writer;
+    private volatile boolean running = true;
+
+    public OrderIntakeQueue(OrderFactory orderFactory,
+                            OrderRepository orderRepository,
+                            OrderIntakeRepository orderIntakeRepository,
+                            UserRepository userRepository,
+                            ProductVariationRepository productVariationRepository,
+                            TransactionTemplate transactionTemplate,
+                            OrderMapper orderMapper,
+                            ApplicationEventPublisher eventPublisher,
+                            ObjectMapper objectMapper,
+                            @Value("${fornello.orders.intake.queue-capacity:1000}") int queueCapacity,
+                            @Value("${fornello.orders.intake.group-size:100}") int groupSize,
+                            @Value("${fornello.orders.intake.status-ttl-minutes:60}") long statusTimeToLiveMinutes,
+                            MeterRegistry meterRegistry) {
+        this.orderFactory = orderFactory;
+        this.orderRepository = orderRepository;
+        this.orderIntakeRepository = orderIntakeRepository;
+        this.userRepository = userRepository;
+        this.productVariationRepository = productVariationRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.orderMapper = orderMapper;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.queueCapacity = queueCapacity;
+        this.groupSize = groupSize;
+        this.statusTimeToLive = Duration.ofMinutes(statusTimeToLiveMinutes);
+        this.writerErrors = Counter.builder("fornello.orders.intake.writer.errors")
+                .description("Failures of the intake writer outside the handling of a single intake")
+                .register(meterRegistry);
+        Gauge.builder("fornello.orders.intake.queue.size", queuedIntakes, AtomicInteger::get)
+                .register(meterRegistry);
+    }
+
+    // the intakes queued before a restart are counted and drained like the new ones
+    @PostConstruct
+    public synchronized void start() {
+        queuedIntakes.set((int) orderIntakeRepository.countByStatus(IntakeStatus.QUEUED));
+        running = true;
+        writer = new Thread(this::writeQueuedOrders, "order-intake-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // the intakes still queued stay in the table for the next start
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        submitted.release();
+        writer.join();
+    }
+
+    public RecoveryOrderIntakeDto submit(AuthenticatedUser authenticatedUser, CreateOrderDto createOrderDto) {
+        OrderFactory.PricedOrder pricedOrder = orderFactory.priceOrder(createOrderDto, orderFactory.findProductVariations(createOrderDto.orderItems()));
+
+        if (!running || queuedIntakes.incrementAndGet() > queueCapacity) {
+            queuedIntakes.decrementAndGet();
+            throw new OrderIntakeFullException();
+        }
+        OrderIntake orderIntake;
+        try {
+            orderIntake = orderIntakeRepository.save(OrderIntake.builder()
+                    .id(UUID.randomUUID().toString())
+                    .userId(authenticatedUser.id())
+                    .status(IntakeStatus.QUEUED)
+                    .payload(writePayload(new QueuedOrder(createOrderDto, pricedOrder)))
+                    .amount(pricedOrder.amount())
+                    .createdDate(LocalDateTime.now())
+                    .build());
+        } catch (RuntimeException ex) {
+            queuedIntakes.decrementAndGet();
+            throw ex;
+        }
+        submitted.release();
+        return toDto(orderIntake);
+    }
+
+    // customers only see their own intakes
+    public RecoveryOrderIntakeDto getIntake(AuthenticatedUser authenticatedUser, String intakeId) {
+        OrderIntake orderIntake = orderIntakeRepository.findById(intakeId).orElseThrow(OrderIntakeNotFoundException::new);
+        if (authenticatedUser.isCustomer() && !orderIntake.getUserId().equals(authenticatedUser.id())) {
+            throw new OrderIntakeNotFoundException();
+        }
+        return toDto(orderIntake);
+    }
+
+    @Scheduled(fixedDelayString = "${fornello.orders.intake.sweep-interval-ms:60000}")
+    public void removeExpiredIntakes() {
+        orderIntakeRepository.deleteByStatusNotAndCompletedDateBefore(IntakeStatus.QUEUED, LocalDateTime.now().minus(statusTimeToLive));
+    }
+
+    /*
+    the permits are drained before the table is read again, so an intake submitted meanwhile is either read
+    or leaves a permit for the next wait.
+    anything thrown while writing a group (even an Error) is counted and the table is read again after a
+    pause, so the writer only stops on shutdown; the intakes of a group that wasn't committed stay queued
+     */
+    private void writeQueuedOrders() {
+        while (running) {
+            try {
+                if (writeGroup() == 0) {
+                    submitted.acquire();
+                    submitted.drainPermits();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable ex) {
+                writerErrors.increment();
+                try {
+                    submitted.tryAcquire(RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // the whole group is saved in one transaction; if it fails, each intake is saved on its own, so one bad order doesn't fail the others
+    private int writeGroup() {
+        List<String> intakeIds = orderIntakeRepository.findIdsByStatus(IntakeStatus.QUEUED, PageRequest.of(0, groupSize));
+        if (intakeIds.isEmpty()) {
+            return 0;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(transactionStatus -> writeOrders(intakeIds));
+        } catch (RuntimeException groupException) {
+            for (String intakeId : intakeIds) {
+                try {
+                    transactionTemplate.executeWithoutResult(transactionStatus -> writeOrders(List.of(intakeId)));
+                } catch (RuntimeException ex) {
+                    transactionTemplate.executeWithoutResult(transactionStatus -> markFailed(intakeId));
+                }
+            }
+        }
+        return intakeIds.size();
+    }
+
+    // must run inside a transaction: the user and product variations are loaded while mapping, and the events are delivered after the commit
+    private void writeOrders(List<String> intakeIds) {
+        List<OrderIntake> orderIntakes = orderIntakeRepository.findByIdInAndStatusForUpdate(intakeIds, IntakeStatus.QUEUED);
+        List<Order> orders = orderRepository.saveAll(orderIntakes.stream().map(this::buildOrder).toList());
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            eventPublisher.publishEvent(new OrderCreatedEvent(orderMapper.mapOrderToRecoveryOrderDto(order)));
+            complete(orderIntakes.get(i), IntakeStatus.CREATED, order.getId(), null);
+        }
+    }
+
+    private void markFailed(String intakeId) {
+        orderIntakeRepository.findByIdInAndStatusForUpdate(List.of(intakeId), IntakeStatus.QUEUED)
+                .forEach(orderIntake -> complete(orderIntake, IntakeStatus.FAILED, null, "The order could not be saved."));
+    }
+
+    // the intake is updated by the transaction that completes it, and leaves the queue once that commits
+    private void complete(OrderIntake orderIntake, IntakeStatus status, Long orderId, String error) {
+        orderIntake.setStatus(status);
+        orderIntake.setOrderId(orderId);
+        orderIntake.setError(error);
+        orderIntake.setCompletedDate(LocalDateTime.now());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                queuedIntakes.decrementAndGet();
+            }
+        });
+    }
+
+    // the order was already validated when queued, so only references to the user and product variations are needed
+    private Order buildOrder(OrderIntake orderIntake) {
+        QueuedOrder queuedOrder = readPayload(orderIntake.getPayload());
+        return orderFactory.buildOrder(userRepository.getReferenceById(orderIntake.getUserId()), queuedOrder.createOrderDto(),
+                queuedOrder.pricedOrder(), productVariationRepository::getReferenceById);
+    }
+
+    private String writePayload(QueuedOrder queuedOrder) {
+        try {
+            return objectMapper.writeValueAsString(queuedOrder);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private QueuedOrder readPayload(String payload) {
+        try {
+            return objectMapper.readValue(payload, QueuedOrder.class);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static RecoveryOrderIntakeDto toDto(OrderIntake orderIntake) {
+        return new RecoveryOrderIntakeDto(orderIntake.getId(), orderIntake.getStatus(), orderIntake.getOrderId(), orderIntake.getAmount(), orderIntake.getError());
+    }
+
+    private record QueuedOrder(CreateOrderDto createOrderDto, OrderFactory.PricedOrder pricedOrder) {
+    }
+}
@@ -0,0 +1,131 @@
+package pedroleonez.fornello.api.services;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.repositories.projections.OrderStatusRow;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/*
+lets a view kept up to date by the order events (OrderCounts, SalesRollups) be rebuilt from the database
+without holding its lock while reading, and without applying an event twice or missing one.
+the order events are published inside the transaction that writes the order, so an order is pending from
+its event until that transaction completes. a rebuild reads, in one snapshot, the rebuilt view and the
+status of every order that was pending when it started or got an event while it read. an event of one of
+those orders is newer than the snapshot only if it moves the order from the status the snapshot saw
+(statuses only move forward, so a status is never seen twice). the events delivered while the rebuild
+reads are applied to the current view and replayed over the rebuilt one.
+not thread-safe: the owner calls it holding its own lock, which is also the one given here.
+ */
+final class OrderRebuildWindow {
+
+    private final Object lock;
+
+    // the events published inside a transaction that hasn't completed, and how many of them each order has
+    private final Set<Object> pendingEvents = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<Long, Integer> pendingOrders = new HashMap<>();
+    // status of the orders read with the last rebuild, null for an order that wasn't in its snapshot
+    private Map<Long, Status> snapshotStatuses = new HashMap<>();
+    // both null when no rebuild is reading
+    private Set<Long> rebuildOrderIds;
+    private List<Change> rebuildChanges;
+
+    OrderRebuildWindow(Object lock) {
+        this.lock = lock;
+    }
+
+    // called inside the transaction that publishes the event
+    void published(Object event, Long orderId) {
+        if (rebuildOrderIds != null) {
+            rebuildOrderIds.add(orderId);
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        pendingEvents.add(event);
+        pendingOrders.merge(orderId, 1, Integer::sum);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            // a committed event stops being pending when it's delivered, which may happen after this
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    synchronized (lock) {
+                        completed(event, orderId);
+                    }
+                }
+            }
+        });
+    }
+
+    // called when the event is delivered after its transaction commits, with the change it makes to the view
+    void delivered(Object event, Long orderId, Status previousStatus, Status status, Runnable change) {
+        completed(event, orderId);
+        if (rebuildChanges != null) {
+            rebuildChanges.add(new Change(orderId, previousStatus, status, change));
+        }
+        if (isNewer(orderId, previousStatus, status)) {
+            change.run();
+        }
+    }
+
+    // before the snapshot of the rebuild starts
+    void startRebuild() {
+        rebuildOrderIds = new HashSet<>(pendingOrders.keySet());
+        rebuildChanges = new ArrayList<>();
+    }
+
+    // after the snapshot of the rebuild has started: the orders whose status must be read in it
+    Set<Long> rebuildOrderIds() {
+        return new HashSet<>(rebuildOrderIds);
+    }
+
+    // once the rebuilt view is in place, with the statuses read for rebuildOrderIds()
+    void finishRebuild(Set<Long> orderIds, Collection<OrderStatusRow> orderStatusRows) {
+        Map<Long, Status> statuses = new HashMap<>();
+        orderIds.forEach(orderId -> statuses.put(orderId, null));
+        orderStatusRows.forEach(orderStatusRow -> statuses.put(orderStatusRow.id(), orderStatusRow.status()));
+        snapshotStatuses = statuses;
+        for (Change change : rebuildChanges) {
+            if (isNewer(change.orderId(), change.previousStatus(), change.status())) {
+                change.change().run();
+            }
+        }
+    }
+
+    // after the rebuild, finished or not
+    void endRebuild() {
+        rebuildOrderIds = null;
+        rebuildChanges = null;
+    }
+
+    // previousStatus is null for a created order and status is null for a deleted one
+    private boolean isNewer(Long orderId, Status previousStatus, Status status) {
+        if (!snapshotStatuses.containsKey(orderId)) {
+            return true;
+        }
+        if (!Objects.equals(snapshotStatuses.get(orderId), previousStatus)) {
+            return false;
+        }
+        snapshotStatuses.put(orderId, status);
+        return true;
+    }
+
+    private void completed(Object event, Long orderId) {
+        if (pendingEvents.remove(event)) {
+            pendingOrders.computeIfPresent(orderId, (id, events) -> events > 1 ? events - 1 : null);
+        }
+    }
+
+    private record Change(Long orderId, Status previousStatus, Status status, Runnable change) {
+    }
+}
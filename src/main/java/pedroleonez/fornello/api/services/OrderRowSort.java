@@ -0,0 +1,57 @@
+package pedroleonez.fornello.api.services;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import pedroleonez.fornello.api.exceptions.InvalidSortException;
+import pedroleonez.fornello.api.repositories.projections.OrderRow;
+
+import java.util.Comparator;
+import java.util.Map;
+
+/*
+sort of the offset order listings, applied in memory as well to merge the hot and archived rows of a page in
+the order the database returns them. only the columns both order tables have can be sorted on, and the id
+always breaks the ties, so a row has the same place in every page. the statuses and payment methods are
+stored by name, and the nulls come first in ascending order, as the database sorts them.
+ */
+final class OrderRowSort {
+
+    private static final Map<String, Comparator<OrderRow>> COMPARATORS = Map.of(
+            "id", Comparator.comparing(OrderRow::id, Comparator.nullsFirst(Comparator.naturalOrder())),
+            "status", Comparator.comparing(orderRow -> orderRow.status() == null ? null : orderRow.status().name(), Comparator.nullsFirst(Comparator.naturalOrder())),
+            "paymentMethod", Comparator.comparing(orderRow -> orderRow.paymentMethod() == null ? null : orderRow.paymentMethod().name(), Comparator.nullsFirst(Comparator.naturalOrder())),
+            "amount", Comparator.comparing(OrderRow::amount, Comparator.nullsFirst(Comparator.naturalOrder())),
+            "createdDate", Comparator.comparing(OrderRow::createdDate, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+    private OrderRowSort() {
+    }
+
+    // the requested page, sorted by id after the requested properties
+    static Pageable withTieBreak(Pageable pageable) {
+        Sort sort = pageable.getSort();
+        for (Sort.Order order : sort) {
+            if (!COMPARATORS.containsKey(order.getProperty())) {
+                throw new InvalidSortException();
+            }
+        }
+        if (sort.getOrderFor("id") == null) {
+            sort = sort.and(Sort.by("id"));
+        }
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+    }
+
+    // every row up to the end of the page, plus one to know if there is a next page
+    static Pageable upToEndOf(Pageable pageable) {
+        return PageRequest.of(0, (int) Math.min(pageable.getOffset() + pageable.getPageSize() + 1, Integer.MAX_VALUE), pageable.getSort());
+    }
+
+    static Comparator<OrderRow> comparator(Sort sort) {
+        Comparator<OrderRow> comparator = (first, second) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<OrderRow> propertyComparator = COMPARATORS.get(order.getProperty());
+            comparator = comparator.thenComparing(order.isAscending() ? propertyComparator : propertyComparator.reversed());
+        }
+        return comparator;
+    }
+}
@@ -1,143 +1,404 @@
 package pedroleonez.fornello.api.services;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderBatchDto;
 import pedroleonez.fornello.api.dtos.input.order.CreateOrderDto;
-import pedroleonez.fornello.api.dtos.input.order.CreateOrderItemDto;
 import pedroleonez.fornello.api.dtos.input.order.UpdateStatusOrderDto;
+import pedroleonez.fornello.api.dtos.input.order.UpdateStatusOrdersDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderBatchDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderBatchResultDto;
 import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderStatusBulkDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderStatusSkipDto;
+import pedroleonez.fornello.api.dtos.output.page.RecoveryCursorPageDto;
+import pedroleonez.fornello.api.dtos.output.page.RecoverySlicePageDto;
 import pedroleonez.fornello.api.entities.*;
-import pedroleonez.fornello.api.enums.PaymentMethod;
 import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.enums.StatusChangeSkipReason;
+import pedroleonez.fornello.api.events.OrderCreatedEvent;
+import pedroleonez.fornello.api.events.OrderDeletedEvent;
+import pedroleonez.fornello.api.events.OrderStatusChangedEvent;
 import pedroleonez.fornello.api.mappers.OrderMapper;
+import pedroleonez.fornello.api.repositories.ArchivedOrderRepository;
 import pedroleonez.fornello.api.repositories.OrderRepository;
-import pedroleonez.fornello.api.repositories.ProductVariationRepository;
 import pedroleonez.fornello.api.repositories.UserRepository;
-import pedroleonez.fornello.api.security.authentication.JwtTokenService;
-import pedroleonez.fornello.api.enums.RoleName;
-import pedroleonez.fornello.api.exceptions.ProductVariationNotFoundException;
+import pedroleonez.fornello.api.repositories.projections.OrderRow;
+import pedroleonez.fornello.api.repositories.projections.OrderStatusRow;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
 import pedroleonez.fornello.api.exceptions.OrderNotFoundForUserException;
 import pedroleonez.fornello.api.exceptions.OrderNotFoundException;
-import pedroleonez.fornello.api.exceptions.UserNotFoundException;
+import pedroleonez.fornello.api.exceptions.InvalidStatusTransitionException;
+import pedroleonez.fornello.api.exceptions.OrderStatusConflictException;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class OrderService {
 
-    private final JwtTokenService jwtTokenService;
-    private final ProductVariationRepository productVariationRepository;
+    // same order of the cursor queries: newest first, then by id
+    private static final Comparator<OrderRow> CURSOR_ORDER = Comparator
+            .comparing(OrderRow::createdDate, Comparator.reverseOrder())
+            .thenComparing(OrderRow::id);
+
+    private final OrderFactory orderFactory;
     private final OrderRepository orderRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
     private final UserRepository userRepository;
     private final OrderMapper orderMapper;
+    private final OrderDtoAssembler orderDtoAssembler;
+    private final OrderCounts orderCounts;
+    private final OrderIdempotencyStore orderIdempotencyStore;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchChunkSize;
 
-    public OrderService(JwtTokenService jwtTokenService, ProductVariationRepository productVariationRepository, OrderRepository orderRepository, UserRepository userRepository, OrderMapper orderMapper) {
-        this.jwtTokenService = jwtTokenService;
-        this.productVariationRepository = productVariationRepository;
+    public OrderService(OrderFactory orderFactory, OrderRepository orderRepository, ArchivedOrderRepository archivedOrderRepository, UserRepository userRepository, OrderMapper orderMapper, OrderDtoAssembler orderDtoAssembler, OrderCounts orderCounts, OrderIdempotencyStore orderIdempotencyStore,
+                        TransactionTemplate transactionTemplate, ApplicationEventPublisher eventPublisher, @Value("${fornello.orders.batch.chunk-size:50}") int batchChunkSize) {
+        this.orderFactory = orderFactory;
         this.orderRepository = orderRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
         this.userRepository = userRepository;
         this.orderMapper = orderMapper;
+        this.orderDtoAssembler = orderDtoAssembler;
+        this.orderCounts = orderCounts;
+        this.orderIdempotencyStore = orderIdempotencyStore;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.batchChunkSize = batchChunkSize;
     }
 
-    public RecoveryOrderDto createOrder(String token, CreateOrderDto createOrderDto) {
-        List<OrderItem> orderItems = new ArrayList<>();
-        BigDecimal amount = BigDecimal.ZERO;
+    // without an idempotency key every request creates a new order
+    public RecoveryOrderDto createOrder(AuthenticatedUser authenticatedUser, CreateOrderDto createOrderDto, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return createOrder(authenticatedUser, createOrderDto);
+        }
+        return orderIdempotencyStore.execute(authenticatedUser.id(), idempotencyKey, createOrderDto,
+                () -> createOrder(authenticatedUser, createOrderDto));
+    }
 
-        for(CreateOrderItemDto createOrderItemDto : createOrderDto.orderItems()) {
-            ProductVariation productVariation = productVariationRepository
-                    .findByProductIdAndProductVariationId(createOrderItemDto.productId(), createOrderItemDto.productVariationId())
-                    .orElseThrow(ProductVariationNotFoundException::new);
+    // the order is saved and its event published in one transaction, so the listeners that run before the commit see the insert
+    public RecoveryOrderDto createOrder(AuthenticatedUser authenticatedUser, CreateOrderDto createOrderDto) {
+        return transactionTemplate.execute(transactionStatus -> {
+            // the user was already authenticated by the filter, so only a reference to it is needed
+            User user = userRepository.getReferenceById(authenticatedUser.id());
 
-            amount = amount.add(productVariation.getPrice().multiply(new BigDecimal(createOrderItemDto.quantity())));
+            Order order = orderFactory.buildOrder(user, createOrderDto, orderFactory.findProductVariations(createOrderDto.orderItems()));
 
-            OrderItem orderItem = OrderItem.builder()
-                    .quantity(createOrderItemDto.quantity())
-                    .productVariation(productVariation)
-                    .build();
+            RecoveryOrderDto recoveryOrderDto = orderMapper.mapOrderToRecoveryOrderDto(orderRepository.save(order));
+            eventPublisher.publishEvent(new OrderCreatedEvent(recoveryOrderDto));
+            return recoveryOrderDto;
+        });
+    }
 
-            orderItems.add(orderItem);
+    /*
+    creates the orders of a batch, reporting the result of each one in the position it was sent.
+    the product variations of the whole batch are searched with a single query, and the valid orders are
+    saved in chunks, each one in its own transaction, so their inserts are sent in JDBC batches.
+    a chunk that fails to be saved doesn't undo the chunks already saved.
+     */
+    public RecoveryOrderBatchDto createOrders(AuthenticatedUser authenticatedUser, CreateOrderBatchDto createOrderBatchDto) {
+        User user = userRepository.getReferenceById(authenticatedUser.id());
+        List<CreateOrderDto> createOrderDtos = createOrderBatchDto.orders();
+        Map<Long, ProductVariation> productVariationsById = orderFactory.findProductVariations(createOrderDtos.stream()
+                .flatMap(createOrderDto -> createOrderDto.orderItems().stream())
+                .toList());
+
+        RecoveryOrderBatchResultDto[] results = new RecoveryOrderBatchResultDto[createOrderDtos.size()];
+        List<Order> orders = new ArrayList<>();
+        List<Integer> orderIndexes = new ArrayList<>();
+
+        for (int i = 0; i < createOrderDtos.size(); i++) {
+            try {
+                orders.add(orderFactory.buildOrder(user, createOrderDtos.get(i), productVariationsById));
+                orderIndexes.add(i);
+            } catch (RuntimeException ex) {
+                results[i] = new RecoveryOrderBatchResultDto(i, null, null, ex.getMessage());
+            }
         }
 
-        DeliveryData deliveryData = DeliveryData.builder()
-                .receiverName(createOrderDto.deliveryData().receiverName())
-                .address(createOrderDto.deliveryData().address())
-                .number(createOrderDto.deliveryData().number())
-                .complement(createOrderDto.deliveryData().complement())
-                .district(createOrderDto.deliveryData().district())
-                .zipCode(createOrderDto.deliveryData().zipCode())
-                .city(createOrderDto.deliveryData().city())
-                .state(createOrderDto.deliveryData().state())
-                .phoneNumber(createOrderDto.deliveryData().phone_number())
-                .build();
+        for (int start = 0; start < orders.size(); start += batchChunkSize) {
+            int end = Math.min(start + batchChunkSize, orders.size());
+            List<Order> chunk = orders.subList(start, end);
+            String error = null;
+            try {
+                // the events are delivered only if the chunk is committed
+                transactionTemplate.executeWithoutResult(transactionStatus -> orderRepository.saveAll(chunk)
+                        .forEach(order -> eventPublisher.publishEvent(new OrderCreatedEvent(orderMapper.mapOrderToRecoveryOrderDto(order)))));
+            } catch (RuntimeException ex) {
+                error = "The order could not be saved.";
+            }
+            for (int i = start; i < end; i++) {
+                int index = orderIndexes.get(i);
+                Order order = orders.get(i);
+                results[index] = error == null
+                        ? new RecoveryOrderBatchResultDto(index, order.getId(), order.getAmount(), null)
+                        : new RecoveryOrderBatchResultDto(index, null, null, error);
+            }
+        }
 
-        User user = getUser(token);
+        int failed = (int) Arrays.stream(results).filter(result -> result.error() != null).count();
+        return new RecoveryOrderBatchDto(results.length - failed, failed, List.of(results));
+    }
 
-        Order order = Order.builder()
-                .user(user)
-                .paymentMethod(PaymentMethod.valueOf(createOrderDto.paymentMethod().toUpperCase()))
-                .orderItems(orderItems)
-                .amount(amount)
-                .deliveryData(deliveryData)
-                .build();
+    /*
+    the read-only endpoints build the DTOs straight from projection rows, without loading entities.
+    an order that isn't in the hot table anymore is searched in the archive
+     */
+    public RecoveryOrderDto getOrderById(AuthenticatedUser authenticatedUser, Long orderId) {
+        if (authenticatedUser.isCustomer()) {
+            return orderRepository.findRowByOrderIdAndUserId(orderId, authenticatedUser.id()).map(orderDtoAssembler::assemble)
+                    .or(() -> archivedOrderRepository.findRowByOrderIdAndUserId(orderId, authenticatedUser.id()).map(orderDtoAssembler::assembleArchived))
+                    .orElseThrow(OrderNotFoundForUserException::new);
+        }
+        return orderRepository.findRowById(orderId).map(orderDtoAssembler::assemble)
+                .or(() -> archivedOrderRepository.findRowById(orderId).map(orderDtoAssembler::assembleArchived))
+                .orElseThrow(OrderNotFoundException::new);
+    }
 
-        orderItems.forEach(orderItem -> orderItem.setOrder(order));
-        deliveryData.setOrder(order);
+    // the total comes from the order counts, so no count query runs next to the page query
+    public Page<RecoveryOrderDto> getOrders(AuthenticatedUser authenticatedUser, Pageable pageable) {
+        long total = authenticatedUser.isCustomer() ? orderCounts.countByUser(authenticatedUser.id()) : orderCounts.count();
+        return toPage(findOrders(authenticatedUser, pageable), total);
+    }
 
-        return orderMapper.mapOrderToRecoveryOrderDto(orderRepository.save(order));
+    // slice mode: only tells if there is a next page, without any total
+    public RecoverySlicePageDto<RecoveryOrderDto> getOrdersSlice(AuthenticatedUser authenticatedUser, Pageable pageable) {
+        return toSlicePage(findOrders(authenticatedUser, pageable));
     }
 
-    public RecoveryOrderDto getOrderById(String token, Long orderId) {
-        User user = getUser(token);
+    public Page<RecoveryOrderDto> getOrderByStatus(String statusName, AuthenticatedUser authenticatedUser, Pageable pageable) {
+        Status status = Status.valueOf(statusName.toUpperCase());
+        long total = authenticatedUser.isCustomer() ? orderCounts.countByUser(authenticatedUser.id(), status) : orderCounts.count(status);
+        return toPage(findOrdersByStatus(status, authenticatedUser, pageable), total);
+    }
 
-        if (user.getRoles().stream().anyMatch(role -> role.getName().equals(RoleName.ROLE_CUSTOMER))) {
-            return orderMapper.mapOrderToRecoveryOrderDto(orderRepository
-                    .findByOrderIdAndUserId(orderId, user.getId())
-                    .orElseThrow(OrderNotFoundForUserException::new));
-        }
-        return orderMapper.mapOrderToRecoveryOrderDto(orderRepository.findById(orderId)
-                .orElseThrow(OrderNotFoundException::new));
+    public RecoverySlicePageDto<RecoveryOrderDto> getOrderByStatusSlice(String statusName, AuthenticatedUser authenticatedUser, Pageable pageable) {
+        return toSlicePage(findOrdersByStatus(Status.valueOf(statusName.toUpperCase()), authenticatedUser, pageable));
     }
 
-    public Page<RecoveryOrderDto> getOrders(String token, Pageable pageable) {
-        User user = getUser(token);
+    public RecoveryCursorPageDto<RecoveryOrderDto> getOrdersByCursor(AuthenticatedUser authenticatedUser, String cursor, int size) {
+        OrderCursor position = OrderCursor.decode(cursor);
 
-        if (user.getRoles().stream().anyMatch(role -> role.getName().equals(RoleName.ROLE_CUSTOMER))) {
-            Page<Order> orderPage = orderRepository.findAllByUserId(user.getId(), pageable);
-            return orderPage.map(orderMapper::mapOrderToRecoveryOrderDto);
+        // one extra row is read only to know if there is a next page
+        Pageable limit = PageRequest.of(0, size + 1);
+
+        // the order history continues into the archive
+        if (authenticatedUser.isCustomer()) {
+            return toCursorPage(orderRepository.findRowsByUserIdAfter(authenticatedUser.id(), position.createdDate(), position.id(), limit),
+                    archivedOrderRepository.findRowsByUserIdAfter(authenticatedUser.id(), position.createdDate(), position.id(), limit), size);
         }
-        Page<Order> orderPage = orderRepository.findAll(pageable);
-        return orderPage.map(orderMapper::mapOrderToRecoveryOrderDto);
+        return toCursorPage(orderRepository.findRowsAfter(position.createdDate(), position.id(), limit),
+                archivedOrderRepository.findRowsAfter(position.createdDate(), position.id(), limit), size);
     }
 
-    public Page<RecoveryOrderDto> getOrderByStatus(String statusName, String token, Pageable pageable) {
-        User user = getUser(token);
+    public RecoveryCursorPageDto<RecoveryOrderDto> getOrderByStatusAndCursor(String statusName, AuthenticatedUser authenticatedUser, String cursor, int size) {
+        Status status = Status.valueOf(statusName.toUpperCase());
+        OrderCursor position = OrderCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, size + 1);
 
-        if (user.getRoles().stream().anyMatch(role -> role.getName().equals(RoleName.ROLE_CUSTOMER))) {
-            Page<Order> orderPage = orderRepository.findOrderByStatusAndUser(Status.valueOf(statusName.toUpperCase()), user.getId(), pageable);
-            return orderPage.map(orderMapper::mapOrderToRecoveryOrderDto);
+        if (authenticatedUser.isCustomer()) {
+            return toCursorPage(orderRepository.findRowsByStatusAndUserIdAfter(status, authenticatedUser.id(), position.createdDate(), position.id(), limit), size);
         }
-        Page<Order> orderPage = orderRepository.findByStatus(Status.valueOf(statusName.toUpperCase()), pageable);
-        return orderPage.map(orderMapper::mapOrderToRecoveryOrderDto);
+        return toCursorPage(orderRepository.findRowsByStatusAfter(status, position.createdDate(), position.id(), limit), size);
     }
 
+    /*
+    the status changes with a single conditional update, without loading the order: if another request
+    changed the status after it was read, nothing is updated and the conflict is reported
+     */
     public RecoveryOrderDto changeOrderStatus(Long orderId, UpdateStatusOrderDto updateStatusOrderDto) {
-        Order order = orderRepository.findById(orderId).orElseThrow(OrderNotFoundForUserException::new);
-        order.setStatus(Status.valueOf(updateStatusOrderDto.status().toUpperCase()));
-        return orderMapper.mapOrderToRecoveryOrderDto(orderRepository.save(order));
+        Status newStatus = Status.valueOf(updateStatusOrderDto.status().toUpperCase());
+        Status previousStatus = orderRepository.findStatusById(orderId).orElseThrow(OrderNotFoundForUserException::new);
+        if (!previousStatus.canChangeTo(newStatus)) {
+            throw new InvalidStatusTransitionException();
+        }
+
+        // the event is published inside the transaction of the update, like every order event
+        return transactionTemplate.execute(transactionStatus -> {
+            if (orderRepository.updateStatus(orderId, previousStatus, newStatus) == 0) {
+                throw new OrderStatusConflictException();
+            }
+
+            RecoveryOrderDto recoveryOrderDto = orderDtoAssembler.assemble(orderRepository.findRowById(orderId)
+                    .orElseThrow(OrderNotFoundForUserException::new));
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(recoveryOrderDto, previousStatus));
+            return recoveryOrderDto;
+        });
+    }
+
+    /*
+    applies one status to many orders with the same rules of changeOrderStatus, running one update per
+    current status. everything runs in one transaction holding the row locks of the orders, so the statuses
+    read are the ones updated and only the orders changed by this call get an event (published after the
+    commit). the orders that don't exist or can't change to the status are skipped and reported.
+     */
+    public RecoveryOrderStatusBulkDto changeOrdersStatus(UpdateStatusOrdersDto updateStatusOrdersDto) {
+        Status newStatus = Status.valueOf(updateStatusOrdersDto.status().toUpperCase());
+        List<Long> orderIds = updateStatusOrdersDto.orderIds().stream().distinct().toList();
+        return transactionTemplate.execute(transactionStatus -> changeOrdersStatus(orderIds, newStatus));
+    }
+
+    private RecoveryOrderStatusBulkDto changeOrdersStatus(List<Long> orderIds, Status newStatus) {
+        Map<Long, Status> statusesById = orderRepository.findStatusRowsByIdInForUpdate(orderIds).stream()
+                .collect(Collectors.toMap(OrderStatusRow::id, OrderStatusRow::status));
+
+        List<RecoveryOrderStatusSkipDto> skippedOrders = new ArrayList<>();
+        Map<Status, List<Long>> orderIdsByStatus = new EnumMap<>(Status.class);
+        for (Long orderId : orderIds) {
+            Status status = statusesById.get(orderId);
+            if (status == null) {
+                skippedOrders.add(new RecoveryOrderStatusSkipDto(orderId, null, StatusChangeSkipReason.NOT_FOUND));
+            } else if (!status.canChangeTo(newStatus)) {
+                skippedOrders.add(new RecoveryOrderStatusSkipDto(orderId, status, StatusChangeSkipReason.INVALID_TRANSITION));
+            } else {
+                orderIdsByStatus.computeIfAbsent(status, key -> new ArrayList<>()).add(orderId);
+            }
+        }
+
+        Map<Long, Status> previousStatusesById = new HashMap<>();
+        for (Map.Entry<Status, List<Long>> entry : orderIdsByStatus.entrySet()) {
+            Status previousStatus = entry.getKey();
+            List<Long> sourceOrderIds = entry.getValue();
+            // the rows are locked, so the conditional update can only miss one if the lock wasn't honored
+            if (orderRepository.updateStatusIn(sourceOrderIds, previousStatus, newStatus) != sourceOrderIds.size()) {
+                throw new OrderStatusConflictException();
+            }
+            sourceOrderIds.forEach(orderId -> previousStatusesById.put(orderId, previousStatus));
+        }
+
+        List<Long> updatedOrderIds = orderIds.stream().filter(previousStatusesById::containsKey).toList();
+        if (!updatedOrderIds.isEmpty()) {
+            orderDtoAssembler.assemble(orderRepository.findRowsByIdIn(updatedOrderIds)).forEach(recoveryOrderDto ->
+                    eventPublisher.publishEvent(new OrderStatusChangedEvent(recoveryOrderDto, previousStatusesById.get(recoveryOrderDto.id()))));
+        }
+        return new RecoveryOrderStatusBulkDto(newStatus, updatedOrderIds, skippedOrders);
     }
 
     public void deleteOrderById(Long orderId) {
-        if (!orderRepository.existsById(orderId)) {
-            throw new OrderNotFoundException();
+        transactionTemplate.executeWithoutResult(transactionStatus -> {
+            RecoveryOrderDto recoveryOrderDto = orderDtoAssembler.assemble(orderRepository.findRowById(orderId)
+                    .orElseThrow(OrderNotFoundException::new));
+            orderRepository.deleteById(orderId);
+            eventPublisher.publishEvent(new OrderDeletedEvent(recoveryOrderDto));
+        });
+    }
+
+    /*
+    the order history continues into the archive. when the counts show archived orders in the listing, the
+    rows up to the end of the page are read from both tables and merged in memory, so deep pages read every
+    row before them (the cursor listing doesn't); otherwise only the hot table is read
+     */
+    private Slice<RecoveryOrderDto> findOrders(AuthenticatedUser authenticatedUser, Pageable pageable) {
+        Pageable sortedPageable = OrderRowSort.withTieBreak(pageable);
+        Pageable upToEndOfPage = OrderRowSort.upToEndOf(sortedPageable);
+        if (authenticatedUser.isCustomer()) {
+            if (!orderCounts.mayHaveArchivedOrdersByUser(authenticatedUser.id())) {
+                return orderDtoAssembler.assemble(orderRepository.findRowsByUserId(authenticatedUser.id(), sortedPageable));
+            }
+            return toMergedSlice(orderRepository.findRowsByUserId(authenticatedUser.id(), upToEndOfPage).getContent(),
+                    archivedOrderRepository.findRowsByUserId(authenticatedUser.id(), upToEndOfPage), sortedPageable);
+        }
+        if (!orderCounts.mayHaveArchivedOrders()) {
+            return orderDtoAssembler.assemble(orderRepository.findAllRows(sortedPageable));
+        }
+        return toMergedSlice(orderRepository.findAllRows(upToEndOfPage).getContent(), archivedOrderRepository.findRows(upToEndOfPage), sortedPageable);
+    }
+
+    private Slice<RecoveryOrderDto> findOrdersByStatus(Status status, AuthenticatedUser authenticatedUser, Pageable pageable) {
+        Pageable sortedPageable = OrderRowSort.withTieBreak(pageable);
+        Pageable upToEndOfPage = OrderRowSort.upToEndOf(sortedPageable);
+        if (authenticatedUser.isCustomer()) {
+            if (!orderCounts.mayHaveArchivedOrdersByUser(authenticatedUser.id(), status)) {
+                return orderDtoAssembler.assemble(orderRepository.findRowsByStatusAndUserId(status, authenticatedUser.id(), sortedPageable));
+            }
+            return toMergedSlice(orderRepository.findRowsByStatusAndUserId(status, authenticatedUser.id(), upToEndOfPage).getContent(),
+                    archivedOrderRepository.findRowsByStatusAndUserId(status, authenticatedUser.id(), upToEndOfPage), sortedPageable);
+        }
+        if (!orderCounts.mayHaveArchivedOrders(status)) {
+            return orderDtoAssembler.assemble(orderRepository.findRowsByStatus(status, sortedPageable));
+        }
+        return toMergedSlice(orderRepository.findRowsByStatus(status, upToEndOfPage).getContent(),
+                archivedOrderRepository.findRowsByStatus(status, upToEndOfPage), sortedPageable);
+    }
+
+    // both lists start at the first row of the listing, in the order of the page
+    private Slice<RecoveryOrderDto> toMergedSlice(List<OrderRow> orderRows, List<OrderRow> archivedOrderRows, Pageable pageable) {
+        List<OrderRow> mergedRows = Stream.concat(orderRows.stream(), archivedOrderRows.stream())
+                .sorted(OrderRowSort.comparator(pageable.getSort()))
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize() + 1L)
+                .toList();
+        boolean hasNext = mergedRows.size() > pageable.getPageSize();
+        List<OrderRow> pageRows = hasNext ? mergedRows.subList(0, pageable.getPageSize()) : mergedRows;
+
+        return new SliceImpl<>(assembleMerged(pageRows, archivedOrderRows), pageable, hasNext);
+    }
+
+    // the page keeps the rows read even if the cached total is behind them (PageImpl adjusts it on the last page)
+    private static Page<RecoveryOrderDto> toPage(Slice<RecoveryOrderDto> orderSlice, long total) {
+        return new PageImpl<>(orderSlice.getContent(), orderSlice.getPageable(), total);
+    }
+
+    private static RecoverySlicePageDto<RecoveryOrderDto> toSlicePage(Slice<RecoveryOrderDto> orderSlice) {
+        return new RecoverySlicePageDto<>(orderSlice.getContent(), orderSlice.getNumber(), orderSlice.getSize(), orderSlice.hasNext());
+    }
+
+    // merges the hot and archived rows, both already in cursor order, into a single page
+    private RecoveryCursorPageDto<RecoveryOrderDto> toCursorPage(List<OrderRow> orderRows, List<OrderRow> archivedOrderRows, int size) {
+        if (archivedOrderRows.isEmpty()) {
+            return toCursorPage(orderRows, size);
         }
-        orderRepository.deleteById(orderId);
+
+        List<OrderRow> mergedRows = Stream.concat(orderRows.stream(), archivedOrderRows.stream())
+                .sorted(CURSOR_ORDER)
+                .limit(size + 1L)
+                .toList();
+        boolean hasNext = mergedRows.size() > size;
+        List<OrderRow> pageRows = hasNext ? mergedRows.subList(0, size) : mergedRows;
+
+        List<RecoveryOrderDto> orders = assembleMerged(pageRows, archivedOrderRows);
+        String nextCursor = hasNext ? OrderCursor.of(orders.get(orders.size() - 1)).encode() : null;
+
+        return new RecoveryCursorPageDto<>(orders, size, hasNext, nextCursor);
+    }
+
+    // assembles the hot and archived rows of a page apart, keeping the order of the page
+    private List<RecoveryOrderDto> assembleMerged(List<OrderRow> pageRows, List<OrderRow> archivedOrderRows) {
+        Set<Long> archivedOrderIds = new HashSet<>();
+        archivedOrderRows.forEach(orderRow -> archivedOrderIds.add(orderRow.id()));
+        Map<Long, RecoveryOrderDto> ordersById = new HashMap<>();
+        orderDtoAssembler.assemble(pageRows.stream().filter(orderRow -> !archivedOrderIds.contains(orderRow.id())).toList())
+                .forEach(order -> ordersById.put(order.id(), order));
+        orderDtoAssembler.assembleArchived(pageRows.stream().filter(orderRow -> archivedOrderIds.contains(orderRow.id())).toList())
+                .forEach(order -> ordersById.put(order.id(), order));
+
+        return pageRows.stream().map(orderRow -> ordersById.get(orderRow.id())).toList();
     }
 
-    private User getUser(String token) {
-        String subject = jwtTokenService.getSubjectFromToken(token.replace("Bearer ", ""));
-        return userRepository.findByEmail(subject).orElseThrow(UserNotFoundException::new);
+    private RecoveryCursorPageDto<RecoveryOrderDto> toCursorPage(List<OrderRow> orderRows, int size) {
+        boolean hasNext = orderRows.size() > size;
+        List<RecoveryOrderDto> orders = orderDtoAssembler.assemble(hasNext ? orderRows.subList(0, size) : orderRows);
+        String nextCursor = hasNext ? OrderCursor.of(orders.get(orders.size() - 1)).encode() : null;
+
+        return new RecoveryCursorPageDto<>(orders, size, hasNext, nextCursor);
     }
 }
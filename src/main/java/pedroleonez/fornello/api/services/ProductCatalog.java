@@ -0,0 +1,111 @@
+package pedroleonez.fornello.api.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.events.CatalogChangedEvent;
+import pedroleonez.fornello.api.mappers.ProductMapper;
+import pedroleonez.fornello.api.repositories.ProductRepository;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+immutable, versioned snapshot of the product catalog, serving the product reads without touching the database.
+every committed catalog change rebuilds the whole snapshot from the database (the menu is small and changes
+only a few times a day) and swaps it in at once, so readers never lock and never see a half-applied change.
+rebuilds are serialized, so a snapshot read before a change can never replace one read after it.
+ */
+@Component
+public class ProductCatalog {
+
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    public ProductCatalog(ProductRepository productRepository, ProductMapper productMapper, TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.productMapper = productMapper;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        Gauge.builder("fornello.catalog.version", this, ProductCatalog::getVersion)
+                .description("Version of the product catalog snapshot being served")
+                .register(meterRegistry);
+    }
+
+    public List<RecoveryProductDto> getProducts() {
+        return currentSnapshot().products();
+    }
+
+    public Optional<RecoveryProductDto> getProduct(Long productId) {
+        return Optional.ofNullable(currentSnapshot().productsById().get(productId));
+    }
+
+    public long getVersion() {
+        Snapshot current = snapshot.get();
+        return current == null ? 0 : current.version();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCatalog() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        List<RecoveryProductDto> products = readOnlyTransactionTemplate.execute(transactionStatus ->
+                productRepository.findAllWithVariations().stream()
+                        .map(productMapper::mapProductToRecoveryProductDto)
+                        .map(ProductCatalog::immutableCopy)
+                        .toList());
+
+        Map<Long, RecoveryProductDto> productsById = new LinkedHashMap<>();
+        for (RecoveryProductDto product : products) {
+            productsById.put(product.id(), product);
+        }
+
+        long version = getVersion() + 1;
+        snapshot.set(new Snapshot(version, products, Map.copyOf(productsById)));
+    }
+
+    // a request may arrive before the application is ready, so the first snapshot is built on demand as well
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot.get();
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot.get() == null) {
+                    rebuild();
+                }
+            }
+            current = snapshot.get();
+        }
+        return current;
+    }
+
+    // the mapped variation list is mutable, and the snapshot is shared by every request
+    private static RecoveryProductDto immutableCopy(RecoveryProductDto product) {
+        return new RecoveryProductDto(
+                product.id(),
+                product.name(),
+                product.description(),
+                product.category(),
+                product.productVariations() == null ? List.of() : List.copyOf(product.productVariations()),
+                product.available());
+    }
+
+    private record Snapshot(long version, List<RecoveryProductDto> products, Map<Long, RecoveryProductDto> productsById) {
+    }
+}
@@ -1,5 +1,7 @@
 package pedroleonez.fornello.api.services;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import pedroleonez.fornello.api.dtos.input.product.CreateProductDto;
 import pedroleonez.fornello.api.dtos.input.product.CreateProductVariationDto;
@@ -9,7 +11,10 @@ import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
 import pedroleonez.fornello.api.entities.Product;
 import pedroleonez.fornello.api.entities.ProductVariation;
 import pedroleonez.fornello.api.enums.Category;
+import pedroleonez.fornello.api.events.CatalogChangedEvent;
+import pedroleonez.fornello.api.exceptions.ProductAssociatedWithOrderException;
 import pedroleonez.fornello.api.exceptions.ProductNotFoundException;
+import pedroleonez.fornello.api.exceptions.ProductVariationAssociatedWithOrderException;
 import pedroleonez.fornello.api.exceptions.ProductVariationNotFoundException;
 import pedroleonez.fornello.api.exceptions.ProductVariationUnavailableException;
 import pedroleonez.fornello.api.mappers.ProductMapper;
@@ -24,11 +29,18 @@ public class ProductService {
     private final ProductRepository productRepository;
     private final ProductVariationRepository productVariationRepository;
     private final ProductMapper productMapper;
+    private final VariationReferenceIndex variationReferenceIndex;
+    private final ProductCatalog productCatalog;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public ProductService(ProductRepository productRepository, ProductVariationRepository productVariationRepository, ProductMapper productMapper) {
+    public ProductService(ProductRepository productRepository, ProductVariationRepository productVariationRepository, ProductMapper productMapper, VariationReferenceIndex variationReferenceIndex,
+                          ProductCatalog productCatalog, ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
         this.productVariationRepository = productVariationRepository;
         this.productMapper = productMapper;
+        this.variationReferenceIndex = variationReferenceIndex;
+        this.productCatalog = productCatalog;
+        this.eventPublisher = eventPublisher;
     }
 
     // create product method
@@ -62,6 +74,7 @@ public class ProductService {
 
         // save product
         Product productSaved = productRepository.save(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(productSaved.getId()));
 
         // returning and mapping the products to the RecoveryProductDto type
         return productMapper.mapProductToRecoveryProductDto(productSaved);
@@ -82,27 +95,20 @@ public class ProductService {
         // add the product variation to the product and saves the product in the database
         product.getProductVariations().add(productVariationSaved);
         productRepository.save(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(productId));
 
         // returning and mapping the products to the RecoveryProductDto type
         return productMapper.mapProductToRecoveryProductDto(productVariationSaved.getProduct());
     }
 
-    // returning all products method
+    // returning all products method, served from the catalog snapshot
     public List<RecoveryProductDto> getProducts() {
-        // returns all products saved in the database
-        List<Product> products = productRepository.findAll();
-
-        // returning and mapping the products to a list of RecoveryProductDto type
-        return products.stream().map(productMapper::mapProductToRecoveryProductDto).toList();
+        return productCatalog.getProducts();
     }
 
-    // return product by id method
+    // return product by id method, served from the catalog snapshot
     public RecoveryProductDto getProductById(Long productId) {
-        // searches for a product saved in the database
-        Product product = productRepository.findById(productId).orElseThrow(ProductNotFoundException::new);
-
-        // returning and mapping the products to RecoveryProductDto type
-        return productMapper.mapProductToRecoveryProductDto(product);
+        return productCatalog.getProduct(productId).orElseThrow(ProductNotFoundException::new);
     }
 
     // updates a product (without updating its variations)
@@ -130,8 +136,11 @@ public class ProductService {
             }
         }
 
+        Product productSaved = productRepository.save(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(productId));
+
         // returning and mapping the products to RecoveryProductDto type
-        return productMapper.mapProductToRecoveryProductDto(productRepository.save(product));
+        return productMapper.mapProductToRecoveryProductDto(productSaved);
     }
 
     // updating a product variation method
@@ -168,6 +177,7 @@ public class ProductService {
 
         // saves a product in the database
         Product productSaved = productRepository.save(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(productId));
 
         // returning and mapping the products to RecoveryProductDto type
         return productMapper.mapProductToRecoveryProductDto(productSaved);
@@ -179,8 +189,17 @@ public class ProductService {
         if (!productRepository.existsById(productId)) {
             throw new ProductNotFoundException();
         }
-        // deletes a product from the database
-        productRepository.deleteById(productId);
+        // a product can't be deleted while any of its variations is referenced by an order
+        if (variationReferenceIndex.isAnyReferenced(productVariationRepository.findIdsByProductId(productId))) {
+            throw new ProductAssociatedWithOrderException();
+        }
+        // deletes a product from the database; the foreign key of the order items rejects it if an order referenced a variation meanwhile
+        try {
+            productRepository.deleteById(productId);
+        } catch (DataIntegrityViolationException ex) {
+            throw new ProductAssociatedWithOrderException();
+        }
+        eventPublisher.publishEvent(new CatalogChangedEvent(productId));
     }
 
     // deleting a product variation by id method
@@ -190,7 +209,17 @@ public class ProductService {
                 .findByProductIdAndProductVariationId(productId, productVariationId)
                 .orElseThrow(ProductVariationNotFoundException::new);
 
-        // deletes the product variation from the database
-        productVariationRepository.deleteById(productVariation.getId());
+        // checks if the product variation is referenced by any order
+        if (variationReferenceIndex.isReferenced(productVariation.getId())) {
+            throw new ProductVariationAssociatedWithOrderException();
+        }
+
+        // deletes the product variation from the database; the foreign key of the order items rejects it if an order referenced it meanwhile
+        try {
+            productVariationRepository.deleteById(productVariation.getId());
+        } catch (DataIntegrityViolationException ex) {
+            throw new ProductVariationAssociatedWithOrderException();
+        }
+        eventPublisher.publishEvent(new CatalogChangedEvent(productId));
     }
 }
@@ -0,0 +1,350 @@
+package pedroleonez.fornello.api.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.dtos.output.analytics.RecoveryDailySalesDto;
+import pedroleonez.fornello.api.dtos.output.analytics.RecoverySalesDto;
+import pedroleonez.fornello.api.dtos.output.analytics.RecoverySalesRebuildDto;
+import pedroleonez.fornello.api.dtos.output.analytics.RecoverySalesReportDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderItemDto;
+import pedroleonez.fornello.api.enums.Category;
+import pedroleonez.fornello.api.enums.PaymentMethod;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.events.OrderCreatedEvent;
+import pedroleonez.fornello.api.events.OrderDeletedEvent;
+import pedroleonez.fornello.api.events.OrderStatusChangedEvent;
+import pedroleonez.fornello.api.exceptions.InvalidDateRangeException;
+import pedroleonez.fornello.api.repositories.ArchivedOrderItemRepository;
+import pedroleonez.fornello.api.repositories.OrderItemRepository;
+import pedroleonez.fornello.api.repositories.OrderRepository;
+import pedroleonez.fornello.api.repositories.projections.CategorySalesRow;
+import pedroleonez.fornello.api.repositories.projections.OrderStatusRow;
+import pedroleonez.fornello.api.repositories.projections.PaymentMethodSalesRow;
+import pedroleonez.fornello.api.repositories.projections.VariationSalesRow;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/*
+sales rollups (orders, items and revenue) per day, and per category, payment method and product variation
+inside each day. they are kept in memory and updated incrementally by the order events: an order counts when
+it is created and stops counting when it is canceled or deleted. the analytics endpoint reads only the rollups.
+the rollups are recomputed from the order items, grouped by day in the database, when the application starts
+and periodically, and each rebuild reports the days where the incremental rollups didn't match the raw data.
+the rebuild reads without holding the lock, and the events delivered around it are reconciled with what it
+read by an OrderRebuildWindow.
+canceled orders are never counted, and every order counts on the day it was created.
+ */
+@Component
+public class SalesRollups {
+
+    private final OrderItemRepository orderItemRepository;
+    private final ArchivedOrderItemRepository archivedOrderItemRepository;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate snapshotTransactionTemplate;
+    private final Counter mismatches;
+    private final Object rebuildLock = new Object();
+
+    // guarded by this
+    private TreeMap<LocalDate, DayRollup> days = new TreeMap<>();
+    private final OrderRebuildWindow rebuildWindow = new OrderRebuildWindow(this);
+
+    public SalesRollups(OrderItemRepository orderItemRepository, ArchivedOrderItemRepository archivedOrderItemRepository, OrderRepository orderRepository,
+                        TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.orderItemRepository = orderItemRepository;
+        this.archivedOrderItemRepository = archivedOrderItemRepository;
+        this.orderRepository = orderRepository;
+        // the sales and the statuses of the pending orders must be read in the same snapshot
+        this.snapshotTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.snapshotTransactionTemplate.setReadOnly(true);
+        this.snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.mismatches = Counter.builder("fornello.analytics.rollup.mismatches")
+                .description("Days where the incremental rollups didn't match the rebuilt ones")
+                .register(meterRegistry);
+    }
+
+    public synchronized RecoverySalesReportDto getReport(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new InvalidDateRangeException();
+        }
+
+        DayRollup rangeRollup = new DayRollup();
+        List<RecoveryDailySalesDto> dailySales = new ArrayList<>();
+        for (Map.Entry<LocalDate, DayRollup> entry : days.subMap(from, true, to, true).entrySet()) {
+            rangeRollup.merge(entry.getValue());
+            dailySales.add(new RecoveryDailySalesDto(entry.getKey(), entry.getValue().total.toDto()));
+        }
+
+        return new RecoverySalesReportDto(from, to,
+                rangeRollup.total.toDto(),
+                toDtos(rangeRollup.byCategory),
+                toDtos(rangeRollup.byPaymentMethod),
+                toDtos(rangeRollup.byProductVariation),
+                dailySales);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${fornello.analytics.rebuild-cron:0 30 3 * * *}")
+    public void rebuildRollups() {
+        rebuild();
+    }
+
+    // recomputes the rollups from the order items, replacing the incremental ones
+    public RecoverySalesRebuildDto rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                rebuildWindow.startRebuild();
+            }
+            try {
+                Rebuild rebuild = snapshotTransactionTemplate.execute(transactionStatus -> {
+                    TreeMap<LocalDate, DayRollup> rebuiltDays = new TreeMap<>();
+                    addSales(rebuiltDays, orderItemRepository.findPaymentMethodSalesRowsByStatusNot(Status.CANCELED),
+                            orderItemRepository.findCategorySalesRowsByStatusNot(Status.CANCELED),
+                            orderItemRepository.findVariationSalesRowsByStatusNot(Status.CANCELED));
+                    // archived orders keep counting on the day they were created
+                    addSales(rebuiltDays, archivedOrderItemRepository.findPaymentMethodSalesRowsByStatusNot(Status.CANCELED),
+                            archivedOrderItemRepository.findCategorySalesRowsByStatusNot(Status.CANCELED),
+                            archivedOrderItemRepository.findVariationSalesRowsByStatusNot(Status.CANCELED));
+                    Set<Long> orderIds;
+                    synchronized (this) {
+                        orderIds = rebuildWindow.rebuildOrderIds();
+                    }
+                    return new Rebuild(rebuiltDays, orderIds, orderIds.isEmpty() ? List.of() : orderRepository.findStatusRowsByIdIn(orderIds));
+                });
+
+                synchronized (this) {
+                    TreeMap<LocalDate, DayRollup> incrementalDays = days;
+                    days = rebuild.days();
+                    rebuildWindow.finishRebuild(rebuild.orderIds(), rebuild.orderStatusRows());
+
+                    List<LocalDate> mismatchedDates = new ArrayList<>();
+                    TreeMap<LocalDate, DayRollup> allDays = new TreeMap<>(incrementalDays);
+                    allDays.putAll(days);
+                    for (LocalDate date : allDays.keySet()) {
+                        if (!Objects.equals(incrementalDays.get(date), days.get(date))) {
+                            mismatchedDates.add(date);
+                        }
+                    }
+                    mismatches.increment(mismatchedDates.size());
+                    return new RecoverySalesRebuildDto(days.size(), mismatchedDates);
+                }
+            } finally {
+                synchronized (this) {
+                    rebuildWindow.endRebuild();
+                }
+            }
+        }
+    }
+
+    // the order events are published inside the transaction that writes the order
+    @EventListener
+    public synchronized void onOrderCreatedPublished(OrderCreatedEvent event) {
+        rebuildWindow.published(event, event.order().id());
+    }
+
+    @EventListener
+    public synchronized void onOrderStatusChangedPublished(OrderStatusChangedEvent event) {
+        rebuildWindow.published(event, event.order().id());
+    }
+
+    @EventListener
+    public synchronized void onOrderDeletedPublished(OrderDeletedEvent event) {
+        rebuildWindow.published(event, event.order().id());
+    }
+
+    // every event goes through the rebuild window, even the ones that don't change the rollups
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onOrderCreated(OrderCreatedEvent event) {
+        Sale sale = Sale.from(event.order());
+        boolean counts = event.order().status() != Status.CANCELED;
+        rebuildWindow.delivered(event, event.order().id(), null, event.order().status(), () -> {
+            if (counts) {
+                apply(days, sale, 1);
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        Sale sale = Sale.from(event.order());
+        boolean stopsCounting = event.order().status() == Status.CANCELED && event.previousStatus() != Status.CANCELED;
+        rebuildWindow.delivered(event, event.order().id(), event.previousStatus(), event.order().status(), () -> {
+            if (stopsCounting) {
+                apply(days, sale, -1);
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onOrderDeleted(OrderDeletedEvent event) {
+        Sale sale = Sale.from(event.order());
+        boolean counted = event.order().status() != Status.CANCELED;
+        rebuildWindow.delivered(event, event.order().id(), event.order().status(), null, () -> {
+            if (counted) {
+                apply(days, sale, -1);
+            }
+        });
+    }
+
+    // an order has a single payment method, so the payment method rows also add up to the day totals
+    private static void addSales(TreeMap<LocalDate, DayRollup> days, List<PaymentMethodSalesRow> paymentMethodSalesRows,
+                                 List<CategorySalesRow> categorySalesRows, List<VariationSalesRow> variationSalesRows) {
+        for (PaymentMethodSalesRow row : paymentMethodSalesRows) {
+            DayRollup day = days.computeIfAbsent(row.date(), date -> new DayRollup());
+            day.total.add(1, row.orders(), row.items(), row.revenue());
+            add(day.byPaymentMethod, row.paymentMethod(), 1, row.orders(), row.items(), row.revenue());
+        }
+        for (CategorySalesRow row : categorySalesRows) {
+            add(days.computeIfAbsent(row.date(), date -> new DayRollup()).byCategory, row.category(), 1, row.orders(), row.items(), row.revenue());
+        }
+        for (VariationSalesRow row : variationSalesRows) {
+            add(days.computeIfAbsent(row.date(), date -> new DayRollup()).byProductVariation, row.productVariationId(), 1, row.orders(), row.items(), row.revenue());
+        }
+    }
+
+    // adds (sign 1) or removes (sign -1) an order from the rollups of its day
+    private static void apply(TreeMap<LocalDate, DayRollup> days, Sale sale, int sign) {
+        DayRollup day = days.computeIfAbsent(sale.date(), date -> new DayRollup());
+
+        long items = 0;
+        Map<Category, Totals> byCategory = new EnumMap<>(Category.class);
+        Map<Long, Totals> byProductVariation = new HashMap<>();
+        for (SaleItem saleItem : sale.items()) {
+            BigDecimal revenue = saleItem.unitPrice().multiply(BigDecimal.valueOf(saleItem.quantity()));
+            items += saleItem.quantity();
+            if (saleItem.category() != null) {
+                byCategory.computeIfAbsent(saleItem.category(), key -> new Totals()).addItems(saleItem.quantity(), revenue);
+            }
+            byProductVariation.computeIfAbsent(saleItem.productVariationId(), key -> new Totals()).addItems(saleItem.quantity(), revenue);
+        }
+
+        day.total.add(sign, 1, items, sale.amount());
+        add(day.byPaymentMethod, sale.paymentMethod(), sign, 1, items, sale.amount());
+        // an order counts once in each category and product variation it contains
+        byCategory.forEach((category, totals) -> add(day.byCategory, category, sign, 1, totals.items, totals.revenue));
+        byProductVariation.forEach((productVariationId, totals) -> add(day.byProductVariation, productVariationId, sign, 1, totals.items, totals.revenue));
+
+        if (day.total.isEmpty()) {
+            days.remove(sale.date());
+        }
+    }
+
+    private static <K> void add(Map<K, Totals> totalsByKey, K key, int sign, long orders, long items, BigDecimal revenue) {
+        Totals totals = totalsByKey.computeIfAbsent(key, k -> new Totals());
+        totals.add(sign, orders, items, revenue);
+        if (totals.isEmpty()) {
+            totalsByKey.remove(key);
+        }
+    }
+
+    private static <K> Map<K, RecoverySalesDto> toDtos(Map<K, Totals> totalsByKey) {
+        Map<K, RecoverySalesDto> dtos = new TreeMap<>();
+        totalsByKey.forEach((key, totals) -> dtos.put(key, totals.toDto()));
+        return dtos;
+    }
+
+    private static final class Totals {
+
+        private long orders;
+        private long items;
+        private BigDecimal revenue = BigDecimal.ZERO;
+
+        void add(int sign, long orderCount, long itemCount, BigDecimal amount) {
+            orders += sign * orderCount;
+            items += sign * itemCount;
+            revenue = sign > 0 ? revenue.add(amount) : revenue.subtract(amount);
+        }
+
+        void addItems(long itemCount, BigDecimal amount) {
+            add(1, 0, itemCount, amount);
+        }
+
+        void merge(Totals other) {
+            add(1, other.orders, other.items, other.revenue);
+        }
+
+        boolean isEmpty() {
+            return orders == 0 && items == 0 && revenue.signum() == 0;
+        }
+
+        RecoverySalesDto toDto() {
+            return new RecoverySalesDto(orders, items, revenue);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Totals totals
+                    && orders == totals.orders
+                    && items == totals.items
+                    && revenue.compareTo(totals.revenue) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(orders, items, revenue.stripTrailingZeros());
+        }
+    }
+
+    private static final class DayRollup {
+
+        private final Totals total = new Totals();
+        private final Map<Category, Totals> byCategory = new EnumMap<>(Category.class);
+        private final Map<PaymentMethod, Totals> byPaymentMethod = new EnumMap<>(PaymentMethod.class);
+        private final Map<Long, Totals> byProductVariation = new HashMap<>();
+
+        void merge(DayRollup other) {
+            total.merge(other.total);
+            other.byCategory.forEach((key, totals) -> byCategory.computeIfAbsent(key, k -> new Totals()).merge(totals));
+            other.byPaymentMethod.forEach((key, totals) -> byPaymentMethod.computeIfAbsent(key, k -> new Totals()).merge(totals));
+            other.byProductVariation.forEach((key, totals) -> byProductVariation.computeIfAbsent(key, k -> new Totals()).merge(totals));
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof DayRollup day
+                    && total.equals(day.total)
+                    && byCategory.equals(day.byCategory)
+                    && byPaymentMethod.equals(day.byPaymentMethod)
+                    && byProductVariation.equals(day.byProductVariation);
+        }
+
+        @Override
+        public int hashCode() {
+            return total.hashCode();
+        }
+    }
+
+    private record Sale(LocalDate date, PaymentMethod paymentMethod, BigDecimal amount, List<SaleItem> items) {
+
+        static Sale from(RecoveryOrderDto order) {
+            return new Sale(order.createdDate().toLocalDate(), PaymentMethod.valueOf(order.paymentMethod()), order.amount(),
+                    order.orderItems().stream().map(SaleItem::from).toList());
+        }
+    }
+
+    private record Rebuild(TreeMap<LocalDate, DayRollup> days, Set<Long> orderIds, List<OrderStatusRow> orderStatusRows) {
+    }
+
+    private record SaleItem(Long productVariationId, Category category, BigDecimal unitPrice, Integer quantity) {
+
+        static SaleItem from(RecoveryOrderItemDto orderItem) {
+            return new SaleItem(orderItem.productVariationId(), orderItem.category(), orderItem.unitPrice(), orderItem.quantity());
+        }
+    }
+}
@@ -2,26 +2,35 @@ package pedroleonez.fornello.api.services;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import pedroleonez.fornello.api.dtos.input.user.CreateUserDto;
 import pedroleonez.fornello.api.dtos.input.user.LoginUserDto;
+import pedroleonez.fornello.api.dtos.input.user.RefreshTokenDto;
 import pedroleonez.fornello.api.dtos.output.auth.RecoveryJwtTokenDto;
+import pedroleonez.fornello.api.dtos.output.page.RecoverySlicePageDto;
 import pedroleonez.fornello.api.dtos.output.user.RecoveryUserDto;
 import pedroleonez.fornello.api.entities.Role;
 import pedroleonez.fornello.api.entities.User;
 import pedroleonez.fornello.api.enums.RoleName;
 import pedroleonez.fornello.api.exceptions.EmailAlreadyExistsException;
+import pedroleonez.fornello.api.exceptions.InvalidRefreshTokenException;
 import pedroleonez.fornello.api.exceptions.UserAssociatedWithOrderException;
 import pedroleonez.fornello.api.exceptions.UserNotFoundException;
 import pedroleonez.fornello.api.mappers.UserMapper;
+import pedroleonez.fornello.api.repositories.ArchivedOrderRepository;
 import pedroleonez.fornello.api.repositories.OrderRepository;
 import pedroleonez.fornello.api.repositories.RoleRepository;
 import pedroleonez.fornello.api.repositories.UserRepository;
 import pedroleonez.fornello.api.security.authentication.JwtTokenService;
-import pedroleonez.fornello.api.security.config.SecurityConfiguration;
+import pedroleonez.fornello.api.security.authentication.LoginExecutor;
+import pedroleonez.fornello.api.security.authentication.RefreshTokenStore;
+import pedroleonez.fornello.api.security.authentication.TokenRevocationList;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUserCache;
 import pedroleonez.fornello.api.security.userdetails.UserDetailsImpl;
 
 import java.util.List;
@@ -32,31 +41,52 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
-    private final SecurityConfiguration securityConfiguration;
+    private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final JwtTokenService jwtTokenService;
     private final OrderRepository orderRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
     private final UserMapper userMapper;
+    private final AuthenticatedUserCache authenticatedUserCache;
+    private final TokenRevocationList tokenRevocationList;
+    private final LoginExecutor loginExecutor;
+    private final RefreshTokenStore refreshTokenStore;
 
-    public UserService(UserRepository userRepository, RoleRepository roleRepository, SecurityConfiguration securityConfiguration, AuthenticationManager authenticationManager, JwtTokenService jwtTokenService, OrderRepository orderRepository, UserMapper userMapper) {
+    public UserService(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder, AuthenticationManager authenticationManager, JwtTokenService jwtTokenService, OrderRepository orderRepository, ArchivedOrderRepository archivedOrderRepository, UserMapper userMapper, AuthenticatedUserCache authenticatedUserCache, TokenRevocationList tokenRevocationList, LoginExecutor loginExecutor, RefreshTokenStore refreshTokenStore) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
-        this.securityConfiguration = securityConfiguration;
+        this.passwordEncoder = passwordEncoder;
         this.authenticationManager = authenticationManager;
         this.jwtTokenService = jwtTokenService;
         this.orderRepository = orderRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
         this.userMapper = userMapper;
+        this.authenticatedUserCache = authenticatedUserCache;
+        this.tokenRevocationList = tokenRevocationList;
+        this.loginExecutor = loginExecutor;
+        this.refreshTokenStore = refreshTokenStore;
     }
 
     public RecoveryJwtTokenDto authenticateUser(LoginUserDto loginUserDto) {
         UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken =
                 new UsernamePasswordAuthenticationToken(loginUserDto.email(), loginUserDto.password());
 
-        Authentication authentication = authenticationManager.authenticate(usernamePasswordAuthenticationToken);
+        // the password check is CPU heavy, so it runs on the bounded login pool instead of the request thread
+        Authentication authentication = loginExecutor.execute(() -> authenticationManager.authenticate(usernamePasswordAuthenticationToken));
 
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
 
-        return new RecoveryJwtTokenDto(jwtTokenService.generateToken(userDetails));
+        return new RecoveryJwtTokenDto(jwtTokenService.generateToken(userDetails), refreshTokenStore.issue(userDetails.getUser().getId()));
+    }
+
+    // renews the session with a refresh token, without checking the password again
+    public RecoveryJwtTokenDto refreshToken(RefreshTokenDto refreshTokenDto) {
+        // the refresh token is consumed, so a new one is issued together with the access token
+        Long userId = refreshTokenStore.consume(refreshTokenDto.refreshToken());
+
+        User user = userRepository.findById(userId).orElseThrow(InvalidRefreshTokenException::new);
+
+        return new RecoveryJwtTokenDto(jwtTokenService.generateToken(new UserDetailsImpl(user)), refreshTokenStore.issue(userId));
     }
 
     public void createUser(CreateUserDto createUserDto, RoleName roleName) {
@@ -64,7 +94,7 @@ public class UserService {
 
             User newUser = User.builder()
                     .email(createUserDto.email())
-                    .password(securityConfiguration.passwordEncoder().encode(createUserDto.password()))
+                    .password(passwordEncoder.encode(createUserDto.password()))
                     .roles(List.of(getRole(roleName)))
                     .build();
 
@@ -77,20 +107,29 @@ public class UserService {
         return userPage.map(userMapper::mapUserToUserDto);
     }
 
+    public RecoverySlicePageDto<RecoveryUserDto> getUsersSlice(Pageable pageable) {
+        Slice<User> userSlice = userRepository.findAllBy(pageable);
+        return new RecoverySlicePageDto<>(userSlice.map(userMapper::mapUserToUserDto).getContent(), userSlice.getNumber(), userSlice.getSize(), userSlice.hasNext());
+    }
+
     public RecoveryUserDto getUserById(Long userId) {
         return userMapper.mapUserToUserDto(userRepository.findById(userId)
                 .orElseThrow(UserNotFoundException::new));
     }
 
     public void deleteUserById(Long userId) {
-        if (!userRepository.existsById(userId)) {
-            throw new UserNotFoundException();
-        }
+        User user = userRepository.findById(userId).orElseThrow(UserNotFoundException::new);
 
-        if(orderRepository.findFirstByUserId(userId).isPresent()) {
+        // archived orders keep the user as well
+        if(orderRepository.findFirstByUserId(userId).isPresent() || archivedOrderRepository.existsByUserId(userId)) {
             throw new UserAssociatedWithOrderException();
         }
         userRepository.deleteById(userId);
+
+        // the deleted user must not keep being authenticated from the cache or from self-contained tokens
+        authenticatedUserCache.invalidate(user.getEmail());
+        tokenRevocationList.revokeUser(userId);
+        refreshTokenStore.revokeUser(userId);
     }
 
     private boolean checkIfEmailNotExists(String email) {
@@ -0,0 +1,139 @@
+package pedroleonez.fornello.api.services;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderItemDto;
+import pedroleonez.fornello.api.events.OrderCreatedEvent;
+import pedroleonez.fornello.api.events.OrderDeletedEvent;
+import pedroleonez.fornello.api.repositories.ArchivedOrderItemRepository;
+import pedroleonez.fornello.api.repositories.OrderItemRepository;
+import pedroleonez.fornello.api.repositories.projections.VariationReferenceRow;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+number of order items (hot and archived) referencing each product variation, answering the delete guards
+of products and variations without reading the order items. archiving moves the items without changing
+the counts. createOrder, createOrders and the intake writer publish OrderCreatedEvent inside the transaction
+that inserts the order, so its references are added before it commits; the ones of a deleted order are
+removed only after it commits. the index may briefly count a reference that doesn't exist (e.g. of a rolled
+back order) but never misses a committed one, and the foreign key of the hot order items backs the guards
+when a delete races with an order being created. it is rebuilt when the application starts and periodically,
+which drops the references counted in excess.
+ */
+@Component
+public class VariationReferenceIndex {
+
+    private final OrderItemRepository orderItemRepository;
+    private final ArchivedOrderItemRepository archivedOrderItemRepository;
+
+    private final Object rebuildLock = new Object();
+
+    // guarded by this
+    private Map<Long, Integer> referencesByVariationId = new HashMap<>();
+    // references of the orders whose transaction hasn't completed yet; guarded by this
+    private final Map<Long, Integer> uncommittedReferences = new HashMap<>();
+    // references added while a rebuild is reading, null when no rebuild is running; guarded by this
+    private Map<Long, Integer> referencesAddedDuringRebuild;
+
+    public VariationReferenceIndex(OrderItemRepository orderItemRepository, ArchivedOrderItemRepository archivedOrderItemRepository) {
+        this.orderItemRepository = orderItemRepository;
+        this.archivedOrderItemRepository = archivedOrderItemRepository;
+    }
+
+    public synchronized boolean isReferenced(Long productVariationId) {
+        return referencesByVariationId.containsKey(productVariationId);
+    }
+
+    public synchronized boolean isAnyReferenced(Collection<Long> productVariationIds) {
+        for (Long productVariationId : productVariationIds) {
+            if (referencesByVariationId.containsKey(productVariationId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${fornello.products.references.rebuild-interval-ms:3600000}", initialDelayString = "${fornello.products.references.rebuild-interval-ms:3600000}")
+    public void rebuildIndex() {
+        rebuild();
+    }
+
+    /*
+    the order items are read without holding the index lock. the references of the orders not committed yet
+    and the ones added meanwhile are applied again over the rebuilt counts, since their orders may have
+    committed after the read (counting one twice is only an excess); the ones removed meanwhile aren't, since
+    their orders may have been deleted before the read.
+    the hot items are read before the archived ones, so an item archived in between is counted, maybe twice.
+     */
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                referencesAddedDuringRebuild = new HashMap<>(uncommittedReferences);
+            }
+            try {
+                Map<Long, Integer> rebuiltReferences = new HashMap<>();
+                addAll(rebuiltReferences, orderItemRepository.findVariationReferenceRows());
+                addAll(rebuiltReferences, archivedOrderItemRepository.findVariationReferenceRows());
+                synchronized (this) {
+                    referencesAddedDuringRebuild.forEach((productVariationId, references) ->
+                            rebuiltReferences.merge(productVariationId, references, Integer::sum));
+                    referencesByVariationId = rebuiltReferences;
+                }
+            } finally {
+                synchronized (this) {
+                    referencesAddedDuringRebuild = null;
+                }
+            }
+        }
+    }
+
+    // runs inside the transaction that inserts the order
+    @EventListener
+    public synchronized void onOrderCreated(OrderCreatedEvent event) {
+        List<Long> productVariationIds = event.order().orderItems().stream().map(RecoveryOrderItemDto::productVariationId).toList();
+        for (Long productVariationId : productVariationIds) {
+            referencesByVariationId.merge(productVariationId, 1, Integer::sum);
+            if (referencesAddedDuringRebuild != null) {
+                referencesAddedDuringRebuild.merge(productVariationId, 1, Integer::sum);
+            }
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            productVariationIds.forEach(productVariationId -> uncommittedReferences.merge(productVariationId, 1, Integer::sum));
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    removeUncommitted(productVariationIds);
+                }
+            });
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onOrderDeleted(OrderDeletedEvent event) {
+        for (RecoveryOrderItemDto orderItem : event.order().orderItems()) {
+            // the entry is removed when no reference is left
+            referencesByVariationId.computeIfPresent(orderItem.productVariationId(), (productVariationId, references) -> references > 1 ? references - 1 : null);
+        }
+    }
+
+    private synchronized void removeUncommitted(List<Long> productVariationIds) {
+        productVariationIds.forEach(productVariationId ->
+                uncommittedReferences.computeIfPresent(productVariationId, (id, references) -> references > 1 ? references - 1 : null));
+    }
+
+    private static void addAll(Map<Long, Integer> referencesByVariationId, Collection<VariationReferenceRow> variationReferenceRows) {
+        for (VariationReferenceRow variationReferenceRow : variationReferenceRows) {
+            referencesByVariationId.merge(variationReferenceRow.productVariationId(), variationReferenceRow.count().intValue(), Integer::sum);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package pedroleonez.fornello.api.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// the export runs as an async task with its own timeout, the application keeps the default async timeout
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import({TestUsers.class, TestOrders.class})
+class OrderExportTests {
+
+    private static final String TODAY = LocalDate.now().format(DateTimeFormatter.ofPattern("dd-MM-yyyy"));
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private TestOrders testOrders;
+
+    @Test
+    void exportRunsWithTheExportTimeout() throws Exception {
+        RecoveryOrderDto order = testOrders.createOrder(testUsers.createCustomer(), testOrders.createProduct());
+
+        MvcResult result = mockMvc.perform(get("/api/orders/export").param("from", TODAY).param("to", TODAY)
+                        .param("format", "CSV").header("Authorization", testUsers.adminBearer()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(result.getRequest().getAsyncContext().getTimeout()).isEqualTo(3_600_000L);
+
+        String csv = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"orders.csv\""))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(csv).startsWith("order_id,").contains("\n" + order.id() + ",");
+    }
+}
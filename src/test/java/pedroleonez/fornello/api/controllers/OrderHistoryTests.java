@@ -0,0 +1,102 @@
+package pedroleonez.fornello.api.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import pedroleonez.fornello.api.dtos.input.order.UpdateStatusOrderDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.repositories.OrderRepository;
+import pedroleonez.fornello.api.services.OrderArchiver;
+import pedroleonez.fornello.api.services.OrderService;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// the offset listings keep showing the customer's orders after they are moved to the archive
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import({TestUsers.class, TestOrders.class})
+class OrderHistoryTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderArchiver orderArchiver;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private TestOrders testOrders;
+
+    @Test
+    void archivedOrdersStayInTheDefaultHistory() throws Exception {
+        User customer = testUsers.createCustomer();
+        RecoveryProductDto product = testOrders.createProduct();
+        RecoveryOrderDto olderOrder = testOrders.createOrder(customer, product);
+        RecoveryOrderDto oldOrder = testOrders.createOrder(customer, product);
+        RecoveryOrderDto recentOrder = testOrders.createOrder(customer, product);
+        archive(olderOrder, 101);
+        archive(oldOrder, 100);
+        orderArchiver.archiveTerminalOrders();
+        assertThat(orderRepository.existsById(oldOrder.id())).isFalse();
+        assertThat(orderRepository.existsById(olderOrder.id())).isFalse();
+        String bearer = testUsers.bearer(customer);
+
+        // newest first: the hot order, then the archived ones, across pages
+        mockMvc.perform(get("/api/orders").param("size", "2").header("Authorization", bearer))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].id", contains(recentOrder.id().intValue(), oldOrder.id().intValue())))
+                .andExpect(jsonPath("$.totalElements").value(3));
+        mockMvc.perform(get("/api/orders").param("size", "2").param("page", "1").header("Authorization", bearer))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].id", contains(olderOrder.id().intValue())))
+                .andExpect(jsonPath("$.content[0].status").value("CANCELED"))
+                .andExpect(jsonPath("$.content[0].orderItems[0].productName").value(product.name()));
+
+        mockMvc.perform(get("/api/orders").param("count", "false").param("size", "2").param("page", "1").header("Authorization", bearer))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].id", contains(olderOrder.id().intValue())))
+                .andExpect(jsonPath("$.hasNext").value(false));
+
+        mockMvc.perform(get("/api/orders/status/{statusName}", "CANCELED").param("sort", "amount,desc").header("Authorization", bearer))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].id", contains(olderOrder.id().intValue(), oldOrder.id().intValue())))
+                .andExpect(jsonPath("$.totalElements").value(2));
+    }
+
+    // the archive can only be merged on the columns both order tables have
+    @Test
+    void listingsRejectOtherSorts() throws Exception {
+        mockMvc.perform(get("/api/orders").param("sort", "user.email").header("Authorization", testUsers.bearer(testUsers.createCustomer())))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void archive(RecoveryOrderDto order, int daysOld) {
+        orderService.changeOrderStatus(order.id(), new UpdateStatusOrderDto("CANCELED"));
+        jdbcTemplate.update("update orders set created_date = ? where id = ?", LocalDateTime.now().minusDays(daysOld), order.id());
+    }
+}
@@ -0,0 +1,98 @@
+package pedroleonez.fornello.api.security.authentication;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import pedroleonez.fornello.api.entities.Role;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.enums.RoleName;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+import pedroleonez.fornello.api.security.userdetails.UserDetailsImpl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtTokenServiceTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final JwtTokenService jwtTokenService = new JwtTokenService(100, false, new TokenRevocationList(), meterRegistry);
+
+    @Test
+    void servesAVerifiedTokenFromTheCache() {
+        String token = generateToken("customer@email.com");
+
+        assertThat(jwtTokenService.getSubjectFromToken(token)).isEqualTo("customer@email.com");
+        assertThat(jwtTokenService.getSubjectFromToken(new String(token))).isEqualTo("customer@email.com");
+
+        assertThat(counter("fornello.cache.misses")).isEqualTo(1.0);
+        assertThat(counter("fornello.cache.hits")).isEqualTo(1.0);
+    }
+
+    // the cache is keyed by the signature, so a forged payload under a cached signature must still be verified
+    @Test
+    void rejectsATamperedPayloadWithTheSignatureOfACachedToken() {
+        String token = generateToken("customer@email.com");
+        jwtTokenService.verifyToken(token);
+
+        String[] parts = token.split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+        String forgedPayload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.replace("customer@email.com", "admin@email.com").getBytes(StandardCharsets.UTF_8));
+        String forgedToken = parts[0] + "." + forgedPayload + "." + parts[2];
+
+        assertThatThrownBy(() -> jwtTokenService.verifyToken(forgedToken)).isInstanceOf(JWTVerificationException.class);
+        assertThat(jwtTokenService.getSubjectFromToken(token)).isEqualTo("customer@email.com");
+    }
+
+    @Test
+    void statelessTokenCarriesThePrincipal() {
+        JwtTokenService statelessTokenService = new JwtTokenService(100, true, new TokenRevocationList(), new SimpleMeterRegistry());
+        String token = statelessTokenService.generateToken(new UserDetailsImpl(customer()));
+
+        AuthenticatedUser authenticatedUser = statelessTokenService.getAuthenticatedUserFromToken(statelessTokenService.verifyToken(token));
+
+        assertThat(authenticatedUser).isEqualTo(new AuthenticatedUser(7L, "customer@email.com", Set.of(RoleName.ROLE_CUSTOMER)));
+    }
+
+    // outside stateless mode the claims are ignored and the user is searched in the database
+    @Test
+    void principalIsntReadFromTheTokenOutsideStatelessMode() {
+        String token = jwtTokenService.generateToken(new UserDetailsImpl(customer()));
+
+        assertThat(jwtTokenService.getAuthenticatedUserFromToken(jwtTokenService.verifyToken(token))).isNull();
+    }
+
+    @Test
+    void revokedUserTokensAreRejected() {
+        TokenRevocationList tokenRevocationList = new TokenRevocationList();
+        JwtTokenService statelessTokenService = new JwtTokenService(100, true, tokenRevocationList, new SimpleMeterRegistry());
+        String token = statelessTokenService.generateToken(new UserDetailsImpl(customer()));
+
+        tokenRevocationList.revokeUser(7L);
+
+        assertThatThrownBy(() -> statelessTokenService.getAuthenticatedUserFromToken(statelessTokenService.verifyToken(token)))
+                .isInstanceOf(JWTVerificationException.class);
+    }
+
+    private String generateToken(String email) {
+        return jwtTokenService.generateToken(new UserDetailsImpl(User.builder().email(email).roles(List.of()).build()));
+    }
+
+    private static User customer() {
+        return User.builder()
+                .id(7L)
+                .email("customer@email.com")
+                .roles(List.of(Role.builder().name(RoleName.ROLE_CUSTOMER).build()))
+                .build();
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).tag("cache", "verified-tokens").functionCounter().count();
+    }
+}
@@ -0,0 +1,118 @@
+package pedroleonez.fornello.api.security.authentication;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pedroleonez.fornello.api.cache.BoundedExpiringCache;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.security.userdetails.UserDetailsImpl;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+cost of verifying the token of an authenticated request, with 4 threads verifying tokens already seen:
+- perRequestVerifier: builds the algorithm and verifier on every call, as before the shared verifier
+- sharedVerifier: checks the HMAC on every call with the shared verifier
+- digestKeyedSynchronizedCache: SHA-256 of the token, then the synchronized LRU cache
+- signatureKeyedConcurrentCache: JwtTokenService.verifyToken, keyed by the signature in a ConcurrentHashMap
+run with: java -cp <test classpath> pedroleonez.fornello.api.security.authentication.JwtVerificationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET_KEY = "benchmark-secret";
+
+    private static final String ISSUER = "fornello-api";
+
+    // a power of two, so the index wraps with a mask
+    private static final int TOKEN_COUNT = 1024;
+
+    private final String[] tokens = new String[TOKEN_COUNT];
+    private final String[] serviceTokens = new String[TOKEN_COUNT];
+    private JWTVerifier sharedVerifier;
+    private BoundedExpiringCache<String, DecodedJWT> digestKeyedCache;
+    private JwtTokenService jwtTokenService;
+
+    @Setup
+    public void setUp() {
+        Algorithm algorithm = Algorithm.HMAC256(SECRET_KEY);
+        sharedVerifier = JWT.require(algorithm).withIssuer(ISSUER).build();
+        digestKeyedCache = new BoundedExpiringCache<>("benchmark", TOKEN_COUNT * 2);
+        jwtTokenService = new JwtTokenService(TOKEN_COUNT * 2, false, new TokenRevocationList(), new SimpleMeterRegistry());
+
+        for (int i = 0; i < TOKEN_COUNT; i++) {
+            String email = "user" + i + "@email.com";
+            tokens[i] = JWT.create()
+                    .withIssuer(ISSUER)
+                    .withSubject(email)
+                    .withExpiresAt(Instant.now().plus(JwtTokenService.TOKEN_LIFETIME))
+                    .sign(algorithm);
+            DecodedJWT decodedToken = sharedVerifier.verify(tokens[i]);
+            digestKeyedCache.put(TokenDigest.of(tokens[i]), decodedToken, decodedToken.getExpiresAtAsInstant());
+
+            serviceTokens[i] = jwtTokenService.generateToken(new UserDetailsImpl(User.builder().email(email).roles(List.of()).build()));
+            jwtTokenService.verifyToken(serviceTokens[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class TokenIndex {
+
+        private int next;
+
+        int next() {
+            next = (next + 1) & (TOKEN_COUNT - 1);
+            return next;
+        }
+    }
+
+    @Benchmark
+    public DecodedJWT perRequestVerifier(TokenIndex tokenIndex) {
+        return JWT.require(Algorithm.HMAC256(SECRET_KEY)).withIssuer(ISSUER).build().verify(tokens[tokenIndex.next()]);
+    }
+
+    @Benchmark
+    public DecodedJWT sharedVerifier(TokenIndex tokenIndex) {
+        return sharedVerifier.verify(tokens[tokenIndex.next()]);
+    }
+
+    @Benchmark
+    public DecodedJWT digestKeyedSynchronizedCache(TokenIndex tokenIndex) {
+        String token = tokens[tokenIndex.next()];
+        DecodedJWT cachedToken = digestKeyedCache.get(TokenDigest.of(token));
+        return cachedToken != null ? cachedToken : sharedVerifier.verify(token);
+    }
+
+    @Benchmark
+    public DecodedJWT signatureKeyedConcurrentCache(TokenIndex tokenIndex) {
+        return jwtTokenService.verifyToken(serviceTokens[tokenIndex.next()]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtVerificationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
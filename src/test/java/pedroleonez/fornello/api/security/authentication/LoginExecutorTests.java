@@ -0,0 +1,112 @@
+package pedroleonez.fornello.api.security.authentication;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import pedroleonez.fornello.api.exceptions.LoginCapacityExceededException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginExecutorTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private LoginExecutor loginExecutor;
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        loginExecutor.shutdown();
+    }
+
+    @Test
+    void passwordCheckResultIsReturned() {
+        loginExecutor = new LoginExecutor(1, 1, 5000, meterRegistry);
+
+        assertThat(loginExecutor.execute(() -> "authenticated")).isEqualTo("authenticated");
+    }
+
+    // a wrong password must keep answering 401, not be wrapped into another exception
+    @Test
+    void authenticationErrorsKeepTheirType() {
+        loginExecutor = new LoginExecutor(1, 1, 5000, meterRegistry);
+
+        assertThatThrownBy(() -> loginExecutor.execute(() -> {
+            throw new BadCredentialsException("Bad credentials");
+        })).isInstanceOf(BadCredentialsException.class);
+    }
+
+    // with the only thread busy and the queue full, the next login is rejected without waiting
+    @Test
+    void loginIsRejectedWhenThePoolAndTheQueueAreFull() throws Exception {
+        loginExecutor = new LoginExecutor(1, 1, 5000, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture.runAsync(() -> loginExecutor.execute(() -> {
+            started.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        }));
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture.runAsync(() -> loginExecutor.execute(() -> release.await(10, TimeUnit.SECONDS)));
+        waitForQueuedLogin();
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> loginExecutor.execute(() -> true))
+                .isInstanceOf(LoginCapacityExceededException.class);
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    // checks measured at 1.2s each: behind the running one, the next login couldn't finish within 2s
+    @Test
+    void loginThatCantFinishWithinTheTimeoutIsRejectedBeforeItIsQueued() throws Exception {
+        loginExecutor = new LoginExecutor(1, 10, 2000, meterRegistry);
+        loginExecutor.execute(() -> {
+            Thread.sleep(1200);
+            return true;
+        });
+        waitForIdlePool();
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture.runAsync(() -> loginExecutor.execute(() -> {
+            started.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        }));
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> loginExecutor.execute(() -> true))
+                .isInstanceOf(LoginCapacityExceededException.class);
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1));
+        assertThat(meterRegistry.get("fornello.login.queue.size").gauge().value()).isZero();
+    }
+
+    @Test
+    void loginWaitingLongerThanTheTimeoutIsRejected() {
+        loginExecutor = new LoginExecutor(1, 1, 100, meterRegistry);
+
+        assertThatThrownBy(() -> loginExecutor.execute(() -> release.await(10, TimeUnit.SECONDS)))
+                .isInstanceOf(LoginCapacityExceededException.class);
+    }
+
+    // the thread is counted as active for a moment after the result of its check is returned
+    private void waitForIdlePool() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (meterRegistry.get("fornello.login.active.threads").gauge().value() > 0) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private void waitForQueuedLogin() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (meterRegistry.get("fornello.login.queue.size").gauge().value() < 1) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
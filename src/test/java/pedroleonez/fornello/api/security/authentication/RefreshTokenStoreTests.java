@@ -0,0 +1,59 @@
+package pedroleonez.fornello.api.security.authentication;
+
+import org.junit.jupiter.api.Test;
+import pedroleonez.fornello.api.exceptions.InvalidRefreshTokenException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RefreshTokenStoreTests {
+
+    private static final Long USER_ID = 1L;
+
+    private final RefreshTokenStore refreshTokenStore = new RefreshTokenStore(1, 2);
+
+    @Test
+    void tokenCanOnlyBeConsumedOnce() {
+        String token = refreshTokenStore.issue(USER_ID);
+
+        assertThat(refreshTokenStore.consume(token)).isEqualTo(USER_ID);
+        assertThatThrownBy(() -> refreshTokenStore.consume(token)).isInstanceOf(InvalidRefreshTokenException.class);
+    }
+
+    @Test
+    void unknownTokenIsRejected() {
+        assertThatThrownBy(() -> refreshTokenStore.consume("unknown")).isInstanceOf(InvalidRefreshTokenException.class);
+    }
+
+    @Test
+    void revokingTheUserRejectsAllItsTokens() {
+        String firstToken = refreshTokenStore.issue(USER_ID);
+        String secondToken = refreshTokenStore.issue(USER_ID);
+        String otherUserToken = refreshTokenStore.issue(USER_ID + 1);
+
+        refreshTokenStore.revokeUser(USER_ID);
+
+        assertThatThrownBy(() -> refreshTokenStore.consume(firstToken)).isInstanceOf(InvalidRefreshTokenException.class);
+        assertThatThrownBy(() -> refreshTokenStore.consume(secondToken)).isInstanceOf(InvalidRefreshTokenException.class);
+        assertThat(refreshTokenStore.consume(otherUserToken)).isEqualTo(USER_ID + 1);
+    }
+
+    @Test
+    void oldestTokenIsDroppedWhenTheUserHasTooMany() {
+        String oldestToken = refreshTokenStore.issue(USER_ID);
+        String secondToken = refreshTokenStore.issue(USER_ID);
+        String newestToken = refreshTokenStore.issue(USER_ID);
+
+        assertThatThrownBy(() -> refreshTokenStore.consume(oldestToken)).isInstanceOf(InvalidRefreshTokenException.class);
+        assertThat(refreshTokenStore.consume(secondToken)).isEqualTo(USER_ID);
+        assertThat(refreshTokenStore.consume(newestToken)).isEqualTo(USER_ID);
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        RefreshTokenStore expiringStore = new RefreshTokenStore(0, 2);
+        String token = expiringStore.issue(USER_ID);
+
+        assertThatThrownBy(() -> expiringStore.consume(token)).isInstanceOf(InvalidRefreshTokenException.class);
+    }
+}
@@ -0,0 +1,62 @@
+package pedroleonez.fornello.api.security.authentication;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import({TestUsers.class, TestOrders.class})
+class UserAuthenticationFilterTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private TestOrders testOrders;
+
+    // the principal built by the filter reaches the services, which list only the customer's own orders
+    @Test
+    void customerOnlySeesItsOwnOrders() throws Exception {
+        RecoveryProductDto product = testOrders.createProduct();
+        User customer = testUsers.createCustomer();
+        RecoveryOrderDto order = testOrders.createOrder(customer, product);
+        testOrders.createOrder(testUsers.createCustomer(), product);
+
+        mockMvc.perform(get("/api/orders").header("Authorization", testUsers.bearer(customer)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].id", contains(order.id().intValue())));
+
+        mockMvc.perform(get("/api/orders/{orderId}", order.id()).header("Authorization", testUsers.bearer(customer)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.user.id").value(customer.getId()));
+    }
+
+    @Test
+    void requestWithoutTokenIsForbidden() throws Exception {
+        mockMvc.perform(get("/api/orders"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void requestWithInvalidTokenIsUnauthorized() throws Exception {
+        mockMvc.perform(get("/api/orders").header("Authorization", "Bearer not.a.token"))
+                .andExpect(status().isUnauthorized());
+    }
+}
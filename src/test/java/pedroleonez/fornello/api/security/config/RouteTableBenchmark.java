@@ -0,0 +1,143 @@
+package pedroleonez.fornello.api.security.config;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.web.servlet.util.matcher.MvcRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.handler.HandlerMappingIntrospector;
+import pedroleonez.fornello.api.support.BenchmarkApplication;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.request;
+
+/*
+cost of the access decision of a request, over a mix of the application's real routes:
+- requestMatchers: the filter's linear contains over the public endpoints, then the first of the MVC
+  matchers Spring Security built from the endpoint arrays, in the order of the old configuration
+- routeTable: the public check and the decision of the route table, which resolve the same rule
+run with -prof gc to compare the allocation per decision as well.
+run with: java -cp <test classpath> pedroleonez.fornello.api.security.config.RouteTableBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteTableBenchmark {
+
+    // a power of two, so the index wraps with a mask
+    private static final int REQUEST_COUNT = 16;
+
+    private static final Object[][] REQUEST_MIX = {
+            {HttpMethod.GET, "/api/products"},
+            {HttpMethod.GET, "/api/products"},
+            {HttpMethod.GET, "/api/products/12"},
+            {HttpMethod.GET, "/api/products/category/PIZZA"},
+            {HttpMethod.GET, "/api/orders"},
+            {HttpMethod.GET, "/api/orders"},
+            {HttpMethod.GET, "/api/orders/42"},
+            {HttpMethod.GET, "/api/orders/status/PENDING"},
+            {HttpMethod.POST, "/api/orders"},
+            {HttpMethod.POST, "/api/users/login"},
+            {HttpMethod.POST, "/api/users/refresh"},
+            {HttpMethod.GET, "/api/orders/kitchen"},
+            {HttpMethod.PATCH, "/api/orders/42/status"},
+            {HttpMethod.GET, "/api/users/7"},
+            {HttpMethod.DELETE, "/api/products/12"},
+            {HttpMethod.GET, "/api/unknown"}
+    };
+
+    private final HttpServletRequest[] requests = new HttpServletRequest[REQUEST_COUNT];
+    private final List<LegacyRule> legacyRules = new ArrayList<>();
+    private ConfigurableApplicationContext context;
+    private int next;
+
+    private record LegacyRule(RequestMatcher matcher, RouteTable.Access access) {
+    }
+
+    @Setup
+    public void setUp() {
+        // the MVC matchers resolve the request against the handler mappings of a running application
+        context = BenchmarkApplication.start();
+        ServletContext servletContext = ((WebApplicationContext) context).getServletContext();
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            requests[i] = request((HttpMethod) REQUEST_MIX[i][0], URI.create((String) REQUEST_MIX[i][1])).buildRequest(servletContext);
+        }
+
+        MvcRequestMatcher.Builder mvc = new MvcRequestMatcher.Builder(context.getBean(HandlerMappingIntrospector.class));
+        addLegacyRules(mvc, null, RouteTable.Access.PUBLIC, SecurityConfiguration.ENDPOINTS_WITH_AUTHENTICATION_NOT_REQUIRED);
+        addLegacyRules(mvc, HttpMethod.GET, RouteTable.Access.AUTHENTICATED, SecurityConfiguration.ENDPOINTS_WITH_AUTHENTICATION_REQUIRED_TO_GET_STATUS);
+        addLegacyRules(mvc, HttpMethod.POST, RouteTable.Access.AUTHENTICATED, SecurityConfiguration.ENDPOINTS_WITH_AUTHENTICATION_REQUIRED_TO_POST_STATUS);
+        addLegacyRules(mvc, HttpMethod.GET, RouteTable.Access.ADMINISTRATOR, SecurityConfiguration.ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_GET_STATUS);
+        addLegacyRules(mvc, HttpMethod.POST, RouteTable.Access.ADMINISTRATOR, SecurityConfiguration.ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_POST_STATUS);
+        addLegacyRules(mvc, HttpMethod.PUT, RouteTable.Access.ADMINISTRATOR, SecurityConfiguration.ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_PUT_STATUS);
+        addLegacyRules(mvc, HttpMethod.PATCH, RouteTable.Access.ADMINISTRATOR, SecurityConfiguration.ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_PATCH_STATUS);
+        addLegacyRules(mvc, HttpMethod.DELETE, RouteTable.Access.ADMINISTRATOR, SecurityConfiguration.ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_DELETE_STATUS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public RouteTable.Access requestMatchers() {
+        HttpServletRequest request = nextRequest();
+        if (Arrays.asList(SecurityConfiguration.ENDPOINTS_WITH_AUTHENTICATION_NOT_REQUIRED).contains(request.getRequestURI())) {
+            return RouteTable.Access.PUBLIC;
+        }
+        for (LegacyRule legacyRule : legacyRules) {
+            if (legacyRule.matcher().matches(request)) {
+                return legacyRule.access();
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public RouteTable.Access routeTable() {
+        HttpServletRequest request = nextRequest();
+        if (SecurityConfiguration.ROUTES.isPublic(request)) {
+            return RouteTable.Access.PUBLIC;
+        }
+        return SecurityConfiguration.ROUTES.resolve(request);
+    }
+
+    private HttpServletRequest nextRequest() {
+        next = (next + 1) & (REQUEST_COUNT - 1);
+        return requests[next];
+    }
+
+    private void addLegacyRules(MvcRequestMatcher.Builder mvc, HttpMethod method, RouteTable.Access access, String... patterns) {
+        for (String pattern : patterns) {
+            legacyRules.add(new LegacyRule(method == null ? mvc.pattern(pattern) : mvc.pattern(method, pattern), access));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RouteTableBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,174 @@
+package pedroleonez.fornello.api.security.config;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.web.servlet.util.matcher.MvcRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.handler.HandlerMappingIntrospector;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static pedroleonez.fornello.api.security.config.SecurityConfiguration.*;
+
+/*
+compares every decision of the route table with the requestMatchers setup it replaced (the MVC matchers
+Spring Security builds from the same arrays). the matchers are registered in the order of the route
+table, admin-only routes first, which is the only intended difference from the old configuration.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(TestUsers.class)
+class RouteTableTests {
+
+    private static final HttpMethod[] METHODS = {
+            HttpMethod.GET, HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH, HttpMethod.DELETE, HttpMethod.HEAD, HttpMethod.OPTIONS
+    };
+
+    @Autowired
+    private HandlerMappingIntrospector introspector;
+
+    @Autowired
+    private ServletContext servletContext;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    private final List<LegacyRule> legacyRules = new ArrayList<>();
+
+    private record LegacyRule(RequestMatcher matcher, RouteTable.Access access) {
+    }
+
+    @BeforeEach
+    void buildLegacyMatchers() {
+        legacyRules.clear();
+        MvcRequestMatcher.Builder mvc = new MvcRequestMatcher.Builder(introspector);
+        addLegacyRules(mvc, null, RouteTable.Access.PUBLIC, ENDPOINTS_WITH_AUTHENTICATION_NOT_REQUIRED);
+        addLegacyRules(mvc, HttpMethod.GET, RouteTable.Access.ADMINISTRATOR, ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_GET_STATUS);
+        addLegacyRules(mvc, HttpMethod.POST, RouteTable.Access.ADMINISTRATOR, ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_POST_STATUS);
+        addLegacyRules(mvc, HttpMethod.PUT, RouteTable.Access.ADMINISTRATOR, ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_PUT_STATUS);
+        addLegacyRules(mvc, HttpMethod.PATCH, RouteTable.Access.ADMINISTRATOR, ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_PATCH_STATUS);
+        addLegacyRules(mvc, HttpMethod.DELETE, RouteTable.Access.ADMINISTRATOR, ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_DELETE_STATUS);
+        addLegacyRules(mvc, HttpMethod.GET, RouteTable.Access.AUTHENTICATED, ENDPOINTS_WITH_AUTHENTICATION_REQUIRED_TO_GET_STATUS);
+        addLegacyRules(mvc, HttpMethod.POST, RouteTable.Access.AUTHENTICATED, ENDPOINTS_WITH_AUTHENTICATION_REQUIRED_TO_POST_STATUS);
+    }
+
+    @Test
+    void decisionsMatchTheRequestMatchersOnEveryRouteVariant() {
+        Set<String> paths = new LinkedHashSet<>();
+        allPatterns().forEach(pattern -> paths.addAll(variants(pattern)));
+        paths.addAll(List.of("/", "/api", "/api/unknown", "/h2-console", "/actuator/health", "/api//orders", "/API/orders"));
+
+        for (String path : paths) {
+            for (HttpMethod method : METHODS) {
+                HttpServletRequest request = request(method, URI.create(path)).buildRequest(servletContext);
+                assertThat(ROUTES.resolve(request))
+                        .as("%s %s", method, path)
+                        .isEqualTo(legacyDecision(request));
+            }
+        }
+    }
+
+    @Test
+    void encodedPathsResolveLikeTheirDecodedForm() {
+        assertThat(resolve(HttpMethod.GET, "/api/orders/%6Bitchen")).isEqualTo(RouteTable.Access.ADMINISTRATOR);
+        assertThat(resolve(HttpMethod.GET, "/api/orders/%65xport")).isEqualTo(RouteTable.Access.ADMINISTRATOR);
+        assertThat(resolve(HttpMethod.GET, "/api/%6Frders/kitchen")).isEqualTo(RouteTable.Access.ADMINISTRATOR);
+        assertThat(resolve(HttpMethod.GET, "/api/orders/kitchen;x=1")).isEqualTo(RouteTable.Access.ADMINISTRATOR);
+        assertThat(resolve(HttpMethod.POST, "/api/users/%6Cogin")).isEqualTo(RouteTable.Access.PUBLIC);
+        assertThat(resolve(HttpMethod.GET, "/api/orders/42")).isEqualTo(RouteTable.Access.AUTHENTICATED);
+    }
+
+    @Test
+    void trailingSlashesAndUnknownRoutesAreDenied() {
+        assertThat(resolve(HttpMethod.GET, "/api/orders/")).isNull();
+        assertThat(resolve(HttpMethod.GET, "/api/orders/kitchen/")).isNull();
+        assertThat(resolve(HttpMethod.GET, "/api/orders/1/items")).isNull();
+        assertThat(resolve(HttpMethod.DELETE, "/api/orders")).isNull();
+    }
+
+    @Test
+    void customerCannotReachAdminRoutesThroughEncodedPaths() throws Exception {
+        String customerBearer = testUsers.bearer(testUsers.createCustomer());
+
+        mockMvc.perform(get(URI.create("/api/orders/%6Bitchen")).header("Authorization", customerBearer))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get(URI.create("/api/orders/%65xport?from=01-01-2020&to=01-01-2030")).header("Authorization", customerBearer))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get(URI.create("/api/orders/%6Bitchen")).header("Authorization", testUsers.adminBearer()))
+                .andExpect(status().isOk());
+    }
+
+    private RouteTable.Access resolve(HttpMethod method, String path) {
+        return ROUTES.resolve(request(method, URI.create(path)).buildRequest(servletContext));
+    }
+
+    private RouteTable.Access legacyDecision(HttpServletRequest request) {
+        for (LegacyRule legacyRule : legacyRules) {
+            if (legacyRule.matcher().matches(request)) {
+                return legacyRule.access();
+            }
+        }
+        // the old setup ended with anyRequest().denyAll()
+        return null;
+    }
+
+    private void addLegacyRules(MvcRequestMatcher.Builder mvc, HttpMethod method, RouteTable.Access access, String... patterns) {
+        for (String pattern : patterns) {
+            legacyRules.add(new LegacyRule(method == null ? mvc.pattern(pattern) : mvc.pattern(method, pattern), access));
+        }
+    }
+
+    private static Stream<String> allPatterns() {
+        return Stream.of(ENDPOINTS_WITH_AUTHENTICATION_NOT_REQUIRED,
+                        ENDPOINTS_WITH_AUTHENTICATION_REQUIRED_TO_GET_STATUS,
+                        ENDPOINTS_WITH_AUTHENTICATION_REQUIRED_TO_POST_STATUS,
+                        ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_GET_STATUS,
+                        ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_POST_STATUS,
+                        ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_PUT_STATUS,
+                        ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_PATCH_STATUS,
+                        ENDPOINTS_AVAILABLE_FOR_ADMIN_ONLY_TO_DELETE_STATUS)
+                .flatMap(Stream::of);
+    }
+
+    // the pattern with its variables filled in, plus trailing slash, extra segment, encoded and parameter variants
+    private static List<String> variants(String pattern) {
+        List<String> variants = new ArrayList<>();
+        for (String variableValue : List.of("1", "kitchen", "%31")) {
+            String path = pattern.replaceAll("\\{[^/]+}", variableValue);
+            variants.add(path);
+            variants.add(path + "/");
+            variants.add(path + "/extra");
+            variants.add(path + ";x=1");
+            String[] segments = path.split("/");
+            for (int i = 1; i < segments.length; i++) {
+                if (!segments[i].startsWith("%")) {
+                    String[] encodedSegments = segments.clone();
+                    encodedSegments[i] = String.format("%%%02X", (int) segments[i].charAt(0)) + segments[i].substring(1);
+                    variants.add(String.join("/", encodedSegments));
+                }
+            }
+        }
+        return variants;
+    }
+}
@@ -0,0 +1,63 @@
+package pedroleonez.fornello.api.security.userdetails;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.enums.RoleName;
+import pedroleonez.fornello.api.services.UserService;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Import(TestUsers.class)
+class AuthenticatedUserCacheTests {
+
+    @Autowired
+    private AuthenticatedUserCache authenticatedUserCache;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Test
+    void principalIsSearchedOnceAndThenServedFromTheCache() {
+        User customer = testUsers.createCustomer();
+        double hits = hits();
+
+        AuthenticatedUser authenticatedUser = authenticatedUserCache.getByEmail(customer.getEmail());
+        assertThat(authenticatedUser).isEqualTo(new AuthenticatedUser(customer.getId(), customer.getEmail(), Set.of(RoleName.ROLE_CUSTOMER)));
+        assertThat(hits()).isEqualTo(hits);
+
+        assertThat(authenticatedUserCache.getByEmail(customer.getEmail())).isSameAs(authenticatedUser);
+        assertThat(hits()).isEqualTo(hits + 1);
+    }
+
+    // a deleted user must not keep being authenticated from the cache
+    @Test
+    void deletingTheUserInvalidatesItsPrincipal() {
+        User customer = testUsers.createCustomer();
+        authenticatedUserCache.getByEmail(customer.getEmail());
+
+        userService.deleteUserById(customer.getId());
+
+        assertThatThrownBy(() -> authenticatedUserCache.getByEmail(customer.getEmail()))
+                .isInstanceOf(NoSuchElementException.class);
+    }
+
+    private double hits() {
+        return meterRegistry.get("fornello.cache.hits").tag("cache", "authenticated-users").functionCounter().count();
+    }
+}
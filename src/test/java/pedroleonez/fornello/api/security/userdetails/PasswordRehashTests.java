@@ -0,0 +1,42 @@
+package pedroleonez.fornello.api.security.userdetails;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import pedroleonez.fornello.api.dtos.input.user.LoginUserDto;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.repositories.UserRepository;
+import pedroleonez.fornello.api.services.UserService;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(TestUsers.class)
+class PasswordRehashTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    // a hash made with a lower cost than the configured one (10) is replaced on the next successful login
+    @Test
+    void weakHashIsUpgradedOnLogin() {
+        User customer = testUsers.createCustomer();
+        customer.setPassword(new BCryptPasswordEncoder(4).encode("12345678"));
+        userRepository.save(customer);
+
+        userService.authenticateUser(new LoginUserDto(customer.getEmail(), "12345678"));
+
+        String password = userRepository.findById(customer.getId()).orElseThrow().getPassword();
+        assertThat(password).startsWith("$2a$10$");
+        assertThat(new BCryptPasswordEncoder().matches("12345678", password)).isTrue();
+    }
+}
@@ -0,0 +1,114 @@
+package pedroleonez.fornello.api.security.userdetails;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.support.BenchmarkApplication;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+statements sent to the database per request, for 50 customers browsing the menu (GET /api/products) and their
+orders (GET /api/orders) 7 to 3, each request with a bearer token:
+- cached: the principal served by AuthenticatedUserCache
+- uncached: the cache with a zero time to live, so every request searches the user and its roles
+- stateless: the principal built from the token claims (fornello.security.jwt.stateless)
+the statements counter is normalized like the requests, so the statements per request are its score divided by the
+primary score.
+run with: java -cp <test classpath> pedroleonez.fornello.api.security.userdetails.PrincipalCacheBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrincipalCacheBenchmark {
+
+    private static final int CUSTOMERS = 50;
+    private static final String[] TRAFFIC = {
+            "/api/products", "/api/orders", "/api/products", "/api/products", "/api/orders",
+            "/api/products", "/api/products", "/api/orders", "/api/products", "/api/products"};
+
+    @Param({"cached", "uncached", "stateless"})
+    public String principal;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private String[] bearers;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Statements {
+
+        public long statements;
+        private int request;
+    }
+
+    @Setup
+    public void setUp() {
+        context = switch (principal) {
+            case "uncached" -> BenchmarkApplication.start("fornello.security.principal-cache.ttl-seconds=0");
+            case "stateless" -> BenchmarkApplication.start("fornello.security.jwt.stateless=true");
+            default -> BenchmarkApplication.start();
+        };
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).apply(springSecurity()).build();
+
+        TestUsers testUsers = context.getBean(TestUsers.class);
+        TestOrders testOrders = context.getBean(TestOrders.class);
+        RecoveryProductDto product = testOrders.createProduct();
+        bearers = new String[CUSTOMERS];
+        for (int i = 0; i < CUSTOMERS; i++) {
+            User customer = testUsers.createCustomer();
+            for (int j = 0; j < 3; j++) {
+                testOrders.createOrder(customer, product);
+            }
+            bearers[i] = testUsers.bearer(customer);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void request(Statements statements) throws Exception {
+        int request = statements.request++;
+        long statementsBefore = BenchmarkApplication.statements(context);
+        mockMvc.perform(get(TRAFFIC[request % TRAFFIC.length])
+                        .header(HttpHeaders.AUTHORIZATION, bearers[request % CUSTOMERS]))
+                .andExpect(status().isOk());
+        statements.statements += BenchmarkApplication.statements(context) - statementsBefore;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PrincipalCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,85 @@
+package pedroleonez.fornello.api.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import pedroleonez.fornello.api.dtos.input.order.UpdateStatusOrderDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.events.OrderStatusChangedEvent;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import({TestUsers.class, TestOrders.class})
+class KitchenQueueTests {
+
+    @Autowired
+    private KitchenQueue kitchenQueue;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private TestOrders testOrders;
+
+    @Test
+    void ordersLeaveTheQueueWhenTheKitchenIsDone() {
+        RecoveryOrderDto order = testOrders.createOrder(testUsers.createCustomer(), testOrders.createProduct());
+        assertThat(statusInQueue(order.id())).isEqualTo(Status.PENDING);
+
+        orderService.changeOrderStatus(order.id(), new UpdateStatusOrderDto("APPROVED"));
+        assertThat(statusInQueue(order.id())).isEqualTo(Status.APPROVED);
+
+        orderService.changeOrderStatus(order.id(), new UpdateStatusOrderDto("CANCELED"));
+        assertThat(statusInQueue(order.id())).isNull();
+    }
+
+    // the events of two transactions delivered in the opposite order of their commits
+    @Test
+    void staleEventDeliveredAfterANewerOneIsIgnored() {
+        RecoveryOrderDto order = testOrders.createOrder(testUsers.createCustomer(), testOrders.createProduct());
+        orderService.changeOrderStatus(order.id(), new UpdateStatusOrderDto("APPROVED"));
+        orderService.changeOrderStatus(order.id(), new UpdateStatusOrderDto("CANCELED"));
+
+        kitchenQueue.onOrderStatusChanged(new OrderStatusChangedEvent(withStatus(order, Status.APPROVED), Status.PENDING));
+        assertThat(statusInQueue(order.id())).isNull();
+
+        kitchenQueue.onOrderStatusChanged(new OrderStatusChangedEvent(withStatus(order, Status.PENDING), null));
+        assertThat(statusInQueue(order.id())).isNull();
+    }
+
+    @Test
+    void rebuildCorrectsTheQueueFromTheDatabase() {
+        RecoveryOrderDto order = testOrders.createOrder(testUsers.createCustomer(), testOrders.createProduct());
+        RecoveryOrderDto canceledOrder = testOrders.createOrder(testUsers.createCustomer(), testOrders.createProduct());
+        orderService.changeOrderStatus(canceledOrder.id(), new UpdateStatusOrderDto("CANCELED"));
+
+        // an event that doesn't match the database, as one lost or applied by mistake would leave it
+        kitchenQueue.onOrderStatusChanged(new OrderStatusChangedEvent(withStatus(order, Status.SENT), Status.PREPARING));
+        assertThat(statusInQueue(order.id())).isNull();
+
+        kitchenQueue.rebuild();
+        assertThat(statusInQueue(order.id())).isEqualTo(Status.PENDING);
+        assertThat(statusInQueue(canceledOrder.id())).isNull();
+    }
+
+    private Status statusInQueue(Long orderId) {
+        return kitchenQueue.getOrders().stream()
+                .filter(order -> order.id().equals(orderId))
+                .map(RecoveryOrderDto::status)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static RecoveryOrderDto withStatus(RecoveryOrderDto order, Status status) {
+        return new RecoveryOrderDto(order.id(), order.user(), order.orderItems(), status, order.paymentMethod(),
+                order.amount(), order.deliveryData(), order.createdDate());
+    }
+}
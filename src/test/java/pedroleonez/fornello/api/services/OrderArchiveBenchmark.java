@@ -0,0 +1,127 @@
+package pedroleonez.fornello.api.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.repositories.UserRepository;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+import pedroleonez.fornello.api.support.BenchmarkApplication;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/*
+the hot-path order queries with the old terminal orders still in the order tables (archived=false) and
+after OrderArchiver moved them to the archive (archived=true). the orders are 10,000 recent pending ones,
+plus the old delivered ones of the parameter; a customer has 20 recent orders and 200 old ones among them.
+- ordersByStatus: the first page of the pending orders (OrderService.getOrderByStatus)
+- customerHistory: the first page of the customer's orders, merged with the archive when it has archived ones
+- orderById: a recent order (OrderService.getOrderById)
+- recount: OrderCounts.recount, the periodic count of every order by user and status
+multi-million rows need a larger heap than the default: -p oldOrders=3000000 -jvmArgsAppend -Xmx8g
+run with: java -cp <test classpath> pedroleonez.fornello.api.services.OrderArchiveBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class OrderArchiveBenchmark {
+
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 8, Sort.by(Sort.Order.desc("createdDate"), Sort.Order.asc("id")));
+    private static final int RECENT_ORDERS = 10_000;
+
+    @Param({"1000000"})
+    private int oldOrders;
+
+    @Param({"false", "true"})
+    private boolean archived;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private OrderCounts orderCounts;
+    private AuthenticatedUser administrator;
+    private AuthenticatedUser customer;
+    private long recentOrderId;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start("fornello.orders.archive.chunk-size=10000");
+        orderService = context.getBean(OrderService.class);
+        orderCounts = context.getBean(OrderCounts.class);
+        administrator = AuthenticatedUser.from(context.getBean(UserRepository.class).findByEmail(TestUsers.ADMIN_EMAIL).orElseThrow());
+        TestUsers testUsers = context.getBean(TestUsers.class);
+        customer = AuthenticatedUser.from(testUsers.createCustomer());
+        Long otherCustomerId = testUsers.createCustomer().getId();
+        RecoveryProductDto product = context.getBean(TestOrders.class).createProduct();
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime longAgo = now.minusDays(100);
+        recentOrderId = 1_000_000_000L;
+        BenchmarkApplication.insertOrders(jdbcTemplate, recentOrderId, RECENT_ORDERS, otherCustomerId, product, Status.PENDING, now);
+        BenchmarkApplication.insertOrders(jdbcTemplate, 2_000_000_000L, 20, customer.id(), product, Status.PENDING, now);
+        BenchmarkApplication.insertOrders(jdbcTemplate, 3_000_000_000L, 200, customer.id(), product, Status.DELIVERED, longAgo);
+        BenchmarkApplication.insertOrders(jdbcTemplate, 4_000_000_000L, oldOrders, otherCustomerId, product, Status.DELIVERED, longAgo);
+        jdbcTemplate.execute("analyze");
+        orderCounts.recount();
+
+        if (archived) {
+            context.getBean(OrderArchiver.class).archiveTerminalOrders();
+            jdbcTemplate.execute("analyze");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<RecoveryOrderDto> ordersByStatus() {
+        return orderService.getOrderByStatus("PENDING", administrator, FIRST_PAGE);
+    }
+
+    @Benchmark
+    public Page<RecoveryOrderDto> customerHistory() {
+        return orderService.getOrders(customer, FIRST_PAGE);
+    }
+
+    @Benchmark
+    public RecoveryOrderDto orderById() {
+        return orderService.getOrderById(administrator, recentOrderId);
+    }
+
+    @Benchmark
+    public void recount() {
+        orderCounts.recount();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OrderArchiveBenchmark.class.getSimpleName()).build()).run();
+    }
+}
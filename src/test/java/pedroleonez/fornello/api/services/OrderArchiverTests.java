@@ -0,0 +1,102 @@
+package pedroleonez.fornello.api.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pedroleonez.fornello.api.dtos.input.order.UpdateStatusOrderDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.page.RecoveryCursorPageDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.repositories.OrderRepository;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import({TestUsers.class, TestOrders.class})
+class OrderArchiverTests {
+
+    @Autowired
+    private OrderArchiver orderArchiver;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private TestOrders testOrders;
+
+    // only the old orders that can't change anymore leave the hot tables
+    @Test
+    void oldTerminalOrdersAreMovedToTheArchive() {
+        User customer = testUsers.createCustomer();
+        RecoveryProductDto product = testOrders.createProduct();
+        RecoveryOrderDto canceledOrder = testOrders.createOrder(customer, product);
+        RecoveryOrderDto pendingOrder = testOrders.createOrder(customer, product);
+        RecoveryOrderDto recentCanceledOrder = testOrders.createOrder(customer, product);
+        orderService.changeOrderStatus(canceledOrder.id(), new UpdateStatusOrderDto("CANCELED"));
+        orderService.changeOrderStatus(recentCanceledOrder.id(), new UpdateStatusOrderDto("CANCELED"));
+        makeOld(canceledOrder.id(), 100);
+        makeOld(pendingOrder.id(), 101);
+
+        orderArchiver.archiveTerminalOrders();
+
+        assertThat(orderRepository.existsById(canceledOrder.id())).isFalse();
+        assertThat(archivedOrders(canceledOrder.id())).isEqualTo(1);
+        assertThat(orderRepository.existsById(pendingOrder.id())).isTrue();
+        assertThat(orderRepository.existsById(recentCanceledOrder.id())).isTrue();
+        assertThat(archivedOrders(pendingOrder.id()) + archivedOrders(recentCanceledOrder.id())).isZero();
+    }
+
+    // an archived order is still found by id and still listed in the order history
+    @Test
+    void archivedOrdersAreStillRead() {
+        User customer = testUsers.createCustomer();
+        RecoveryProductDto product = testOrders.createProduct();
+        RecoveryOrderDto archivedOrder = testOrders.createOrder(customer, product);
+        RecoveryOrderDto recentOrder = testOrders.createOrder(customer, product);
+        orderService.changeOrderStatus(archivedOrder.id(), new UpdateStatusOrderDto("CANCELED"));
+        makeOld(archivedOrder.id(), 100);
+
+        orderArchiver.archiveTerminalOrders();
+        assertThat(orderRepository.existsById(archivedOrder.id())).isFalse();
+
+        RecoveryOrderDto foundOrder = orderService.getOrderById(AuthenticatedUser.from(customer), archivedOrder.id());
+        assertThat(foundOrder.status()).isEqualTo(Status.CANCELED);
+        assertThat(foundOrder.amount()).isEqualByComparingTo(archivedOrder.amount());
+        assertThat(foundOrder.orderItems()).singleElement()
+                .satisfies(orderItem -> assertThat(orderItem.productName()).isEqualTo(product.name()));
+        assertThat(foundOrder.deliveryData()).isNotNull();
+
+        // newest first, so the archived order comes after the recent one, on the second page
+        RecoveryCursorPageDto<RecoveryOrderDto> firstPage = orderService.getOrdersByCursor(AuthenticatedUser.from(customer), null, 1);
+        RecoveryCursorPageDto<RecoveryOrderDto> secondPage = orderService.getOrdersByCursor(AuthenticatedUser.from(customer), firstPage.nextCursor(), 1);
+        assertThat(firstPage.content()).extracting(RecoveryOrderDto::id).containsExactly(recentOrder.id());
+        assertThat(secondPage.content()).extracting(RecoveryOrderDto::id).containsExactly(archivedOrder.id());
+        assertThat(secondPage.hasNext()).isFalse();
+    }
+
+    private void makeOld(Long orderId, int days) {
+        jdbcTemplate.update("update orders set created_date = ? where id = ?", LocalDateTime.now().minusDays(days), orderId);
+    }
+
+    private int archivedOrders(Long orderId) {
+        return jdbcTemplate.queryForObject("select count(*) from archived_orders where id = ?", Integer.class, orderId);
+    }
+}
@@ -0,0 +1,96 @@
+package pedroleonez.fornello.api.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import pedroleonez.fornello.api.dtos.input.order.CreateDeliveryDataDto;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderBatchDto;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderDto;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderItemDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderBatchDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+import pedroleonez.fornello.api.support.BenchmarkApplication;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+orders created per second, each order with 3 items of different products:
+- singleOrders: OrderService.createOrder once per order, as a partner posting to /api/orders does
+- batch: OrderService.createOrders with 100 orders, as one call to /api/orders/batch, saved in chunks
+  of fornello.orders.batch.chunk-size with batched inserts
+run with: java -cp <test classpath> pedroleonez.fornello.api.services.OrderBatchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderBatchBenchmark {
+
+    private static final int ORDERS_PER_CALL = 100;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private AuthenticatedUser partner;
+    private CreateOrderDto createOrderDto;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        orderService = context.getBean(OrderService.class);
+        partner = AuthenticatedUser.from(context.getBean(TestUsers.class).createCustomer());
+
+        TestOrders testOrders = context.getBean(TestOrders.class);
+        List<CreateOrderItemDto> orderItems = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            RecoveryProductDto product = testOrders.createProduct();
+            orderItems.add(new CreateOrderItemDto(product.id(), product.productVariations().get(0).id(), 1));
+        }
+        createOrderDto = new CreateOrderDto(orderItems, "PIX",
+                new CreateDeliveryDataDto("Receiver", "Street", "10", "House", "District", "00000-000", "City", "State", "99999-9999"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_PER_CALL)
+    public void singleOrders(Blackhole blackhole) {
+        for (int i = 0; i < ORDERS_PER_CALL; i++) {
+            blackhole.consume(orderService.createOrder(partner, createOrderDto));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_PER_CALL)
+    public RecoveryOrderBatchDto batch() {
+        return orderService.createOrders(partner, new CreateOrderBatchDto(Collections.nCopies(ORDERS_PER_CALL, createOrderDto)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OrderBatchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,76 @@
+package pedroleonez.fornello.api.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderBatchDto;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderDto;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderItemDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderBatchDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderBatchResultDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.repositories.OrderRepository;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import({TestUsers.class, TestOrders.class})
+class OrderBatchTests {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderCounts orderCounts;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private TestOrders testOrders;
+
+    // an invalid order is reported in its position and doesn't stop the others
+    @Test
+    void validOrdersAreCreatedAndInvalidOnesReportedInTheirPosition() {
+        User customer = testUsers.createCustomer();
+        RecoveryProductDto product = testOrders.createProduct();
+        CreateOrderDto invalidOrder = new CreateOrderDto(
+                List.of(new CreateOrderItemDto(product.id(), Long.MAX_VALUE, 1)),
+                "PIX",
+                testOrders.orderOf(product, 1).deliveryData());
+
+        RecoveryOrderBatchDto batch = orderService.createOrders(AuthenticatedUser.from(customer), new CreateOrderBatchDto(List.of(
+                testOrders.orderOf(product, 1), invalidOrder, testOrders.orderOf(product, 2), testOrders.orderOf(product, 3))));
+
+        assertThat(batch.created()).isEqualTo(3);
+        assertThat(batch.failed()).isEqualTo(1);
+        assertThat(batch.results()).extracting(RecoveryOrderBatchResultDto::index).containsExactly(0, 1, 2, 3);
+
+        RecoveryOrderBatchResultDto rejected = batch.results().get(1);
+        assertThat(rejected.orderId()).isNull();
+        assertThat(rejected.error()).isNotBlank();
+
+        List<RecoveryOrderBatchResultDto> created = List.of(batch.results().get(0), batch.results().get(2), batch.results().get(3));
+        assertThat(created).allSatisfy(result -> {
+            assertThat(result.error()).isNull();
+            assertThat(orderRepository.findStatusById(result.orderId())).contains(Status.PENDING);
+        });
+        assertThat(created).extracting(RecoveryOrderBatchResultDto::amount)
+                .containsExactly(new BigDecimal("50.00"), new BigDecimal("100.00"), new BigDecimal("150.00"));
+
+        // every saved order published its event
+        assertThat(orderCounts.countByUser(customer.getId(), Status.PENDING)).isEqualTo(3);
+    }
+}
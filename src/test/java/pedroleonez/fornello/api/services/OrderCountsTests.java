@@ -0,0 +1,110 @@
+package pedroleonez.fornello.api.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.dtos.input.order.UpdateStatusOrderDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import({TestUsers.class, TestOrders.class})
+class OrderCountsTests {
+
+    @Autowired
+    private OrderCounts orderCounts;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private TestOrders testOrders;
+
+    @Test
+    void eventsKeepTheCountsUpToDate() {
+        User customer = testUsers.createCustomer();
+        RecoveryOrderDto order = testOrders.createOrder(customer, testOrders.createProduct());
+        orderService.changeOrderStatus(order.id(), new UpdateStatusOrderDto("APPROVED"));
+
+        assertThat(orderCounts.countByUser(customer.getId())).isEqualTo(1);
+        assertThat(orderCounts.countByUser(customer.getId(), Status.APPROVED)).isEqualTo(1);
+
+        orderService.deleteOrderById(order.id());
+        assertThat(orderCounts.countByUser(customer.getId())).isZero();
+    }
+
+    // the recount can't see the order, which isn't committed yet, so its event is applied afterwards
+    @Test
+    void recountDoesntMissOrdersCommittedAfterIt() throws Exception {
+        User customer = testUsers.createCustomer();
+        RecoveryProductDto product = testOrders.createProduct();
+        CountDownLatch orderSaved = new CountDownLatch(1);
+        CountDownLatch recounted = new CountDownLatch(1);
+
+        CompletableFuture<Void> creation = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(transactionStatus -> {
+            testOrders.createOrder(customer, product);
+            orderSaved.countDown();
+            await(recounted);
+        }));
+        orderSaved.await();
+        orderCounts.recount();
+        recounted.countDown();
+        creation.get();
+
+        assertThat(orderCounts.countByUser(customer.getId(), Status.PENDING)).isEqualTo(1);
+    }
+
+    // the recount sees the committed order, so its event, delivered afterwards, isn't applied again
+    @Test
+    void recountDoesntCountTwiceOrdersDeliveredAfterIt() throws Exception {
+        User customer = testUsers.createCustomer();
+        RecoveryProductDto product = testOrders.createProduct();
+        CountDownLatch committed = new CountDownLatch(1);
+        CountDownLatch recounted = new CountDownLatch(1);
+
+        CompletableFuture<Void> creation = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(transactionStatus -> {
+            // registered before the order event, so it runs before the event is delivered
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    committed.countDown();
+                    await(recounted);
+                }
+            });
+            testOrders.createOrder(customer, product);
+        }));
+        committed.await();
+        orderCounts.recount();
+        recounted.countDown();
+        creation.get();
+
+        assertThat(orderCounts.countByUser(customer.getId(), Status.PENDING)).isEqualTo(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package pedroleonez.fornello.api.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.dtos.input.order.CreateDeliveryDataDto;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderDto;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderItemDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.entities.ProductVariation;
+import pedroleonez.fornello.api.repositories.ProductVariationRepository;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+import pedroleonez.fornello.api.support.BenchmarkApplication;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+latency of creating an order against its number of items, each item of a different product:
+- createOrder: OrderService.createOrder, from the variation lookup to the insert and its event
+- perItemLookups: the variation lookup as it was, one findByProductIdAndProductVariationId per item
+- batchedLookup: the variation lookup as it is, OrderFactory.findProductVariations in a single query
+run with: java -cp <test classpath> pedroleonez.fornello.api.services.OrderCreationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderCreationBenchmark {
+
+    @Param({"1", "5", "15", "50"})
+    private int items;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private OrderFactory orderFactory;
+    private ProductVariationRepository productVariationRepository;
+    private TransactionTemplate transactionTemplate;
+    private AuthenticatedUser customer;
+    private CreateOrderDto createOrderDto;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        orderService = context.getBean(OrderService.class);
+        orderFactory = context.getBean(OrderFactory.class);
+        productVariationRepository = context.getBean(ProductVariationRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        customer = AuthenticatedUser.from(context.getBean(TestUsers.class).createCustomer());
+
+        TestOrders testOrders = context.getBean(TestOrders.class);
+        List<CreateOrderItemDto> orderItems = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            RecoveryProductDto product = testOrders.createProduct();
+            orderItems.add(new CreateOrderItemDto(product.id(), product.productVariations().get(0).id(), 1));
+        }
+        createOrderDto = new CreateOrderDto(orderItems, "PIX",
+                new CreateDeliveryDataDto("Receiver", "Street", "10", "House", "District", "00000-000", "City", "State", "99999-9999"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public RecoveryOrderDto createOrder() {
+        return orderService.createOrder(customer, createOrderDto);
+    }
+
+    @Benchmark
+    public List<ProductVariation> perItemLookups() {
+        return transactionTemplate.execute(transactionStatus -> {
+            List<ProductVariation> productVariations = new ArrayList<>(items);
+            for (CreateOrderItemDto orderItem : createOrderDto.orderItems()) {
+                productVariations.add(productVariationRepository.findByProductIdAndProductVariationId(orderItem.productId(), orderItem.productVariationId()).orElseThrow());
+            }
+            return productVariations;
+        });
+    }
+
+    @Benchmark
+    public Map<Long, ProductVariation> batchedLookup() {
+        return transactionTemplate.execute(transactionStatus -> orderFactory.findProductVariations(createOrderDto.orderItems()));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OrderCreationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,108 @@
+package pedroleonez.fornello.api.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import pedroleonez.fornello.api.dtos.input.order.UpdateStatusOrderDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.page.RecoveryCursorPageDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.exceptions.InvalidCursorException;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Import({TestUsers.class, TestOrders.class})
+class OrderCursorPagingTests {
+
+    private static final Comparator<RecoveryOrderDto> CURSOR_ORDER = Comparator
+            .comparing(RecoveryOrderDto::createdDate, Comparator.reverseOrder())
+            .thenComparing(RecoveryOrderDto::id);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private TestOrders testOrders;
+
+    @Test
+    void pagesCoverEveryOrderOnceNewestFirst() {
+        User customer = testUsers.createCustomer();
+        List<Long> orderIds = createOrders(customer, 5);
+
+        List<RecoveryOrderDto> listedOrders = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            RecoveryCursorPageDto<RecoveryOrderDto> page = orderService.getOrdersByCursor(AuthenticatedUser.from(customer), cursor, 2);
+            listedOrders.addAll(page.content());
+            assertThat(page.hasNext()).isEqualTo(page.nextCursor() != null);
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(listedOrders).extracting(RecoveryOrderDto::id).containsExactlyInAnyOrderElementsOf(orderIds);
+        assertThat(listedOrders).isSortedAccordingTo(CURSOR_ORDER);
+    }
+
+    // the next page starts after the last order read, so a new order doesn't shift it like an offset would
+    @Test
+    void ordersCreatedBetweenPagesDontShiftTheNextPage() {
+        User customer = testUsers.createCustomer();
+        List<Long> orderIds = createOrders(customer, 4);
+
+        RecoveryCursorPageDto<RecoveryOrderDto> firstPage = orderService.getOrdersByCursor(AuthenticatedUser.from(customer), null, 2);
+        createOrders(customer, 1);
+        RecoveryCursorPageDto<RecoveryOrderDto> secondPage = orderService.getOrdersByCursor(AuthenticatedUser.from(customer), firstPage.nextCursor(), 2);
+
+        List<Long> listedOrderIds = new ArrayList<>();
+        firstPage.content().forEach(order -> listedOrderIds.add(order.id()));
+        secondPage.content().forEach(order -> listedOrderIds.add(order.id()));
+        assertThat(listedOrderIds).containsExactlyInAnyOrderElementsOf(orderIds);
+        assertThat(secondPage.hasNext()).isFalse();
+    }
+
+    @Test
+    void statusPagesOnlyListThatStatus() {
+        User customer = testUsers.createCustomer();
+        List<Long> orderIds = createOrders(customer, 3);
+        orderService.changeOrderStatus(orderIds.get(1), new UpdateStatusOrderDto("APPROVED"));
+
+        RecoveryCursorPageDto<RecoveryOrderDto> page = orderService.getOrderByStatusAndCursor("pending", AuthenticatedUser.from(customer), null, 10);
+
+        assertThat(page.content()).extracting(RecoveryOrderDto::id).containsExactlyInAnyOrder(orderIds.get(0), orderIds.get(2));
+        assertThat(page.hasNext()).isFalse();
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        AuthenticatedUser customer = AuthenticatedUser.from(testUsers.createCustomer());
+
+        assertThatThrownBy(() -> orderService.getOrdersByCursor(customer, "not-a-cursor", 2))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    private List<Long> createOrders(User customer, int count) {
+        RecoveryProductDto product = testOrders.createProduct();
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            orderIds.add(testOrders.createOrder(customer, product).id());
+        }
+        return orderIds;
+    }
+}
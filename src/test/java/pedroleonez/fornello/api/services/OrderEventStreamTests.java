@@ -0,0 +1,142 @@
+package pedroleonez.fornello.api.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.events.OrderCreatedEvent;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+a client that stops reading blocks the send to its connection. with a single core sender, the other
+subscribers must keep receiving events, and the stalled one must be disconnected after the send timeout.
+the buffers are large so the stalled subscriber isn't disconnected for a full buffer first.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "fornello.orders.events.pool-size=1",
+        "fornello.orders.events.buffer-size=10000",
+        "fornello.orders.events.send-timeout-ms=500",
+        "fornello.orders.events.stall-check-interval-ms=100"
+})
+@Import(TestUsers.class)
+@ExtendWith(OutputCaptureExtension.class)
+class OrderEventStreamTests {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private OrderEventStream orderEventStream;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Test
+    void stalledSubscriberIsDisconnectedWithoutHoldingBackTheOthers() throws Exception {
+        String bearer = testUsers.adminBearer();
+        AtomicInteger receivedEvents = new AtomicInteger();
+        HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build().sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/orders/events"))
+                        .header("Authorization", bearer)
+                        .build(), HttpResponse.BodyHandlers.ofLines())
+                .thenAccept(response -> response.body()
+                        .filter(line -> line.startsWith("event:" + OrderEventStream.ORDER_CREATED))
+                        .forEach(line -> receivedEvents.incrementAndGet()));
+
+        try (Socket stalledClient = new Socket()) {
+            stalledClient.setReceiveBufferSize(4096);
+            stalledClient.connect(new InetSocketAddress("localhost", port));
+            OutputStream request = stalledClient.getOutputStream();
+            request.write(("GET /api/orders/events HTTP/1.1\r\nHost: localhost\r\nAuthorization: " + bearer + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            request.flush();
+            awaitUntil(() -> subscribers() == 2);
+
+            // large events, until the writes to the client that doesn't read block
+            double stallsBefore = stalls();
+            int publishedEvents = 0;
+            while (stalls() == stallsBefore && publishedEvents < 2000) {
+                publish(publishedEvents++);
+                Thread.sleep(5);
+            }
+            assertThat(stalls()).isEqualTo(stallsBefore + 1);
+            assertThat(subscribers()).isEqualTo(1);
+
+            publish(publishedEvents++);
+            int expectedEvents = publishedEvents;
+            awaitUntil(() -> receivedEvents.get() == expectedEvents);
+            assertThat(receivedEvents.get()).isEqualTo(expectedEvents);
+        }
+    }
+
+    // the write to a closed connection fails, and the subscriber is dropped without an error response being attempted
+    @Test
+    void disconnectedClientIsDroppedWithoutAHandlerFailure(CapturedOutput output) throws Exception {
+        int subscribersBefore = (int) subscribers();
+        try (Socket client = new Socket()) {
+            client.connect(new InetSocketAddress("localhost", port));
+            OutputStream request = client.getOutputStream();
+            request.write(("GET /api/orders/events HTTP/1.1\r\nHost: localhost\r\nAuthorization: " + testUsers.adminBearer() + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            request.flush();
+            awaitUntil(() -> subscribers() == subscribersBefore + 1);
+            // reset instead of a graceful close, so the next writes fail
+            client.setSoLinger(true, 0);
+        }
+
+        int publishedEvents = 0;
+        while (subscribers() > subscribersBefore && publishedEvents < 200) {
+            publish(publishedEvents++);
+            Thread.sleep(20);
+        }
+        assertThat(subscribers()).isEqualTo(subscribersBefore);
+        // the async dispatch of a failed emitter would run after the disconnect
+        Thread.sleep(500);
+        assertThat(output.getAll()).doesNotContain("Failure in @ExceptionHandler", "No converter for");
+    }
+
+    private void publish(long orderId) {
+        orderEventStream.onOrderCreated(new OrderCreatedEvent(new RecoveryOrderDto(orderId, null, List.of(), Status.PENDING,
+                "x".repeat(64 * 1024), BigDecimal.TEN, null, LocalDateTime.now())));
+    }
+
+    private double subscribers() {
+        return meterRegistry.get("fornello.orders.events.subscribers").gauge().value();
+    }
+
+    private double stalls() {
+        return meterRegistry.get("fornello.orders.events.stalls").counter().count();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+}
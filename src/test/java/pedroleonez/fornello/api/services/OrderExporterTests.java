@@ -0,0 +1,191 @@
+package pedroleonez.fornello.api.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.dtos.input.order.UpdateStatusOrderDto;
+import pedroleonez.fornello.api.dtos.input.product.CreateProductDto;
+import pedroleonez.fornello.api.dtos.input.product.CreateProductVariationDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.enums.ExportFormat;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.exceptions.InvalidDateRangeException;
+import pedroleonez.fornello.api.repositories.ArchivedOrderRepository;
+import pedroleonez.fornello.api.repositories.OrderRepository;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Import({TestUsers.class, TestOrders.class})
+class OrderExporterTests {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @Autowired
+    private OrderDtoAssembler orderDtoAssembler;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderArchiver orderArchiver;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private TestOrders testOrders;
+
+    // chunks of two orders, so a few orders already cross several chunks
+    private OrderExporter orderExporter;
+
+    @BeforeEach
+    void createExporter() {
+        orderExporter = new OrderExporter(orderRepository, archivedOrderRepository, orderDtoAssembler, entityManager, objectMapper, transactionTemplate, 2);
+    }
+
+    // the other tests' orders share the database, so only this customer's lines are checked
+    @Test
+    void ndjsonHasOneLinePerOrderIncludingTheArchivedOnes() throws IOException {
+        User customer = testUsers.createCustomer();
+        RecoveryProductDto product = testOrders.createProduct();
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            orderIds.add(testOrders.createOrder(customer, product).id());
+        }
+        RecoveryOrderDto archivedOrder = testOrders.createOrder(customer, product);
+        orderService.changeOrderStatus(archivedOrder.id(), new UpdateStatusOrderDto("CANCELED"));
+        jdbcTemplate.update("update orders set created_date = ? where id = ?", LocalDateTime.now().minusDays(100), archivedOrder.id());
+        orderArchiver.archiveTerminalOrders();
+
+        List<JsonNode> exportedOrders = new ArrayList<>();
+        for (String line : export(ExportFormat.NDJSON, TODAY.minusDays(100), TODAY, null)) {
+            JsonNode order = objectMapper.readTree(line);
+            if (order.path("user").path("id").asLong() == customer.getId()) {
+                exportedOrders.add(order);
+            }
+        }
+
+        // the hot orders come first, then the archived ones
+        assertThat(exportedOrders).extracting(order -> order.get("id").asLong())
+                .containsExactly(orderIds.get(0), orderIds.get(1), orderIds.get(2), orderIds.get(3), archivedOrder.id());
+        assertThat(exportedOrders.get(0).get("orderItems")).hasSize(1);
+        assertThat(exportedOrders.get(4).get("status").asText()).isEqualTo("CANCELED");
+    }
+
+    @Test
+    void csvHasOneLinePerOrderItemAndFiltersByStatus() throws IOException {
+        User customer = testUsers.createCustomer();
+        RecoveryProductDto product = testOrders.createProduct();
+        RecoveryOrderDto pendingOrder = testOrders.createOrder(customer, product);
+        RecoveryOrderDto canceledOrder = testOrders.createOrder(customer, product);
+        orderService.changeOrderStatus(canceledOrder.id(), new UpdateStatusOrderDto("CANCELED"));
+
+        List<String> lines = export(ExportFormat.CSV, TODAY, TODAY, Status.PENDING);
+
+        assertThat(lines.get(0)).startsWith("order_id,created_date,user_id,user_email,status");
+        List<String> customerLines = lines.stream().filter(line -> line.contains(customer.getEmail())).toList();
+        assertThat(customerLines).singleElement().satisfies(line -> {
+            String[] values = line.split(",");
+            assertThat(values[0]).isEqualTo(pendingOrder.id().toString());
+            assertThat(values[4]).isEqualTo("PENDING");
+            assertThat(values[9]).isEqualTo(product.name());
+            assertThat(values[12]).isEqualTo("50.00");
+            assertThat(values[13]).isEqualTo("1");
+        });
+    }
+
+    @Test
+    void csvHasALineForOrdersWithoutItems() throws IOException {
+        User customer = testUsers.createCustomer();
+        RecoveryOrderDto order = testOrders.createOrder(customer, testOrders.createProduct());
+        jdbcTemplate.update("delete from orders_items where order_id = ?", order.id());
+
+        List<String> customerLines = export(ExportFormat.CSV, TODAY, TODAY, null).stream()
+                .filter(line -> line.contains(customer.getEmail()))
+                .toList();
+
+        assertThat(customerLines).singleElement().satisfies(line -> {
+            String[] values = line.split(",", -1);
+            assertThat(values).hasSize(14);
+            assertThat(values[0]).isEqualTo(order.id().toString());
+            assertThat(values[6]).isEqualTo("50.00");
+            assertThat(Arrays.copyOfRange(values, 7, 14)).containsOnly("");
+        });
+    }
+
+    // a spreadsheet opening the file must not evaluate a product name as a formula
+    @Test
+    void csvValuesThatLookLikeFormulasAreQuoted() throws IOException {
+        User customer = testUsers.createCustomer();
+        String productName = "=HYPERLINK(\"http://example.com\") " + UUID.randomUUID();
+        RecoveryProductDto product = productService.createProduct(new CreateProductDto(productName, "Tomato and mozzarella", "PIZZA",
+                List.of(new CreateProductVariationDto("LARGE", "8 slices", new BigDecimal("50.00"), true)), true));
+        testOrders.createOrder(customer, product);
+
+        List<String> customerLines = export(ExportFormat.CSV, TODAY, TODAY, null).stream()
+                .filter(line -> line.contains(customer.getEmail()))
+                .toList();
+
+        assertThat(customerLines).singleElement().asString()
+                .contains(",\"'=HYPERLINK(\"\"http://example.com\"\") ")
+                .doesNotContain(",=");
+    }
+
+    // the range is checked before the response starts, so it can still be answered with a 400
+    @Test
+    void invalidRangeIsRejectedBeforeWriting() {
+        assertThatThrownBy(() -> orderExporter.export(ExportFormat.NDJSON, TODAY, TODAY.minusDays(1), null))
+                .isInstanceOf(InvalidDateRangeException.class);
+    }
+
+    private List<String> export(ExportFormat format, LocalDate from, LocalDate to, Status status) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        orderExporter.export(format, from, to, status).writeTo(outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+}
@@ -0,0 +1,47 @@
+package pedroleonez.fornello.api.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderDto;
+import pedroleonez.fornello.api.dtos.input.product.CreateProductDto;
+import pedroleonez.fornello.api.dtos.input.product.CreateProductVariationDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.exceptions.ProductVariationUnavailableException;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Import({TestUsers.class, TestOrders.class})
+class OrderFactoryTests {
+
+    @Autowired
+    private OrderFactory orderFactory;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TestOrders testOrders;
+
+    @Test
+    void unavailableVariationCantBeOrdered() {
+        RecoveryProductDto product = productService.createProduct(new CreateProductDto(
+                "Pizza " + UUID.randomUUID(),
+                "Tomato and mozzarella",
+                "PIZZA",
+                List.of(new CreateProductVariationDto("LARGE", "8 slices", new BigDecimal("50.00"), false)),
+                true));
+        CreateOrderDto createOrderDto = testOrders.orderOf(product, 1);
+
+        assertThatThrownBy(() -> orderFactory.priceOrder(createOrderDto, orderFactory.findProductVariations(createOrderDto.orderItems())))
+                .isInstanceOf(ProductVariationUnavailableException.class);
+    }
+}
@@ -0,0 +1,178 @@
+package pedroleonez.fornello.api.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import pedroleonez.fornello.api.dtos.input.order.CreateDeliveryDataDto;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderDto;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderItemDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.exceptions.IdempotencyKeyReusedException;
+import pedroleonez.fornello.api.exceptions.IdempotentRequestInProgressException;
+import pedroleonez.fornello.api.exceptions.InvalidIdempotencyKeyException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderIdempotencyStoreTests {
+
+    private static final Long USER_ID = 1L;
+
+    private final OrderIdempotencyStore orderIdempotencyStore = new OrderIdempotencyStore(100, 60, 10_000, new SimpleMeterRegistry());
+
+    private final AtomicLong nextOrderId = new AtomicLong();
+    private final AtomicInteger createdOrders = new AtomicInteger();
+
+    @Test
+    void repeatedKeyReturnsTheOrderCreatedByTheFirstRequest() {
+        RecoveryOrderDto order = orderIdempotencyStore.execute(USER_ID, "key", orderOf(1), this::createOrder);
+        RecoveryOrderDto repeatedOrder = orderIdempotencyStore.execute(USER_ID, "key", orderOf(1), this::createOrder);
+
+        assertThat(repeatedOrder).isSameAs(order);
+        assertThat(createdOrders.get()).isEqualTo(1);
+    }
+
+    @Test
+    void keysAreScopedByUser() {
+        RecoveryOrderDto order = orderIdempotencyStore.execute(USER_ID, "key", orderOf(1), this::createOrder);
+        RecoveryOrderDto otherUserOrder = orderIdempotencyStore.execute(USER_ID + 1, "key", orderOf(1), this::createOrder);
+
+        assertThat(otherUserOrder.id()).isNotEqualTo(order.id());
+        assertThat(createdOrders.get()).isEqualTo(2);
+    }
+
+    @Test
+    void keyCantBeReusedForADifferentOrder() {
+        orderIdempotencyStore.execute(USER_ID, "key", orderOf(1), this::createOrder);
+
+        assertThatThrownBy(() -> orderIdempotencyStore.execute(USER_ID, "key", orderOf(2), this::createOrder))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+        assertThat(createdOrders.get()).isEqualTo(1);
+    }
+
+    @Test
+    void failedExecutionIsForgottenSoItCanBeRetried() {
+        assertThatThrownBy(() -> orderIdempotencyStore.execute(USER_ID, "key", orderOf(1), () -> {
+            throw new IllegalStateException("database unavailable");
+        })).isInstanceOf(IllegalStateException.class);
+
+        RecoveryOrderDto order = orderIdempotencyStore.execute(USER_ID, "key", orderOf(1), this::createOrder);
+        assertThat(order).isNotNull();
+        assertThat(createdOrders.get()).isEqualTo(1);
+    }
+
+    @Test
+    void blankOrTooLongKeysAreRejected() {
+        assertThatThrownBy(() -> orderIdempotencyStore.execute(USER_ID, " ", orderOf(1), this::createOrder))
+                .isInstanceOf(InvalidIdempotencyKeyException.class);
+        assertThatThrownBy(() -> orderIdempotencyStore.execute(USER_ID, "k".repeat(256), orderOf(1), this::createOrder))
+                .isInstanceOf(InvalidIdempotencyKeyException.class);
+    }
+
+    // the second request arrives while the first one is still creating the order, and waits for its result
+    @Test
+    void concurrentRequestsWithTheSameKeyCreateOneOrder() throws Exception {
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch secondRequestSent = new CountDownLatch(1);
+        Supplier<RecoveryOrderDto> slowCreation = () -> {
+            creating.countDown();
+            await(secondRequestSent);
+            return createOrder();
+        };
+
+        CompletableFuture<RecoveryOrderDto> first = CompletableFuture.supplyAsync(() ->
+                orderIdempotencyStore.execute(USER_ID, "key", orderOf(1), slowCreation));
+        creating.await();
+        CompletableFuture<RecoveryOrderDto> second = CompletableFuture.supplyAsync(() ->
+                orderIdempotencyStore.execute(USER_ID, "key", orderOf(1), this::createOrder));
+        Thread.sleep(100);
+        assertThat(second).isNotDone();
+        secondRequestSent.countDown();
+
+        assertThat(second.get()).isSameAs(first.get());
+        assertThat(createdOrders.get()).isEqualTo(1);
+    }
+
+    // with room for a single completed key, the other keys evict every completed one while the first is still running
+    @Test
+    void executionInFlightIsNotEvictedByOtherKeys() throws Exception {
+        OrderIdempotencyStore smallStore = new OrderIdempotencyStore(1, 60, 10_000, new SimpleMeterRegistry());
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch otherKeysDone = new CountDownLatch(1);
+        Supplier<RecoveryOrderDto> slowCreation = () -> {
+            creating.countDown();
+            await(otherKeysDone);
+            return createOrder();
+        };
+
+        CompletableFuture<RecoveryOrderDto> first = CompletableFuture.supplyAsync(() ->
+                smallStore.execute(USER_ID, "key", orderOf(1), slowCreation));
+        creating.await();
+        smallStore.execute(USER_ID, "other-key", orderOf(1), this::createOrder);
+        smallStore.execute(USER_ID, "another-key", orderOf(1), this::createOrder);
+        CompletableFuture<RecoveryOrderDto> retry = CompletableFuture.supplyAsync(() ->
+                smallStore.execute(USER_ID, "key", orderOf(1), this::createOrder));
+        Thread.sleep(100);
+        assertThat(retry).isNotDone();
+        otherKeysDone.countDown();
+
+        assertThat(retry.get()).isSameAs(first.get());
+        assertThat(createdOrders.get()).isEqualTo(3);
+        // the completed execution is cached, so a later retry returns it as well
+        assertThat(smallStore.execute(USER_ID, "key", orderOf(1), this::createOrder)).isSameAs(first.get());
+        assertThat(createdOrders.get()).isEqualTo(3);
+    }
+
+    // a retry doesn't hold its thread longer than the wait timeout, and the execution in flight still completes
+    @Test
+    void retryGivesUpAfterTheWaitTimeout() throws Exception {
+        OrderIdempotencyStore impatientStore = new OrderIdempotencyStore(100, 60, 50, new SimpleMeterRegistry());
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch retryDone = new CountDownLatch(1);
+        Supplier<RecoveryOrderDto> slowCreation = () -> {
+            creating.countDown();
+            await(retryDone);
+            return createOrder();
+        };
+
+        CompletableFuture<RecoveryOrderDto> first = CompletableFuture.supplyAsync(() ->
+                impatientStore.execute(USER_ID, "key", orderOf(1), slowCreation));
+        creating.await();
+        assertThatThrownBy(() -> impatientStore.execute(USER_ID, "key", orderOf(1), this::createOrder))
+                .isInstanceOf(IdempotentRequestInProgressException.class);
+        retryDone.countDown();
+
+        assertThat(first.get()).isNotNull();
+        assertThat(createdOrders.get()).isEqualTo(1);
+    }
+
+    private RecoveryOrderDto createOrder() {
+        createdOrders.incrementAndGet();
+        return new RecoveryOrderDto(nextOrderId.incrementAndGet(), null, List.of(), Status.PENDING, "PIX",
+                new BigDecimal("50.00"), null, LocalDateTime.now());
+    }
+
+    private static CreateOrderDto orderOf(int quantity) {
+        return new CreateOrderDto(
+                List.of(new CreateOrderItemDto(1L, 1L, quantity)),
+                "PIX",
+                new CreateDeliveryDataDto("Receiver", "Street", "10", "House", "District", "00000-000", "City", "State", "99999-9999"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
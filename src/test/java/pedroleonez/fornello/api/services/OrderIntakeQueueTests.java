@@ -0,0 +1,282 @@
+package pedroleonez.fornello.api.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.ApplicationEventMulticaster;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderIntakeDto;
+import pedroleonez.fornello.api.entities.OrderIntake;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.enums.IntakeStatus;
+import pedroleonez.fornello.api.events.OrderCreatedEvent;
+import pedroleonez.fornello.api.exceptions.OrderIntakeFullException;
+import pedroleonez.fornello.api.mappers.OrderMapper;
+import pedroleonez.fornello.api.repositories.OrderIntakeRepository;
+import pedroleonez.fornello.api.repositories.OrderRepository;
+import pedroleonez.fornello.api.repositories.ProductVariationRepository;
+import pedroleonez.fornello.api.repositories.UserRepository;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Import({TestUsers.class, TestOrders.class})
+class OrderIntakeQueueTests {
+
+    private static final long WAIT_MILLIS = 10_000;
+
+    @Autowired
+    private OrderIntakeQueue orderIntakeQueue;
+
+    @Autowired
+    private OrderIntakeRepository orderIntakeRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderFactory orderFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductVariationRepository productVariationRepository;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ApplicationEventMulticaster applicationEventMulticaster;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private TestOrders testOrders;
+
+    private ApplicationListener<ApplicationEvent> crash;
+
+    @AfterEach
+    void removeCrash() {
+        if (crash != null) {
+            applicationEventMulticaster.removeApplicationListener(crash);
+        }
+    }
+
+    @Test
+    void submittedOrdersAreStoredAndCreated() throws Exception {
+        User customer = testUsers.createCustomer();
+        AuthenticatedUser authenticatedUser = AuthenticatedUser.from(customer);
+
+        RecoveryOrderIntakeDto intake = orderIntakeQueue.submit(authenticatedUser, testOrders.orderOf(testOrders.createProduct(), 2));
+        assertThat(intake.status()).isEqualTo(IntakeStatus.QUEUED);
+        assertThat(orderIntakeRepository.existsById(intake.intakeId())).isTrue();
+
+        RecoveryOrderIntakeDto created = awaitCompletion(authenticatedUser, intake.intakeId());
+        assertThat(created.status()).isEqualTo(IntakeStatus.CREATED);
+        assertThat(created.amount()).isEqualByComparingTo("100.00");
+        assertThat(orderRepository.existsById(created.orderId())).isTrue();
+    }
+
+    // the intakes left in the table by a previous run are counted and drained when the queue starts again
+    @Test
+    void intakesLeftInTheTableAreCountedAndCreatedOnRestart() throws Exception {
+        User customer = testUsers.createCustomer();
+        orderIntakeQueue.stop();
+        List<OrderIntake> orderIntakes;
+        try {
+            orderIntakes = orderIntakeRepository.saveAll(List.of(
+                    queuedIntake(customer, testOrders.orderOf(testOrders.createProduct(), 1)),
+                    queuedIntake(customer, testOrders.orderOf(testOrders.createProduct(), 1))));
+        } finally {
+            orderIntakeQueue.start();
+        }
+
+        for (OrderIntake orderIntake : orderIntakes) {
+            RecoveryOrderIntakeDto created = awaitCompletion(AuthenticatedUser.from(customer), orderIntake.getId());
+            assertThat(created.status()).isEqualTo(IntakeStatus.CREATED);
+            assertThat(orderRepository.existsById(created.orderId())).isTrue();
+        }
+        // each intake counted at the start leaves the count once created
+        assertThat(meterRegistry.get("fornello.orders.intake.queue.size").gauge().value()).isZero();
+    }
+
+    /*
+    a crash after the orders are saved and before their intakes are marked created rolls both back: no order
+    is left and the intake stays queued, to become exactly one order once the writer succeeds
+     */
+    @Test
+    void crashBeforeTheIntakesAreMarkedLeavesNoOrder() throws Exception {
+        User customer = testUsers.createCustomer();
+        AuthenticatedUser authenticatedUser = AuthenticatedUser.from(customer);
+        crashWhenWritingOrdersOf(customer);
+        double writerErrors = meterRegistry.get("fornello.orders.intake.writer.errors").counter().count();
+
+        RecoveryOrderIntakeDto intake = orderIntakeQueue.submit(authenticatedUser, testOrders.orderOf(testOrders.createProduct(), 1));
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (meterRegistry.get("fornello.orders.intake.writer.errors").counter().count() == writerErrors) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(20);
+        }
+        assertThat(orderIntakeQueue.getIntake(authenticatedUser, intake.intakeId()).status()).isEqualTo(IntakeStatus.QUEUED);
+        assertThat(ordersOf(customer)).isZero();
+
+        applicationEventMulticaster.removeApplicationListener(crash);
+        crash = null;
+        // a new submit wakes the writer before the retry pause ends
+        RecoveryOrderIntakeDto nextIntake = orderIntakeQueue.submit(authenticatedUser, testOrders.orderOf(testOrders.createProduct(), 1));
+
+        RecoveryOrderIntakeDto created = awaitCompletion(authenticatedUser, intake.intakeId());
+        assertThat(created.status()).isEqualTo(IntakeStatus.CREATED);
+        assertThat(awaitCompletion(authenticatedUser, nextIntake.intakeId()).status()).isEqualTo(IntakeStatus.CREATED);
+        assertThat(ordersOf(customer)).isEqualTo(2);
+    }
+
+    // once the capacity is taken, orders are rejected right away (503) instead of queued
+    @Test
+    void ordersAreRejectedWhenTheQueueIsFull() {
+        User customer = testUsers.createCustomer();
+        AuthenticatedUser authenticatedUser = AuthenticatedUser.from(customer);
+        // not started, so nothing leaves its queue
+        OrderIntakeQueue fullQueue = new OrderIntakeQueue(orderFactory, orderRepository, orderIntakeRepository, userRepository, productVariationRepository,
+                transactionTemplate, orderMapper, eventPublisher, objectMapper, 1, 100, 60, new SimpleMeterRegistry());
+        CreateOrderDto createOrderDto = testOrders.orderOf(testOrders.createProduct(), 1);
+
+        RecoveryOrderIntakeDto intake = fullQueue.submit(authenticatedUser, createOrderDto);
+        long intakes = orderIntakeRepository.count();
+        assertThatThrownBy(() -> fullQueue.submit(authenticatedUser, createOrderDto))
+                .isInstanceOf(OrderIntakeFullException.class);
+        assertThat(orderIntakeRepository.count()).isEqualTo(intakes);
+
+        // the writer of the application only reads the table when woken, so the accepted intake is still there
+        orderIntakeRepository.deleteById(intake.intakeId());
+    }
+
+    // the bad intake fails the group, and then fails alone
+    @Test
+    void anIntakeThatCantBeSavedFailsAlone() throws Exception {
+        User customer = testUsers.createCustomer();
+        OrderIntake badIntake = queuedIntake(customer, testOrders.orderOf(testOrders.createProduct(), 1));
+        badIntake.setUserId(Long.MAX_VALUE);
+        OrderIntake goodIntake = queuedIntake(customer, testOrders.orderOf(testOrders.createProduct(), 1));
+        // saved while the writer is stopped, so both are read in the same group when it starts
+        orderIntakeQueue.stop();
+        try {
+            orderIntakeRepository.saveAll(List.of(badIntake, goodIntake));
+        } finally {
+            orderIntakeQueue.start();
+        }
+
+        AuthenticatedUser authenticatedUser = AuthenticatedUser.from(customer);
+        assertThat(awaitCompletion(authenticatedUser, goodIntake.getId()).status()).isEqualTo(IntakeStatus.CREATED);
+        RecoveryOrderIntakeDto failed = orderIntakeRepository.findById(badIntake.getId())
+                .map(orderIntake -> new RecoveryOrderIntakeDto(orderIntake.getId(), orderIntake.getStatus(), orderIntake.getOrderId(), orderIntake.getAmount(), orderIntake.getError()))
+                .orElseThrow();
+        assertThat(failed.status()).isEqualTo(IntakeStatus.FAILED);
+        assertThat(failed.orderId()).isNull();
+    }
+
+    @Test
+    void onlyCompletedIntakesExpire() {
+        User customer = testUsers.createCustomer();
+        OrderIntake completedIntake = queuedIntake(customer, testOrders.orderOf(testOrders.createProduct(), 1));
+        completedIntake.setStatus(IntakeStatus.CREATED);
+        completedIntake.setCompletedDate(LocalDateTime.now().minusDays(1));
+        orderIntakeRepository.save(completedIntake);
+
+        // not committed, so the writer can't take the queued intake meanwhile
+        transactionTemplate.executeWithoutResult(transactionStatus -> {
+            OrderIntake queuedIntake = queuedIntake(customer, testOrders.orderOf(testOrders.createProduct(), 1));
+            queuedIntake.setCompletedDate(LocalDateTime.now().minusDays(1));
+            orderIntakeRepository.saveAndFlush(queuedIntake);
+
+            orderIntakeQueue.removeExpiredIntakes();
+
+            assertThat(orderIntakeRepository.existsById(queuedIntake.getId())).isTrue();
+            assertThat(orderIntakeRepository.existsById(completedIntake.getId())).isFalse();
+            transactionStatus.setRollbackOnly();
+        });
+    }
+
+    // the order events are published inside the writer's transaction, after the orders are saved
+    private void crashWhenWritingOrdersOf(User customer) {
+        crash = event -> {
+            if (event instanceof PayloadApplicationEvent<?> payloadEvent
+                    && payloadEvent.getPayload() instanceof OrderCreatedEvent orderCreatedEvent
+                    && orderCreatedEvent.order().user().id().equals(customer.getId())) {
+                throw new SimulatedCrash();
+            }
+        };
+        applicationEventMulticaster.addApplicationListener(crash);
+    }
+
+    private int ordersOf(User customer) {
+        return jdbcTemplate.queryForObject("select count(*) from orders where user_id = ?", Integer.class, customer.getId());
+    }
+
+    private OrderIntake queuedIntake(User customer, CreateOrderDto createOrderDto) {
+        OrderFactory.PricedOrder pricedOrder = orderFactory.priceOrder(createOrderDto, orderFactory.findProductVariations(createOrderDto.orderItems()));
+        try {
+            return OrderIntake.builder()
+                    .id(UUID.randomUUID().toString())
+                    .userId(customer.getId())
+                    .status(IntakeStatus.QUEUED)
+                    .payload(objectMapper.writeValueAsString(Map.of("createOrderDto", createOrderDto, "pricedOrder", pricedOrder)))
+                    .amount(pricedOrder.amount())
+                    .createdDate(LocalDateTime.now())
+                    .build();
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private RecoveryOrderIntakeDto awaitCompletion(AuthenticatedUser authenticatedUser, String intakeId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        RecoveryOrderIntakeDto intake = orderIntakeQueue.getIntake(authenticatedUser, intakeId);
+        while (intake.status() == IntakeStatus.QUEUED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            intake = orderIntakeQueue.getIntake(authenticatedUser, intakeId);
+        }
+        return intake;
+    }
+
+    // an Error, so it isn't handled as a failure of the group's orders
+    private static class SimulatedCrash extends Error {
+    }
+}
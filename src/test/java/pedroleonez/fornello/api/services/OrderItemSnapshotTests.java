@@ -0,0 +1,68 @@
+package pedroleonez.fornello.api.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.dtos.input.product.UpdateProductDto;
+import pedroleonez.fornello.api.dtos.input.product.UpdateProductVariationDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderItemDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import({TestUsers.class, TestOrders.class})
+class OrderItemSnapshotTests {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private TestOrders testOrders;
+
+    // an order keeps showing what was bought, at the price it was bought, after the catalog changes
+    @Test
+    void orderItemsKeepTheProductAsItWasWhenOrdered() {
+        User customer = testUsers.createCustomer();
+        RecoveryProductDto product = testOrders.createProduct();
+        Long productVariationId = product.productVariations().get(0).id();
+        RecoveryOrderDto order = orderService.createOrder(AuthenticatedUser.from(customer), testOrders.orderOf(product, 2));
+
+        // in one transaction, as the endpoints keep the session open for the request
+        transactionTemplate.executeWithoutResult(transactionStatus -> {
+            productService.updateProductPart(product.id(), new UpdateProductDto("Renamed pizza", null, null));
+            productService.updateProductVariation(product.id(), productVariationId, new UpdateProductVariationDto("FAMILY", null, new BigDecimal("70.00"), null));
+        });
+        assertThat(productService.getProductById(product.id()).productVariations().get(0).price()).isEqualByComparingTo("70.00");
+
+        RecoveryOrderDto foundOrder = orderService.getOrderById(AuthenticatedUser.from(customer), order.id());
+        RecoveryOrderDto listedOrder = orderService.getOrdersByCursor(AuthenticatedUser.from(customer), null, 10).content().get(0);
+        for (RecoveryOrderDto readOrder : new RecoveryOrderDto[]{foundOrder, listedOrder}) {
+            assertThat(readOrder.amount()).isEqualByComparingTo("100.00");
+            RecoveryOrderItemDto orderItem = readOrder.orderItems().get(0);
+            assertThat(orderItem.productVariationId()).isEqualTo(productVariationId);
+            assertThat(orderItem.productName()).isEqualTo(product.name());
+            assertThat(orderItem.sizeName()).isEqualTo("LARGE");
+            assertThat(orderItem.unitPrice()).isEqualByComparingTo("50.00");
+            assertThat(orderItem.quantity()).isEqualTo(2);
+        }
+    }
+}
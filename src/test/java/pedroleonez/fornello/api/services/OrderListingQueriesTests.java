@@ -0,0 +1,96 @@
+package pedroleonez.fornello.api.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.entities.OrderIntake;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the listings read the orders, their items and their users' roles with one query each, whatever the page length
+@SpringBootTest
+@Import({TestUsers.class, TestOrders.class})
+class OrderListingQueriesTests {
+
+    private static final PageRequest PAGE = PageRequest.of(0, 10);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private TestOrders testOrders;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void enableStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void disableStatistics() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    void listingRunsTheSameQueriesForOneOrManyOrders() {
+        AuthenticatedUser customerWithOneOrder = createCustomerWithOrders(1);
+        AuthenticatedUser customerWithManyOrders = createCustomerWithOrders(6);
+
+        long oneOrderQueries = queriesOf(() -> assertThat(orderService.getOrders(customerWithOneOrder, PAGE).getContent()).hasSize(1));
+        long manyOrdersQueries = queriesOf(() -> assertThat(orderService.getOrders(customerWithManyOrders, PAGE).getContent()).hasSize(6));
+
+        assertThat(manyOrdersQueries).isEqualTo(oneOrderQueries).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void statusListingRunsTheSameQueriesForOneOrManyOrders() {
+        AuthenticatedUser customerWithOneOrder = createCustomerWithOrders(1);
+        AuthenticatedUser customerWithManyOrders = createCustomerWithOrders(6);
+
+        long oneOrderQueries = queriesOf(() -> assertThat(orderService.getOrderByStatusSlice("PENDING", customerWithOneOrder, PAGE).content()).hasSize(1));
+        long manyOrdersQueries = queriesOf(() -> assertThat(orderService.getOrderByStatusSlice("PENDING", customerWithManyOrders, PAGE).content()).hasSize(6));
+
+        assertThat(manyOrdersQueries).isEqualTo(oneOrderQueries).isLessThanOrEqualTo(3);
+    }
+
+    // the intake writer polls its table in the background, so its queries are left out
+    private long queriesOf(Runnable listing) {
+        statistics.clear();
+        listing.run();
+        return Arrays.stream(statistics.getQueries())
+                .filter(query -> !query.contains(OrderIntake.class.getSimpleName()))
+                .mapToLong(query -> statistics.getQueryStatistics(query).getExecutionCount())
+                .sum();
+    }
+
+    private AuthenticatedUser createCustomerWithOrders(int count) {
+        User customer = testUsers.createCustomer();
+        RecoveryProductDto product = testOrders.createProduct();
+        for (int i = 0; i < count; i++) {
+            testOrders.createOrder(customer, product);
+        }
+        return AuthenticatedUser.from(customer);
+    }
+}
@@ -0,0 +1,113 @@
+package pedroleonez.fornello.api.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.page.RecoveryCursorPageDto;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.repositories.UserRepository;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+import pedroleonez.fornello.api.support.BenchmarkApplication;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+an administrator paging through every order, newest first, 8 orders per page (the endpoint's default),
+on page 1 and on page 5,000:
+- offsetPage1, offsetPage5000: OrderService.getOrders, offset paging (the total comes from OrderCounts)
+- cursorPage1, cursorPage5000: OrderService.getOrdersByCursor, seeking past the last (createdDate, id)
+the orders are delivered ones, so the kitchen queue doesn't load them.
+run with: java -cp <test classpath> pedroleonez.fornello.api.services.OrderPagingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class OrderPagingBenchmark {
+
+    private static final int PAGE_SIZE = 8;
+    private static final int DEEP_PAGE = 5_000;
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdDate"), Sort.Order.asc("id"));
+
+    @Param({"100000", "1000000"})
+    private int orders;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private AuthenticatedUser administrator;
+    private String deepPageCursor;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        orderService = context.getBean(OrderService.class);
+        administrator = AuthenticatedUser.from(context.getBean(UserRepository.class).findByEmail(TestUsers.ADMIN_EMAIL).orElseThrow());
+
+        BenchmarkApplication.insertOrders(context.getBean(JdbcTemplate.class), 1_000_000_000L, orders,
+                context.getBean(TestUsers.class).createCustomer().getId(), context.getBean(TestOrders.class).createProduct(),
+                Status.DELIVERED, LocalDateTime.now());
+        context.getBean(OrderCounts.class).recount();
+
+        // the cursor a client holds after reading page 4,999
+        List<RecoveryOrderDto> previousPage = orderService.getOrders(administrator, PageRequest.of(DEEP_PAGE - 2, PAGE_SIZE, NEWEST_FIRST)).getContent();
+        deepPageCursor = OrderCursor.of(previousPage.get(previousPage.size() - 1)).encode();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<RecoveryOrderDto> offsetPage1() {
+        return orderService.getOrders(administrator, page(0));
+    }
+
+    @Benchmark
+    public Page<RecoveryOrderDto> offsetPage5000() {
+        return orderService.getOrders(administrator, page(DEEP_PAGE - 1));
+    }
+
+    @Benchmark
+    public RecoveryCursorPageDto<RecoveryOrderDto> cursorPage1() {
+        return orderService.getOrdersByCursor(administrator, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public RecoveryCursorPageDto<RecoveryOrderDto> cursorPage5000() {
+        return orderService.getOrdersByCursor(administrator, deepPageCursor, PAGE_SIZE);
+    }
+
+    private static Pageable page(int pageNumber) {
+        return PageRequest.of(pageNumber, PAGE_SIZE, NEWEST_FIRST);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OrderPagingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
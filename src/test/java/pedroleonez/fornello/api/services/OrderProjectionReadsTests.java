@@ -0,0 +1,96 @@
+package pedroleonez.fornello.api.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.entities.DeliveryData;
+import pedroleonez.fornello.api.entities.Order;
+import pedroleonez.fornello.api.entities.OrderItem;
+import pedroleonez.fornello.api.entities.Role;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.mappers.OrderMapper;
+import pedroleonez.fornello.api.repositories.OrderRepository;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the read endpoints build the DTOs from projection rows, so they answer as the entity mapping does without loading entities
+@SpringBootTest
+@Import({TestUsers.class, TestOrders.class})
+class OrderProjectionReadsTests {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private TestOrders testOrders;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void enableStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void disableStatistics() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    void projectionReadMatchesTheEntityMapping() {
+        User customer = testUsers.createCustomer();
+        RecoveryOrderDto order = orderService.createOrder(AuthenticatedUser.from(customer), testOrders.orderOf(testOrders.createProduct(), 3));
+
+        RecoveryOrderDto mappedOrder = transactionTemplate.execute(transactionStatus ->
+                orderMapper.mapOrderToRecoveryOrderDto(orderRepository.findById(order.id()).orElseThrow()));
+
+        assertThat(orderService.getOrderById(AuthenticatedUser.from(customer), order.id()))
+                .usingRecursiveComparison()
+                .isEqualTo(mappedOrder);
+    }
+
+    @Test
+    void readsDontLoadEntities() {
+        User customer = testUsers.createCustomer();
+        RecoveryOrderDto order = testOrders.createOrder(customer, testOrders.createProduct());
+        AuthenticatedUser authenticatedUser = AuthenticatedUser.from(customer);
+        statistics.clear();
+
+        assertThat(orderService.getOrderById(authenticatedUser, order.id()).id()).isEqualTo(order.id());
+        assertThat(orderService.getOrders(authenticatedUser, PageRequest.of(0, 10)).getContent()).hasSize(1);
+        assertThat(orderService.getOrdersByCursor(authenticatedUser, null, 10).content()).hasSize(1);
+
+        Stream.of(Order.class, OrderItem.class, DeliveryData.class, User.class, Role.class).forEach(entity ->
+                assertThat(statistics.getEntityStatistics(entity.getName()).getLoadCount()).as(entity.getSimpleName()).isZero());
+    }
+}
@@ -0,0 +1,118 @@
+package pedroleonez.fornello.api.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.mappers.OrderMapper;
+import pedroleonez.fornello.api.repositories.OrderRepository;
+import pedroleonez.fornello.api.repositories.UserRepository;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+import pedroleonez.fornello.api.support.BenchmarkApplication;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/*
+latency distribution (p99 included) of the order reads of an administrator, over 10,000 orders:
+- entityOrderById, entityPage: the entities loaded in a read-only transaction and copied by OrderMapper,
+  as the endpoints did (the page with its count query, as findAll(Pageable) runs it)
+- projectionOrderById, projectionPage: OrderService.getOrderById and getOrders, built from projection rows
+the warmup is long, since the projection reads go through more code than the JIT compiles in a few seconds.
+run with -prof gc to compare the allocation per read as well.
+run with: java -cp <test classpath> pedroleonez.fornello.api.services.OrderReadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 3)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderReadBenchmark {
+
+    private static final int ORDERS = 10_000;
+    private static final long FIRST_ORDER_ID = 1_000_000_000L;
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 20, Sort.by(Sort.Order.desc("createdDate"), Sort.Order.asc("id")));
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private OrderRepository orderRepository;
+    private OrderMapper orderMapper;
+    private TransactionTemplate readOnlyTransactionTemplate;
+    private AuthenticatedUser administrator;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        orderService = context.getBean(OrderService.class);
+        orderRepository = context.getBean(OrderRepository.class);
+        orderMapper = context.getBean(OrderMapper.class);
+        readOnlyTransactionTemplate = new TransactionTemplate(context.getBean(TransactionTemplate.class).getTransactionManager());
+        readOnlyTransactionTemplate.setReadOnly(true);
+        administrator = AuthenticatedUser.from(context.getBean(UserRepository.class).findByEmail(TestUsers.ADMIN_EMAIL).orElseThrow());
+
+        BenchmarkApplication.insertOrders(context.getBean(JdbcTemplate.class), FIRST_ORDER_ID, ORDERS,
+                context.getBean(TestUsers.class).createCustomer().getId(), context.getBean(TestOrders.class).createProduct(),
+                Status.DELIVERED, LocalDateTime.now());
+        context.getBean(OrderCounts.class).recount();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public RecoveryOrderDto entityOrderById() {
+        long orderId = nextOrderId();
+        return readOnlyTransactionTemplate.execute(transactionStatus ->
+                orderMapper.mapOrderToRecoveryOrderDto(orderRepository.findById(orderId).orElseThrow()));
+    }
+
+    @Benchmark
+    public RecoveryOrderDto projectionOrderById() {
+        return orderService.getOrderById(administrator, nextOrderId());
+    }
+
+    @Benchmark
+    public Page<RecoveryOrderDto> entityPage() {
+        return readOnlyTransactionTemplate.execute(transactionStatus ->
+                orderRepository.findAll(FIRST_PAGE).map(orderMapper::mapOrderToRecoveryOrderDto));
+    }
+
+    @Benchmark
+    public Page<RecoveryOrderDto> projectionPage() {
+        return orderService.getOrders(administrator, FIRST_PAGE);
+    }
+
+    private long nextOrderId() {
+        next = (next + 1) % ORDERS;
+        return FIRST_ORDER_ID + next;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OrderReadBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,190 @@
+package pedroleonez.fornello.api.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.dtos.input.order.UpdateStatusOrderDto;
+import pedroleonez.fornello.api.dtos.input.order.UpdateStatusOrdersDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderStatusBulkDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderStatusSkipDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.enums.StatusChangeSkipReason;
+import pedroleonez.fornello.api.events.OrderStatusChangedEvent;
+import pedroleonez.fornello.api.exceptions.InvalidStatusTransitionException;
+import pedroleonez.fornello.api.exceptions.OrderStatusConflictException;
+import pedroleonez.fornello.api.repositories.OrderRepository;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Import({TestUsers.class, TestOrders.class})
+@RecordApplicationEvents
+class OrderStatusTests {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderCounts orderCounts;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private TestOrders testOrders;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    @Test
+    void illegalTransitionsAreRejected() {
+        RecoveryOrderDto order = testOrders.createOrder(testUsers.createCustomer(), testOrders.createProduct());
+
+        assertThatThrownBy(() -> orderService.changeOrderStatus(order.id(), new UpdateStatusOrderDto("DELIVERED")))
+                .isInstanceOf(InvalidStatusTransitionException.class);
+        assertThat(orderService.changeOrderStatus(order.id(), new UpdateStatusOrderDto("APPROVED")).status()).isEqualTo(Status.APPROVED);
+    }
+
+    @Test
+    void bulkChangeReportsSkippedOrdersAndPublishesOneEventPerChangedOrder() {
+        User customer = testUsers.createCustomer();
+        RecoveryProductDto product = testOrders.createProduct();
+        RecoveryOrderDto approvedOrder = testOrders.createOrder(customer, product);
+        RecoveryOrderDto firstPendingOrder = testOrders.createOrder(customer, product);
+        RecoveryOrderDto secondPendingOrder = testOrders.createOrder(customer, product);
+        orderService.changeOrderStatus(approvedOrder.id(), new UpdateStatusOrderDto("APPROVED"));
+        applicationEvents.clear();
+
+        Long missingOrderId = Long.MAX_VALUE;
+        RecoveryOrderStatusBulkDto result = orderService.changeOrdersStatus(new UpdateStatusOrdersDto(
+                List.of(approvedOrder.id(), firstPendingOrder.id(), secondPendingOrder.id(), secondPendingOrder.id(), missingOrderId), "APPROVED"));
+
+        assertThat(result.updatedOrderIds()).containsExactly(firstPendingOrder.id(), secondPendingOrder.id());
+        assertThat(result.skippedOrders()).containsExactlyInAnyOrder(
+                new RecoveryOrderStatusSkipDto(approvedOrder.id(), Status.APPROVED, StatusChangeSkipReason.INVALID_TRANSITION),
+                new RecoveryOrderStatusSkipDto(missingOrderId, null, StatusChangeSkipReason.NOT_FOUND));
+        assertThat(applicationEvents.stream(OrderStatusChangedEvent.class).map(event -> event.order().id()))
+                .containsExactlyInAnyOrder(firstPendingOrder.id(), secondPendingOrder.id());
+        assertThat(applicationEvents.stream(OrderStatusChangedEvent.class).map(OrderStatusChangedEvent::previousStatus))
+                .containsOnly(Status.PENDING);
+    }
+
+    @Test
+    void concurrentBulkChangesChangeEachOrderOnlyOnce() throws Exception {
+        User customer = testUsers.createCustomer();
+        RecoveryProductDto product = testOrders.createProduct();
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            orderIds.add(testOrders.createOrder(customer, product).id());
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        Callable<RecoveryOrderStatusBulkDto> bulkChange = () -> {
+            start.await();
+            return orderService.changeOrdersStatus(new UpdateStatusOrdersDto(orderIds, "APPROVED"));
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<RecoveryOrderStatusBulkDto> first = executor.submit(bulkChange);
+            Future<RecoveryOrderStatusBulkDto> second = executor.submit(bulkChange);
+            start.countDown();
+
+            List<Long> updatedOrderIds = new ArrayList<>(first.get().updatedOrderIds());
+            updatedOrderIds.addAll(second.get().updatedOrderIds());
+            assertThat(updatedOrderIds).hasSize(orderIds.size());
+            assertThat(new HashSet<>(updatedOrderIds)).isEqualTo(Set.copyOf(orderIds));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // the counts follow the events, so an order changed twice would be counted twice
+        assertThat(orderCounts.countByUser(customer.getId(), Status.APPROVED)).isEqualTo(orderIds.size());
+        assertThat(orderCounts.countByUser(customer.getId(), Status.PENDING)).isZero();
+    }
+
+    @Test
+    void conditionalUpdateChangesTheStatusAndTheVersion() {
+        RecoveryOrderDto order = testOrders.createOrder(testUsers.createCustomer(), testOrders.createProduct());
+        Long version = orderRepository.findById(order.id()).orElseThrow().getVersion();
+
+        assertThat(orderRepository.updateStatus(order.id(), Status.APPROVED, Status.PREPARING)).isZero();
+        assertThat(orderRepository.updateStatus(order.id(), Status.PENDING, Status.APPROVED)).isEqualTo(1);
+
+        assertThat(orderRepository.findStatusById(order.id())).contains(Status.APPROVED);
+        assertThat(orderRepository.findById(order.id()).orElseThrow().getVersion()).isEqualTo(version + 1);
+    }
+
+    /*
+    another transaction approves the order after the change read it as pending, and commits while the
+    conditional update waits for its row lock: the update finds the order approved and reports the conflict
+    instead of canceling an order that is already approved
+     */
+    @Test
+    void statusChangedAfterItWasReadIsReportedAsAConflict() throws Exception {
+        RecoveryOrderDto order = testOrders.createOrder(testUsers.createCustomer(), testOrders.createProduct());
+        CountDownLatch approved = new CountDownLatch(1);
+        AtomicReference<Thread> changingThread = new AtomicReference<>();
+
+        CompletableFuture<Void> approval = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(transactionStatus -> {
+            orderRepository.updateStatus(order.id(), Status.PENDING, Status.APPROVED);
+            approved.countDown();
+            awaitBlockedOnRowLock(changingThread);
+        }));
+        approved.await();
+
+        CompletableFuture<RecoveryOrderDto> cancellation = CompletableFuture.supplyAsync(() -> {
+            changingThread.set(Thread.currentThread());
+            return orderService.changeOrderStatus(order.id(), new UpdateStatusOrderDto("CANCELED"));
+        });
+        approval.get();
+
+        assertThatThrownBy(cancellation::join).hasCauseInstanceOf(OrderStatusConflictException.class);
+        assertThat(orderRepository.findStatusById(order.id())).contains(Status.APPROVED);
+    }
+
+    // lets the transaction commit once the other change waits for the row lock it holds (or after 10 seconds)
+    private static void awaitBlockedOnRowLock(AtomicReference<Thread> changingThread) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                Thread thread = changingThread.get();
+                if (thread != null && Arrays.stream(thread.getStackTrace())
+                        .anyMatch(frame -> frame.getClassName().startsWith("org.h2.") && frame.getMethodName().contains("wait"))) {
+                    return;
+                }
+                Thread.sleep(10);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package pedroleonez.fornello.api.services;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.page.RecoverySlicePageDto;
+import pedroleonez.fornello.api.dtos.output.user.RecoveryUserDto;
+import pedroleonez.fornello.api.enums.Status;
+import pedroleonez.fornello.api.mappers.OrderMapper;
+import pedroleonez.fornello.api.repositories.OrderRepository;
+import pedroleonez.fornello.api.repositories.UserRepository;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+import pedroleonez.fornello.api.support.BenchmarkApplication;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+statements sent to the database per page view, over 50,000 orders and 200 users. the statements counter is
+normalized like the page views, so the statements per page view are its score divided by the primary score:
+- legacyOrderPage: the order page as the endpoint served it, findAll(Pageable) with its count query and OrderMapper
+- orderPage: OrderService.getOrders, the total served by OrderCounts
+- orderSlice: OrderService.getOrdersSlice, no total
+- userPage, userSlice: UserService.getUsers (with its count query) and getUsersSlice
+run with: java -cp <test classpath> pedroleonez.fornello.api.services.PageQueriesBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageQueriesBenchmark {
+
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 8, Sort.by(Sort.Order.desc("createdDate"), Sort.Order.asc("id")));
+    private static final Pageable FIRST_USER_PAGE = PageRequest.of(0, 8, Sort.by("id"));
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private UserService userService;
+    private OrderRepository orderRepository;
+    private OrderMapper orderMapper;
+    private TransactionTemplate readOnlyTransactionTemplate;
+    private AuthenticatedUser administrator;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Statements {
+
+        public long statements;
+    }
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        orderService = context.getBean(OrderService.class);
+        userService = context.getBean(UserService.class);
+        orderRepository = context.getBean(OrderRepository.class);
+        orderMapper = context.getBean(OrderMapper.class);
+        readOnlyTransactionTemplate = new TransactionTemplate(context.getBean(TransactionTemplate.class).getTransactionManager());
+        readOnlyTransactionTemplate.setReadOnly(true);
+        administrator = AuthenticatedUser.from(context.getBean(UserRepository.class).findByEmail(TestUsers.ADMIN_EMAIL).orElseThrow());
+
+        TestUsers testUsers = context.getBean(TestUsers.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        var product = context.getBean(TestOrders.class).createProduct();
+        for (int i = 0; i < 200; i++) {
+            BenchmarkApplication.insertOrders(jdbcTemplate, 1_000_000_000L + i * 250L, 250, testUsers.createCustomer().getId(), product,
+                    Status.DELIVERED, LocalDateTime.now().minusMinutes(i));
+        }
+        context.getBean(OrderCounts.class).recount();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<RecoveryOrderDto> legacyOrderPage(Statements statements) {
+        return counted(statements, () -> readOnlyTransactionTemplate.execute(transactionStatus ->
+                orderRepository.findAll(FIRST_PAGE).map(orderMapper::mapOrderToRecoveryOrderDto)));
+    }
+
+    @Benchmark
+    public Page<RecoveryOrderDto> orderPage(Statements statements) {
+        return counted(statements, () -> orderService.getOrders(administrator, FIRST_PAGE));
+    }
+
+    @Benchmark
+    public RecoverySlicePageDto<RecoveryOrderDto> orderSlice(Statements statements) {
+        return counted(statements, () -> orderService.getOrdersSlice(administrator, FIRST_PAGE));
+    }
+
+    @Benchmark
+    public Page<RecoveryUserDto> userPage(Statements statements) {
+        return counted(statements, () -> userService.getUsers(FIRST_USER_PAGE));
+    }
+
+    @Benchmark
+    public RecoverySlicePageDto<RecoveryUserDto> userSlice(Statements statements) {
+        return counted(statements, () -> userService.getUsersSlice(FIRST_USER_PAGE));
+    }
+
+    private <T> T counted(Statements statements, Supplier<T> pageView) {
+        long statementsBefore = BenchmarkApplication.statements(context);
+        T page = pageView.get();
+        statements.statements += BenchmarkApplication.statements(context) - statementsBefore;
+        return page;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PageQueriesBenchmark.class.getSimpleName()).build()).run();
+    }
+}
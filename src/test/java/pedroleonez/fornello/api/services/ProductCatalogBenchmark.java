@@ -0,0 +1,124 @@
+package pedroleonez.fornello.api.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.dtos.input.product.CreateProductDto;
+import pedroleonez.fornello.api.dtos.input.product.CreateProductVariationDto;
+import pedroleonez.fornello.api.dtos.input.product.UpdateProductDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.mappers.ProductMapper;
+import pedroleonez.fornello.api.repositories.ProductRepository;
+import pedroleonez.fornello.api.support.BenchmarkApplication;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+menu reads (40 products with 3 variations each) by 3 threads while a 4th keeps updating products:
+- snapshot: ProductService.getProducts, served from the ProductCatalog snapshot the writes rebuild
+- database: the menu as it was read before the snapshot, findAll() with the variations loaded lazily and remapped
+both groups run the same writer, so its score shows what the snapshot rebuild adds to every write.
+run with: java -cp <test classpath> pedroleonez.fornello.api.services.ProductCatalogBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductCatalogBenchmark {
+
+    private static final int PRODUCTS = 40;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private ProductRepository productRepository;
+    private ProductMapper productMapper;
+    private TransactionTemplate readOnlyTransactionTemplate;
+    private List<Long> productIds;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        productService = context.getBean(ProductService.class);
+        productRepository = context.getBean(ProductRepository.class);
+        productMapper = context.getBean(ProductMapper.class);
+        readOnlyTransactionTemplate = new TransactionTemplate(context.getBean(TransactionTemplate.class).getTransactionManager());
+        readOnlyTransactionTemplate.setReadOnly(true);
+
+        productIds = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            productIds.add(productService.createProduct(new CreateProductDto(
+                    "Pizza " + i,
+                    "Tomato and mozzarella",
+                    "PIZZA",
+                    List.of(new CreateProductVariationDto("SMALL", "4 slices", new BigDecimal("30.00"), true),
+                            new CreateProductVariationDto("MEDIUM", "6 slices", new BigDecimal("40.00"), true),
+                            new CreateProductVariationDto("LARGE", "8 slices", new BigDecimal("50.00"), true)),
+                    true)).id());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(3)
+    public List<RecoveryProductDto> snapshotRead() {
+        return productService.getProducts();
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(1)
+    public RecoveryProductDto snapshotWrite() {
+        return updateProduct();
+    }
+
+    @Benchmark
+    @Group("database")
+    @GroupThreads(3)
+    public List<RecoveryProductDto> databaseRead() {
+        return readOnlyTransactionTemplate.execute(transactionStatus ->
+                productRepository.findAll().stream().map(productMapper::mapProductToRecoveryProductDto).toList());
+    }
+
+    @Benchmark
+    @Group("database")
+    @GroupThreads(1)
+    public RecoveryProductDto databaseWrite() {
+        return updateProduct();
+    }
+
+    private RecoveryProductDto updateProduct() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return productService.updateProductPart(productIds.get(random.nextInt(PRODUCTS)),
+                new UpdateProductDto(null, "Tomato and mozzarella " + random.nextInt(), null));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ProductCatalogBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,84 @@
+package pedroleonez.fornello.api.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.dtos.input.product.UpdateProductDto;
+import pedroleonez.fornello.api.dtos.input.product.UpdateProductVariationDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Import({TestUsers.class, TestOrders.class})
+class ProductCatalogTests {
+
+    @Autowired
+    private ProductCatalog productCatalog;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestOrders testOrders;
+
+    // every committed change publishes a new snapshot with it
+    @Test
+    void committedChangesArePublishedInANewVersion() {
+        long version = productCatalog.getVersion();
+        RecoveryProductDto product = testOrders.createProduct();
+        assertThat(productCatalog.getVersion()).isGreaterThan(version);
+        assertThat(productCatalog.getProduct(product.id())).hasValue(product);
+        assertThat(productCatalog.getProducts()).extracting(RecoveryProductDto::id).contains(product.id());
+
+        version = productCatalog.getVersion();
+        updatePrice(product, new BigDecimal("65.00"));
+        assertThat(productCatalog.getVersion()).isGreaterThan(version);
+        assertThat(productCatalog.getProduct(product.id()).orElseThrow().productVariations().get(0).price()).isEqualByComparingTo("65.00");
+
+        productService.deleteProductId(product.id());
+        assertThat(productCatalog.getProduct(product.id())).isEmpty();
+    }
+
+    // the snapshot is only rebuilt after the change commits
+    @Test
+    void rolledBackChangesAreNotPublished() {
+        RecoveryProductDto product = testOrders.createProduct();
+        long version = productCatalog.getVersion();
+
+        transactionTemplate.executeWithoutResult(transactionStatus -> {
+            productService.updateProductPart(product.id(), new UpdateProductDto("Rolled back pizza", null, null));
+            transactionStatus.setRollbackOnly();
+        });
+
+        assertThat(productCatalog.getVersion()).isEqualTo(version);
+        assertThat(productCatalog.getProduct(product.id()).orElseThrow().name()).isEqualTo(product.name());
+    }
+
+    // the snapshot is shared by every request, so it's served as is and can't be changed by a reader
+    @Test
+    void snapshotIsSharedAndImmutable() {
+        RecoveryProductDto product = testOrders.createProduct();
+
+        RecoveryProductDto cachedProduct = productCatalog.getProduct(product.id()).orElseThrow();
+        assertThat(productCatalog.getProduct(product.id())).containsSame(cachedProduct);
+        assertThatThrownBy(() -> cachedProduct.productVariations().clear()).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> productCatalog.getProducts().clear()).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    // in one transaction, as the endpoints keep the session open for the request
+    private void updatePrice(RecoveryProductDto product, BigDecimal price) {
+        transactionTemplate.executeWithoutResult(transactionStatus -> productService.updateProductVariation(product.id(),
+                product.productVariations().get(0).id(), new UpdateProductVariationDto(null, null, price, null)));
+    }
+}
@@ -0,0 +1,121 @@
+package pedroleonez.fornello.api.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.dtos.input.order.UpdateStatusOrderDto;
+import pedroleonez.fornello.api.dtos.output.analytics.RecoverySalesDto;
+import pedroleonez.fornello.api.dtos.output.analytics.RecoverySalesRebuildDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import({TestUsers.class, TestOrders.class})
+class SalesRollupsTests {
+
+    @Autowired
+    private SalesRollups salesRollups;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private TestOrders testOrders;
+
+    @Test
+    void rebuiltRollupsMatchTheIncrementalOnes() {
+        User customer = testUsers.createCustomer();
+        RecoveryProductDto product = testOrders.createProduct();
+        orderService.createOrder(AuthenticatedUser.from(customer), testOrders.orderOf(product, 3));
+        testOrders.createOrder(customer, product);
+        RecoveryOrderDto canceledOrder = testOrders.createOrder(customer, product);
+        orderService.changeOrderStatus(canceledOrder.id(), new UpdateStatusOrderDto("CANCELED"));
+
+        assertThat(variationSales(product)).isEqualTo(new RecoverySalesDto(2L, 4L, new BigDecimal("200.00")));
+
+        RecoverySalesRebuildDto rebuild = salesRollups.rebuild();
+        assertThat(rebuild.mismatchedDates()).doesNotContain(LocalDate.now());
+        assertThat(variationSales(product)).isEqualTo(new RecoverySalesDto(2L, 4L, new BigDecimal("200.00")));
+    }
+
+    // the rebuild sees the committed order, so its event, delivered afterwards, isn't applied again
+    @Test
+    void rebuildDoesntCountTwiceOrdersDeliveredAfterIt() throws Exception {
+        User customer = testUsers.createCustomer();
+        RecoveryProductDto product = testOrders.createProduct();
+        CountDownLatch committed = new CountDownLatch(1);
+        CountDownLatch rebuilt = new CountDownLatch(1);
+
+        CompletableFuture<Void> creation = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(transactionStatus -> {
+            // registered before the order event, so it runs before the event is delivered
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    committed.countDown();
+                    await(rebuilt);
+                }
+            });
+            testOrders.createOrder(customer, product);
+        }));
+        committed.await();
+        salesRollups.rebuild();
+        rebuilt.countDown();
+        creation.get();
+
+        assertThat(variationSales(product).orders()).isEqualTo(1);
+    }
+
+    // the rebuild can't see the order, which isn't committed yet, so its event is applied afterwards
+    @Test
+    void rebuildDoesntMissOrdersCommittedAfterIt() throws Exception {
+        User customer = testUsers.createCustomer();
+        RecoveryProductDto product = testOrders.createProduct();
+        CountDownLatch orderSaved = new CountDownLatch(1);
+        CountDownLatch rebuilt = new CountDownLatch(1);
+
+        CompletableFuture<Void> creation = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(transactionStatus -> {
+            testOrders.createOrder(customer, product);
+            orderSaved.countDown();
+            await(rebuilt);
+        }));
+        orderSaved.await();
+        salesRollups.rebuild();
+        rebuilt.countDown();
+        creation.get();
+
+        assertThat(variationSales(product).orders()).isEqualTo(1);
+    }
+
+    private RecoverySalesDto variationSales(RecoveryProductDto product) {
+        return salesRollups.getReport(LocalDate.now(), LocalDate.now()).byProductVariation().get(product.productVariations().get(0).id());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
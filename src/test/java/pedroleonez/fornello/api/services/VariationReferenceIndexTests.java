@@ -0,0 +1,105 @@
+package pedroleonez.fornello.api.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.events.OrderDeletedEvent;
+import pedroleonez.fornello.api.exceptions.ProductAssociatedWithOrderException;
+import pedroleonez.fornello.api.exceptions.ProductVariationAssociatedWithOrderException;
+import pedroleonez.fornello.api.support.TestOrders;
+import pedroleonez.fornello.api.support.TestUsers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Import({TestUsers.class, TestOrders.class})
+class VariationReferenceIndexTests {
+
+    @Autowired
+    private VariationReferenceIndex variationReferenceIndex;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestUsers testUsers;
+
+    @Autowired
+    private TestOrders testOrders;
+
+    @Test
+    void referencedVariationsCantBeDeleted() {
+        RecoveryProductDto product = testOrders.createProduct();
+        Long productVariationId = product.productVariations().get(0).id();
+        testOrders.createOrder(testUsers.createCustomer(), product);
+
+        assertThat(variationReferenceIndex.isReferenced(productVariationId)).isTrue();
+        assertThatThrownBy(() -> productService.deleteProductVariationById(product.id(), productVariationId))
+                .isInstanceOf(ProductVariationAssociatedWithOrderException.class);
+        assertThatThrownBy(() -> productService.deleteProductId(product.id()))
+                .isInstanceOf(ProductAssociatedWithOrderException.class);
+    }
+
+    // a reference missed by the index is still caught by the foreign key and reported the same way
+    @Test
+    void foreignKeyViolationsAreReportedAsReferences() {
+        RecoveryProductDto product = testOrders.createProduct();
+        Long productVariationId = product.productVariations().get(0).id();
+        RecoveryOrderDto order = testOrders.createOrder(testUsers.createCustomer(), product);
+        variationReferenceIndex.onOrderDeleted(new OrderDeletedEvent(order));
+
+        assertThat(variationReferenceIndex.isReferenced(productVariationId)).isFalse();
+        assertThatThrownBy(() -> productService.deleteProductVariationById(product.id(), productVariationId))
+                .isInstanceOf(ProductVariationAssociatedWithOrderException.class);
+        assertThatThrownBy(() -> productService.deleteProductId(product.id()))
+                .isInstanceOf(ProductAssociatedWithOrderException.class);
+
+        variationReferenceIndex.rebuild();
+        assertThat(variationReferenceIndex.isReferenced(productVariationId)).isTrue();
+    }
+
+    // the rebuild can't see the order, which isn't committed yet, but keeps the reference added by it
+    @Test
+    void rebuildKeepsTheReferencesOfUncommittedOrders() throws Exception {
+        RecoveryProductDto product = testOrders.createProduct();
+        Long productVariationId = product.productVariations().get(0).id();
+        var customer = testUsers.createCustomer();
+        CountDownLatch orderSaved = new CountDownLatch(1);
+        CountDownLatch rebuilt = new CountDownLatch(1);
+
+        CompletableFuture<Void> creation = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(transactionStatus -> {
+            testOrders.createOrder(customer, product);
+            orderSaved.countDown();
+            try {
+                rebuilt.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        orderSaved.await();
+        variationReferenceIndex.rebuild();
+        rebuilt.countDown();
+        creation.get();
+
+        assertThat(variationReferenceIndex.isReferenced(productVariationId)).isTrue();
+    }
+
+    @Test
+    void unreferencedVariationsAreDeleted() {
+        RecoveryProductDto product = testOrders.createProduct();
+
+        productService.deleteProductVariationById(product.id(), product.productVariations().get(0).id());
+        productService.deleteProductId(product.id());
+    }
+}
@@ -0,0 +1,84 @@
+package pedroleonez.fornello.api.support;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pedroleonez.fornello.api.FornelloApiApplication;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductVariationDto;
+import pedroleonez.fornello.api.enums.Status;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/*
+starts the whole application for the benchmarks that go through the services and the database, with
+TestUsers and TestOrders as beans. each start gets its own in-memory database and a random port, and the
+SQL isn't printed, since printing the statements would take longer than running them.
+Hibernate statistics are on, so a benchmark can report the statements it runs.
+ */
+public final class BenchmarkApplication {
+
+    // rows per insert when seeding, so a large seed doesn't run in a single huge transaction
+    private static final int SEED_CHUNK_SIZE = 100_000;
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(String... properties) {
+        // without the query cache, since H2 hands back the last result of a cached query while its tables are unchanged
+        List<String> allProperties = new ArrayList<>(List.of(
+                "spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";QUERY_CACHE_SIZE=0",
+                "server.port=0",
+                "spring.jpa.show-sql=false",
+                "spring.jpa.properties.hibernate.format_sql=false",
+                "spring.jpa.properties.hibernate.generate_statistics=true",
+                "logging.level.root=WARN"));
+        allProperties.addAll(List.of(properties));
+        // passed as command line arguments, since default properties can't override application.properties
+        return new SpringApplicationBuilder(FornelloApiApplication.class, TestUsers.class, TestOrders.class)
+                .run(allProperties.stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+
+    // statements prepared through Hibernate since the application started
+    public static long statements(ApplicationContext context) {
+        return context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics().getPrepareStatementCount();
+    }
+
+    /*
+    inserts orders of one item of the product's first variation, with their delivery data, through set-based
+    inserts: a million orders take seconds this way, where the services would take hours. the ids go from
+    firstOrderId up (past the ids the sequences hand out during a run) and the orders are one second apart,
+    the first one created at newestCreatedDate. the in-memory indexes and counts don't see these orders,
+    so they must be rebuilt afterwards when a benchmark depends on them.
+     */
+    public static void insertOrders(JdbcTemplate jdbcTemplate, long firstOrderId, int count, Long userId, RecoveryProductDto product,
+                                    Status status, LocalDateTime newestCreatedDate) {
+        RecoveryProductVariationDto variation = product.productVariations().get(0);
+        Timestamp newest = Timestamp.valueOf(newestCreatedDate);
+        for (int inserted = 0; inserted < count; inserted += SEED_CHUNK_SIZE) {
+            long firstId = firstOrderId + inserted;
+            int chunkSize = Math.min(SEED_CHUNK_SIZE, count - inserted);
+            long lastX = chunkSize - 1;
+            // the parameters are cast, since H2 can't tell their types from a select list
+            jdbcTemplate.update("insert into orders (id, user_id, status, payment_method, amount, created_date, version) " +
+                            "select cast(? as bigint) + x, cast(? as bigint), cast(? as varchar), 'PIX', cast(? as decimal(19, 2)), " +
+                            "dateadd(second, -(cast(? as bigint) + x), cast(? as timestamp)), 0 from system_range(0, cast(? as bigint))",
+                    firstId, userId, status.name(), variation.price(), inserted, newest, lastX);
+            jdbcTemplate.update("insert into orders_items (id, order_id, product_variation_id, quantity, product_name, size_name, unit_price, category) " +
+                            "select cast(? as bigint) + x, cast(? as bigint) + x, cast(? as bigint), 1, cast(? as varchar), cast(? as varchar), " +
+                            "cast(? as decimal(19, 2)), cast(? as varchar) from system_range(0, cast(? as bigint))",
+                    firstId, firstId, variation.id(), product.name(), variation.sizeName(), variation.price(), product.category(), lastX);
+            jdbcTemplate.update("insert into deliveries_data (id, order_id, receiver_name, address, house_number, complement, district, zip_code, city, state, phone_number) " +
+                            "select cast(? as bigint) + x, cast(? as bigint) + x, 'Receiver', 'Street', '10', 'House', 'District', '00000-000', 'City', 'State', '99999-9999' " +
+                            "from system_range(0, cast(? as bigint))",
+                    firstId, firstId, lastX);
+        }
+    }
+}
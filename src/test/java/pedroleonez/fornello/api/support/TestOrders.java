@@ -0,0 +1,52 @@
+package pedroleonez.fornello.api.support;
+
+import org.springframework.boot.test.context.TestComponent;
+import pedroleonez.fornello.api.dtos.input.order.CreateDeliveryDataDto;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderDto;
+import pedroleonez.fornello.api.dtos.input.order.CreateOrderItemDto;
+import pedroleonez.fornello.api.dtos.input.product.CreateProductDto;
+import pedroleonez.fornello.api.dtos.input.product.CreateProductVariationDto;
+import pedroleonez.fornello.api.dtos.output.order.RecoveryOrderDto;
+import pedroleonez.fornello.api.dtos.output.product.RecoveryProductDto;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.security.userdetails.AuthenticatedUser;
+import pedroleonez.fornello.api.services.OrderService;
+import pedroleonez.fornello.api.services.ProductService;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+// creates products and orders through the services, as the endpoints do
+@TestComponent
+public class TestOrders {
+
+    private final ProductService productService;
+    private final OrderService orderService;
+
+    public TestOrders(ProductService productService, OrderService orderService) {
+        this.productService = productService;
+        this.orderService = orderService;
+    }
+
+    // an available pizza with a single variation
+    public RecoveryProductDto createProduct() {
+        return productService.createProduct(new CreateProductDto(
+                "Pizza " + UUID.randomUUID(),
+                "Tomato and mozzarella",
+                "PIZZA",
+                List.of(new CreateProductVariationDto("LARGE", "8 slices", new BigDecimal("50.00"), true)),
+                true));
+    }
+
+    public CreateOrderDto orderOf(RecoveryProductDto product, int quantity) {
+        return new CreateOrderDto(
+                List.of(new CreateOrderItemDto(product.id(), product.productVariations().get(0).id(), quantity)),
+                "PIX",
+                new CreateDeliveryDataDto("Receiver", "Street", "10", "House", "District", "00000-000", "City", "State", "99999-9999"));
+    }
+
+    public RecoveryOrderDto createOrder(User customer, RecoveryProductDto product) {
+        return orderService.createOrder(AuthenticatedUser.from(customer), orderOf(product, 1));
+    }
+}
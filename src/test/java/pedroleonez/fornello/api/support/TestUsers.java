@@ -0,0 +1,44 @@
+package pedroleonez.fornello.api.support;
+
+import org.springframework.boot.test.context.TestComponent;
+import pedroleonez.fornello.api.dtos.input.user.CreateUserDto;
+import pedroleonez.fornello.api.entities.User;
+import pedroleonez.fornello.api.enums.RoleName;
+import pedroleonez.fornello.api.repositories.UserRepository;
+import pedroleonez.fornello.api.security.authentication.JwtTokenService;
+import pedroleonez.fornello.api.security.userdetails.UserDetailsImpl;
+import pedroleonez.fornello.api.services.UserService;
+
+import java.util.UUID;
+
+// creates users and issues their access tokens, skipping the login (and its password check) in the tests
+@TestComponent
+public class TestUsers {
+
+    public static final String ADMIN_EMAIL = "admin@email.com";
+
+    private final UserService userService;
+    private final UserRepository userRepository;
+    private final JwtTokenService jwtTokenService;
+
+    public TestUsers(UserService userService, UserRepository userRepository, JwtTokenService jwtTokenService) {
+        this.userService = userService;
+        this.userRepository = userRepository;
+        this.jwtTokenService = jwtTokenService;
+    }
+
+    // a new customer on each call, so the tests sharing the context don't see each other's orders
+    public User createCustomer() {
+        String email = "customer-" + UUID.randomUUID() + "@email.com";
+        userService.createUser(new CreateUserDto(email, "12345678"), RoleName.ROLE_CUSTOMER);
+        return userRepository.findByEmail(email).orElseThrow();
+    }
+
+    public String bearer(User user) {
+        return "Bearer " + jwtTokenService.generateToken(new UserDetailsImpl(user));
+    }
+
+    public String adminBearer() {
+        return bearer(userRepository.findByEmail(ADMIN_EMAIL).orElseThrow());
+    }
+}